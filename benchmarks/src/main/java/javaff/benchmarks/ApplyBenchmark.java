@@ -0,0 +1,110 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.benchmarks;
+
+import javaff.data.Action;
+import javaff.data.GroundProblem;
+import javaff.planning.NullFilter;
+import javaff.planning.STRIPSState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures successor generation -- {@link STRIPSState#apply(Action)} for every applicable action of a fixed 
+ * sample of states, and finding those applicable actions with {@link NullFilter}. The time reported is 
+ * per state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ApplyBenchmark
+{
+	private static final int StateCount = 64;
+	
+	@Param({"blocksworld/p14", "logistics/p03", "ferry/p03"})
+	public String problem;
+	
+	@Param({"set", "bitset"})
+	public String stateType;
+	
+	private List<STRIPSState> states;
+	private List<List<Action>> applicable;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		GroundProblem ground = Corpus.prepare(this.problem);
+		STRIPSState initial = Corpus.getInitialState(ground, this.stateType, "object");
+		
+		this.states = Corpus.randomWalk(initial, StateCount, 1);
+		this.applicable = new ArrayList<List<Action>>(StateCount);
+		for (STRIPSState s : this.states)
+			this.applicable.add(NullFilter.getInstance().getActions(s));
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(StateCount)
+	public void apply(Blackhole bh)
+	{
+		for (int i = 0; i < this.states.size(); i++)
+		{
+			STRIPSState s = this.states.get(i);
+			for (Action a : this.applicable.get(i))
+				bh.consume(s.apply(a));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(StateCount)
+	public void getApplicableActions(Blackhole bh)
+	{
+		for (STRIPSState s : this.states)
+			bh.consume(NullFilter.getInstance().getActions(s));
+	}
+}
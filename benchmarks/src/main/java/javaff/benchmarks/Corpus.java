@@ -0,0 +1,245 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.benchmarks;
+
+import javaff.LogLevel;
+import javaff.PlannerContext;
+import javaff.data.Action;
+import javaff.data.GroundProblem;
+import javaff.data.Requirement;
+import javaff.data.UngroundProblem;
+import javaff.parser.PDDL21parser;
+import javaff.planning.ArrayRelaxedPlanningGraph;
+import javaff.planning.BitSetSTRIPSState;
+import javaff.planning.FactIndex;
+import javaff.planning.NullFilter;
+import javaff.planning.STRIPSState;
+import javaff.search.UnreachableGoalException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Access to the PDDL problems bundled with the benchmarks. A problem is named by its domain directory and 
+ * problem file, such as "blocksworld/p14", and is loaded from "corpus/blocksworld/domain.pddl" and 
+ * "corpus/blocksworld/p14.pddl" on the classpath. As the parser only reads from files, each resource is 
+ * copied to a temporary file the first time it is used.
+ */
+public final class Corpus
+{
+	private static final Map<String, File> Extracted = new HashMap<String, File>();
+	
+	private Corpus()
+	{
+	}
+	
+	/**
+	 * Returns a stream which discards everything written to it, to keep the planner quiet while it is 
+	 * being measured.
+	 */
+	public static PrintStream getNullStream()
+	{
+		return new PrintStream(new OutputStream()
+		{
+			@Override
+			public void write(int b)
+			{
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len)
+			{
+			}
+		});
+	}
+	
+	/**
+	 * Returns a planner context which discards all output.
+	 */
+	public static PlannerContext getQuietContext()
+	{
+		PrintStream out = getNullStream();
+		PlannerContext context = new PlannerContext(new Random(PlannerContext.DefaultSeed), out, out, out, out);
+		//output is discarded, so benchmarks should not measure the time spent building it
+		context.setLogLevel(LogLevel.Quiet);
+		
+		return context;
+	}
+
+	public static File getDomainFile(String problem)
+	{
+		return getFile("corpus/" + problem.substring(0, problem.indexOf('/')) + "/domain.pddl");
+	}
+
+	public static File getProblemFile(String problem)
+	{
+		return getFile("corpus/" + problem + ".pddl");
+	}
+	
+	private static synchronized File getFile(String resource)
+	{
+		File file = Extracted.get(resource);
+		if (file != null)
+			return file;
+		
+		InputStream in = Corpus.class.getClassLoader().getResourceAsStream(resource);
+		if (in == null)
+			throw new IllegalArgumentException("No such corpus file: " + resource);
+		
+		try
+		{
+			file = File.createTempFile("javaff-", "-" + resource.replace('/', '-'));
+			file.deleteOnExit();
+			
+			OutputStream out = new FileOutputStream(file);
+			try
+			{
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) > 0)
+					out.write(buffer, 0, read);
+			}
+			finally
+			{
+				out.close();
+				in.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException("Failed to extract corpus file " + resource, e);
+		}
+		
+		Extracted.put(resource, file);
+		return file;
+	}
+	
+	/**
+	 * Parses the specified problem and its domain.
+	 */
+	public static UngroundProblem parse(String problem)
+	{
+		UngroundProblem unground = PDDL21parser.parseFiles(getDomainFile(problem), getProblemFile(problem), 
+				getNullStream());
+		if (unground == null)
+			throw new IllegalStateException("Failed to parse " + problem);
+		
+		return unground;
+	}
+	
+	/**
+	 * Parses and grounds the specified problem, then performs the same preprocessing as the planner -- 
+	 * ADL decompilation, removal of unreachable facts and assignment of action ordinals.
+	 */
+	public static GroundProblem prepare(String problem)
+	{
+		GroundProblem ground = parse(problem).ground();
+		if (ground.getRequirements().contains(Requirement.ADL))
+			ground.decompileADL();
+		
+		try
+		{
+			ground.filterReachableFacts();
+		}
+		catch (UnreachableGoalException e)
+		{
+			throw new IllegalStateException("Goal of " + problem + " is unreachable", e);
+		}
+		ground.assignActionOrdinals();
+		
+		return ground;
+	}
+	
+	/**
+	 * Returns the initial state of a prepared problem.
+	 * @param ground
+	 * @param stateType Either "set" for a {@link STRIPSState} or "bitset" for a {@link BitSetSTRIPSState}.
+	 * @param rpg Either "object" for the default RPG or "array" for an {@link ArrayRelaxedPlanningGraph}.
+	 */
+	public static STRIPSState getInitialState(GroundProblem ground, String stateType, String rpg)
+	{
+		STRIPSState initial;
+		if (stateType.equals("bitset"))
+			initial = ground.recomputeBitSetSTRIPSInitialState();
+		else if (stateType.equals("set"))
+			initial = ground.recomputeSTRIPSInitialState();
+		else
+			throw new IllegalArgumentException("Unknown state type: " + stateType);
+		
+		if (rpg.equals("array"))
+		{
+			FactIndex index;
+			if (initial instanceof BitSetSTRIPSState)
+				index = ((BitSetSTRIPSState) initial).getFactIndex();
+			else
+				index = new FactIndex(ground);
+			
+			initial.setRPG(new ArrayRelaxedPlanningGraph(ground, index));
+		}
+		else if (rpg.equals("object") == false)
+			throw new IllegalArgumentException("Unknown RPG type: " + rpg);
+		
+		return initial;
+	}
+	
+	/**
+	 * Returns a fixed sample of states visited by a random walk from the specified state. The walk restarts
+	 * from the initial state whenever it reaches a state with no applicable actions.
+	 * @param initial
+	 * @param count The number of states to return, including the initial state.
+	 * @param seed
+	 */
+	public static List<STRIPSState> randomWalk(STRIPSState initial, int count, long seed)
+	{
+		Random random = new Random(seed);
+		List<STRIPSState> states = new ArrayList<STRIPSState>(count);
+		STRIPSState current = initial;
+		while (states.size() < count)
+		{
+			states.add(current);
+			
+			List<Action> applicable = NullFilter.getInstance().getActions(current);
+			if (applicable.isEmpty())
+				current = initial;
+			else
+				current = (STRIPSState) current.apply(applicable.get(random.nextInt(applicable.size())));
+		}
+		
+		return states;
+	}
+}
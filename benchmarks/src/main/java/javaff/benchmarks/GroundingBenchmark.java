@@ -0,0 +1,88 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.benchmarks;
+
+import javaff.data.GroundProblem;
+import javaff.data.UngroundProblem;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing and {@link UngroundProblem#ground()}. Grounding is measured on a freshly parsed problem
+ * each time, as it is not guaranteed to leave the unground problem unchanged. Grounding is measured both
+ * with and without {@link UngroundProblem#setReachabilityGrounding(boolean) reachability grounding}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class GroundingBenchmark
+{
+	@Param({"blocksworld/p14", "logistics/p03", "ferry/p03"})
+	public String problem;
+	
+	@Param({"false", "true"})
+	public boolean reachable;
+	
+	private UngroundProblem unground;
+	
+	@Setup(Level.Invocation)
+	public void parseProblem()
+	{
+		this.unground = Corpus.parse(this.problem);
+		this.unground.setReachabilityGrounding(this.reachable);
+	}
+	
+	@Benchmark
+	public UngroundProblem parse()
+	{
+		return Corpus.parse(this.problem);
+	}
+
+	@Benchmark
+	public GroundProblem ground()
+	{
+		return this.unground.ground();
+	}
+}
@@ -0,0 +1,97 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.benchmarks;
+
+import javaff.data.GroundProblem;
+import javaff.planning.RelaxedPlanningGraph;
+import javaff.planning.STRIPSState;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link RelaxedPlanningGraph#getPlan(javaff.planning.State)} -- the h_FF heuristic -- over a 
+ * fixed sample of states taken from a seeded random walk of each problem. The time reported is per state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class HeuristicBenchmark
+{
+	private static final int StateCount = 64;
+	
+	@Param({"blocksworld/p14", "logistics/p03", "ferry/p03"})
+	public String problem;
+	
+	@Param({"set", "bitset"})
+	public String stateType;
+	
+	@Param({"object", "array"})
+	public String rpg;
+	
+	private RelaxedPlanningGraph graph;
+	private STRIPSState[] states;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		GroundProblem ground = Corpus.prepare(this.problem);
+		STRIPSState initial = Corpus.getInitialState(ground, this.stateType, this.rpg);
+		
+		List<STRIPSState> walk = Corpus.randomWalk(initial, StateCount, 1);
+		this.states = walk.toArray(new STRIPSState[walk.size()]);
+		this.graph = initial.getRPG();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(StateCount)
+	public void getPlan(Blackhole bh)
+	{
+		for (STRIPSState s : this.states)
+			bh.consume(this.graph.getPlan(s));
+	}
+}
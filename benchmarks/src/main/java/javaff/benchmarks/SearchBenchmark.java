@@ -0,0 +1,127 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.benchmarks;
+
+import javaff.data.GroundProblem;
+import javaff.planning.HelpfulFilter;
+import javaff.planning.NullFilter;
+import javaff.planning.STRIPSState;
+import javaff.search.BestFirstSearch;
+import javaff.search.DualQueueBestFirstSearch;
+import javaff.search.EnforcedHillClimbingSearch;
+import javaff.search.LazyBestFirstSearch;
+import javaff.search.Search;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures complete searches from the initial state of each problem, configured as in 
+ * {@link javaff.JavaFF#performFFSearch}. Each search starts from a fresh copy of the initial state, and a 
+ * search which fails is reported as an error rather than as a (misleadingly fast) result. Note that EHC is
+ * incomplete and fails on the bundled Blocksworld problems.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SearchBenchmark
+{
+	@Param({"logistics/p01", "logistics/p02", "ferry/p02"})
+	public String problem;
+	
+	@Param({"ehc", "bfs", "lazy-bfs", "preferred-bfs"})
+	public String algorithm;
+	
+	@Param({"bitset"})
+	public String stateType;
+	
+	@Param({"array"})
+	public String rpg;
+	
+	private STRIPSState prototype;
+	private Search searcher;
+	
+	@Setup(Level.Trial)
+	public void prepare()
+	{
+		GroundProblem ground = Corpus.prepare(this.problem);
+		this.prototype = Corpus.getInitialState(ground, this.stateType, this.rpg);
+	}
+	
+	@Setup(Level.Invocation)
+	public void setup()
+	{
+		STRIPSState initial = (STRIPSState) this.prototype.clone();
+		if (this.algorithm.equals("ehc"))
+		{
+			this.searcher = new EnforcedHillClimbingSearch(initial);
+			this.searcher.setFilter(HelpfulFilter.getInstance());
+		}
+		else 
+		{
+			if (this.algorithm.equals("bfs"))
+				this.searcher = new BestFirstSearch(initial);
+			else if (this.algorithm.equals("lazy-bfs"))
+				this.searcher = new LazyBestFirstSearch(initial);
+			else if (this.algorithm.equals("preferred-bfs"))
+				this.searcher = new DualQueueBestFirstSearch(initial);
+			else
+				throw new IllegalArgumentException("Unknown search: " + this.algorithm);
+			
+			this.searcher.setFilter(NullFilter.getInstance());
+		}
+		
+		this.searcher.setContext(Corpus.getQuietContext());
+	}
+	
+	@Benchmark
+	public javaff.planning.State search()
+	{
+		javaff.planning.State goal = this.searcher.search();
+		if (goal == null)
+			throw new IllegalStateException(this.algorithm + " failed to solve " + this.problem);
+		
+		return goal;
+	}
+}
@@ -0,0 +1,210 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+package javaff;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A stream which writes to another stream on a background thread, so that writing to it never waits for the 
+ * underlying I/O unless the queue of pending writes is full. Writes are made in the order they are received. 
+ * {@link #flush()} waits for every pending write to be made and the underlying stream to be flushed.
+ * <p>
+ * This should be wrapped in a {@link java.io.PrintStream} without automatic flushing, as each flush blocks.
+ */
+public class AsyncOutputStream extends OutputStream
+{
+	/**
+	 * The number of pending writes which can be queued before writing blocks.
+	 */
+	public static final int DefaultCapacity = 4096;
+	
+	private static final Object Close = new Object();
+	
+	private final OutputStream target;
+	private final BlockingQueue<Object> pending;
+	private final Thread writer;
+	private volatile boolean closed;
+	private volatile IOException failure;
+	
+	public AsyncOutputStream(OutputStream target)
+	{
+		this(target, AsyncOutputStream.DefaultCapacity);
+	}
+	
+	/**
+	 * Create a stream with its own writer thread.
+	 * @param target The stream which is written to.
+	 * @param capacity The number of writes which can be pending at once.
+	 */
+	public AsyncOutputStream(OutputStream target, int capacity)
+	{
+		this.target = target;
+		this.pending = new ArrayBlockingQueue<Object>(capacity);
+		this.closed = false;
+		this.failure = null;
+		
+		this.writer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				AsyncOutputStream.this.drain();
+			}
+		}, "AsyncOutputStream");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+	
+	private void drain()
+	{
+		while (true)
+		{
+			Object next;
+			try
+			{
+				next = this.pending.take();
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+			
+			try
+			{
+				if (next instanceof byte[])
+				{
+					this.target.write((byte[]) next);
+				}
+				else if (next instanceof CountDownLatch)
+				{
+					this.target.flush();
+					((CountDownLatch) next).countDown();
+				}
+				else if (next == AsyncOutputStream.Close)
+				{
+					this.target.flush();
+					return;
+				}
+			}
+			catch (IOException e)
+			{
+				this.failure = e;
+				if (next instanceof CountDownLatch)
+					((CountDownLatch) next).countDown();
+			}
+		}
+	}
+	
+	private void enqueue(Object o) throws IOException
+	{
+		if (this.closed)
+			throw new IOException("Stream closed");
+		
+		try
+		{
+			this.pending.put(o);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while queueing output", e);
+		}
+	}
+	
+	@Override
+	public void write(int b) throws IOException
+	{
+		this.enqueue(new byte[] { (byte) b });
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		if (len == 0)
+			return;
+		
+		byte[] copy = new byte[len];
+		System.arraycopy(b, off, copy, 0, len);
+		this.enqueue(copy);
+	}
+	
+	/**
+	 * Waits for every pending write to be made, then flushes the underlying stream.
+	 * @throws IOException Thrown if any write has failed since the last flush.
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		if (this.closed)
+			return;
+		
+		CountDownLatch flushed = new CountDownLatch(1);
+		this.enqueue(flushed);
+		try
+		{
+			flushed.await();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while flushing output", e);
+		}
+		
+		IOException failure = this.failure;
+		if (failure != null)
+		{
+			this.failure = null;
+			throw failure;
+		}
+	}
+	
+	/**
+	 * Makes every pending write and stops the writer thread. The underlying stream is not closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (this.closed)
+			return;
+		
+		this.enqueue(AsyncOutputStream.Close);
+		this.closed = true;
+		try
+		{
+			this.writer.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
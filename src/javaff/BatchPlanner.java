@@ -0,0 +1,713 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+package javaff;
+
+import javaff.data.GroundProblem;
+import javaff.data.Plan;
+import javaff.parser.ParseException;
+import javaff.search.UnreachableGoalException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plans on a batch of problem files for a single domain, several at once. Each problem is planned on in its own 
+ * JVM, so that a problem which exhausts its memory or time budget is stopped without affecting the rest of the 
+ * batch. A report line is written for each problem as soon as it finishes, so a report is useful even if the 
+ * batch is stopped part way through.
+ * <p>
+ * The report is CSV if its file name ends with ".csv", and otherwise has one JSON object per line. Each line 
+ * contains the problem file, its status, the plan length, the number of states visited by search, the 
+ * preprocessing, search and wall-clock times in milliseconds and any error message. The status is one of 
+ * "solved", "unsolved", "timeout", "memory" or "error". The wall-clock time, and so the time budget, includes 
+ * starting the JVM of the problem. JSON reports also contain the {@link PlannerMetrics} of each search.
+ */
+public class BatchPlanner
+{
+	private static final String Usage = "BatchPlanner Usage: java javaff.BatchPlanner <domain file> "
+			+ "<problem directory or files...> [--jobs <n>] [--timeout <seconds>] [--memory <MB>] "
+			+ "[--report <file.csv|file.json>] [--solutions <directory>] [-- <JavaFF options...>]";
+	
+	/**
+	 * Prefixes the line which a child JVM writes its result on.
+	 */
+	private static final String ResultPrefix = "#javaff-result ";
+	
+	private static final double Millis = 1000000d;
+	
+	/**
+	 * The outcome of planning on a single problem.
+	 */
+	public static class Result
+	{
+		private final File problem;
+		private final String status;
+		private final int length;
+		private final long nodes;
+		private final double preprocessMillis, searchMillis, wallMillis;
+		private final String message;
+		private final String metrics;
+		
+		protected Result(File problem, String status, int length, long nodes, double preprocessMillis, 
+				double searchMillis, double wallMillis, String message)
+		{
+			this(problem, status, length, nodes, preprocessMillis, searchMillis, wallMillis, message, null);
+		}
+		
+		protected Result(File problem, String status, int length, long nodes, double preprocessMillis, 
+				double searchMillis, double wallMillis, String message, String metrics)
+		{
+			this.problem = problem;
+			this.status = status;
+			this.length = length;
+			this.nodes = nodes;
+			this.preprocessMillis = preprocessMillis;
+			this.searchMillis = searchMillis;
+			this.wallMillis = wallMillis;
+			this.message = message;
+			this.metrics = metrics;
+		}
+		
+		public File getProblem()
+		{
+			return problem;
+		}
+		
+		/**
+		 * Returns one of "solved", "unsolved", "timeout", "memory" or "error".
+		 */
+		public String getStatus()
+		{
+			return status;
+		}
+		
+		/**
+		 * Returns the length of the plan found, or -1 if none was.
+		 */
+		public int getLength()
+		{
+			return length;
+		}
+		
+		/**
+		 * Returns the number of states visited by search, or -1 if it is not known.
+		 */
+		public long getNodes()
+		{
+			return nodes;
+		}
+		
+		public double getPreprocessMillis()
+		{
+			return preprocessMillis;
+		}
+		
+		public double getSearchMillis()
+		{
+			return searchMillis;
+		}
+		
+		public double getWallMillis()
+		{
+			return wallMillis;
+		}
+		
+		/**
+		 * Returns a description of why planning failed, or null.
+		 */
+		public String getMessage()
+		{
+			return message;
+		}
+		
+		/**
+		 * Returns the {@link PlannerMetrics} of the search as a JSON object, or null if none were recorded.
+		 */
+		public String getMetrics()
+		{
+			return metrics;
+		}
+	}
+	
+	/**
+	 * Writes results to a report as they arrive. 
+	 */
+	public static abstract class Report
+	{
+		protected final PrintWriter out;
+		
+		protected Report(OutputStream out)
+		{
+			this.out = new PrintWriter(new OutputStreamWriter(out));
+		}
+		
+		/**
+		 * Creates a CSV report if the file name ends with ".csv", and a JSON report otherwise.
+		 */
+		public static Report create(File file) throws IOException
+		{
+			if (file.getName().toLowerCase().endsWith(".csv"))
+				return new CSVReport(new FileOutputStream(file));
+			else
+				return new JSONReport(new FileOutputStream(file));
+		}
+		
+		/**
+		 * Writes a result and flushes the report.
+		 */
+		public synchronized void write(Result result)
+		{
+			this.print(result);
+			this.out.flush();
+		}
+		
+		protected abstract void print(Result result);
+		
+		public synchronized void close()
+		{
+			this.out.close();
+		}
+	}
+	
+	/**
+	 * A report with a header line and one line of comma-separated values for each problem.
+	 */
+	public static class CSVReport extends Report
+	{
+		public CSVReport(OutputStream out)
+		{
+			super(out);
+			this.out.println("problem,status,length,nodes,preprocess,search,wall,message");
+			this.out.flush();
+		}
+		
+		@Override
+		protected void print(Result result)
+		{
+			this.out.println(CSVReport.quote(result.getProblem().getPath()) + "," + result.getStatus() + "," 
+					+ result.getLength() + "," + result.getNodes() + "," 
+					+ String.format(Locale.ROOT, "%.3f,%.3f,%.3f", result.getPreprocessMillis(), 
+							result.getSearchMillis(), result.getWallMillis()) + "," 
+					+ (result.getMessage() == null ? "" : CSVReport.quote(result.getMessage())));
+		}
+		
+		private static String quote(String s)
+		{
+			return "\"" + s.replace("\"", "\"\"") + "\"";
+		}
+	}
+	
+	/**
+	 * A report with one JSON object on each line, one for each problem. Unknown values are null.
+	 */
+	public static class JSONReport extends Report
+	{
+		public JSONReport(OutputStream out)
+		{
+			super(out);
+		}
+		
+		@Override
+		protected void print(Result result)
+		{
+			this.out.println("{\"problem\":" + JSONReport.quote(result.getProblem().getPath()) 
+					+ ",\"status\":" + JSONReport.quote(result.getStatus()) 
+					+ ",\"length\":" + (result.getLength() < 0 ? "null" : result.getLength()) 
+					+ ",\"nodes\":" + (result.getNodes() < 0 ? "null" : result.getNodes()) 
+					+ String.format(Locale.ROOT, ",\"preprocess\":%.3f,\"search\":%.3f,\"wall\":%.3f", 
+							result.getPreprocessMillis(), result.getSearchMillis(), result.getWallMillis()) 
+					+ ",\"message\":" + (result.getMessage() == null ? "null" : JSONReport.quote(result.getMessage())) 
+					+ ",\"metrics\":" + (result.getMetrics() == null ? "null" : result.getMetrics()) 
+					+ "}");
+		}
+		
+		private static String quote(String s)
+		{
+			StringBuilder buf = new StringBuilder(s.length() + 2);
+			buf.append('"');
+			for (int i = 0; i < s.length(); i++)
+			{
+				char c = s.charAt(i);
+				if (c == '"' || c == '\\')
+					buf.append('\\').append(c);
+				else if (c < 0x20)
+					buf.append(String.format("\\u%04x", (int) c));
+				else
+					buf.append(c);
+			}
+			buf.append('"');
+			
+			return buf.toString();
+		}
+	}
+	
+	private final File domain;
+	private final int jobs;
+	private final long timeoutMillis;
+	private final int memoryMB;
+	private final File solutionDirectory;
+	private final String[] options;
+	
+	/**
+	 * Create a batch planner.
+	 * @param domain The domain file shared by every problem.
+	 * @param jobs The number of problems planned on at once.
+	 * @param timeoutMillis The wall-clock budget of each problem, or 0 for none.
+	 * @param memoryMB The maximum heap of each problem, or 0 to use the JVM's default.
+	 * @param solutionDirectory A directory to write each plan found to, or null to not write plans.
+	 * @param options Options for the planner, as accepted by {@link JavaFF#main(String[])}.
+	 */
+	public BatchPlanner(File domain, int jobs, long timeoutMillis, int memoryMB, File solutionDirectory, 
+			String[] options)
+	{
+		this.domain = domain;
+		this.jobs = jobs;
+		this.timeoutMillis = timeoutMillis;
+		this.memoryMB = memoryMB;
+		this.solutionDirectory = solutionDirectory;
+		this.options = options;
+	}
+	
+	/**
+	 * Returns the problem files in a directory, in name order. These are the PDDL files other than the domain 
+	 * file and any file whose name contains "domain".
+	 */
+	public List<File> findProblems(File directory)
+	{
+		List<File> problems = new ArrayList<File>();
+		File[] files = directory.listFiles();
+		if (files == null)
+			return problems;
+		
+		Arrays.sort(files);
+		for (File f : files)
+		{
+			if (f.isFile() == false || f.getAbsoluteFile().equals(this.domain.getAbsoluteFile()))
+				continue;
+			
+			String name = f.getName().toLowerCase();
+			if (name.endsWith(".pddl") && name.contains("domain") == false)
+				problems.add(f);
+		}
+		
+		return problems;
+	}
+	
+	/**
+	 * Plans on every problem, writing each result to the report as soon as it is known.
+	 * @param problems The problem files.
+	 * @param report The report to write to, or null.
+	 * @param progress A stream to write a line to as each problem finishes, or null.
+	 * @return The results, in the order the problems finished.
+	 */
+	public List<Result> run(List<File> problems, final Report report, final PrintStream progress) 
+			throws InterruptedException
+	{
+		ThreadFactory daemons = new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "BatchPlanner");
+				t.setDaemon(true);
+				return t;
+			}
+		};
+		ExecutorService workers = Executors.newFixedThreadPool(this.jobs, daemons);
+		final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(daemons);
+		
+		final List<Result> results = Collections.synchronizedList(new ArrayList<Result>(problems.size()));
+		final AtomicInteger finished = new AtomicInteger();
+		final int total = problems.size();
+		for (final File problem : problems)
+		{
+			workers.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					Result result = BatchPlanner.this.plan(problem, watchdog);
+					results.add(result);
+					if (report != null)
+						report.write(result);
+					if (progress != null)
+					{
+						progress.println(String.format(Locale.ROOT, "[%d/%d] %s %s length=%d %.0fms", 
+								finished.incrementAndGet(), total, problem.getName(), result.getStatus(), 
+								result.getLength(), result.getWallMillis()));
+					}
+				}
+			});
+		}
+		
+		workers.shutdown();
+		try
+		{
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		finally
+		{
+			workers.shutdownNow();
+			watchdog.shutdownNow();
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Plans on a single problem in a new JVM, stopping it if it exceeds its time budget.
+	 */
+	protected Result plan(File problem, ScheduledExecutorService watchdog)
+	{
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		if (this.memoryMB > 0)
+			command.add("-Xmx" + this.memoryMB + "m");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(BatchPlanner.class.getName());
+		command.add("--child");
+		command.add(this.domain.getPath());
+		command.add(problem.getPath());
+		command.add(this.solutionDirectory == null ? "-" : this.getSolutionFile(problem).getPath());
+		command.addAll(Arrays.asList(this.options));
+		
+		long start = System.nanoTime();
+		final Process process;
+		try
+		{
+			process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		}
+		catch (IOException e)
+		{
+			return new Result(problem, "error", -1, -1, 0, 0, 0, e.getMessage());
+		}
+		
+		final AtomicBoolean timedOut = new AtomicBoolean(false);
+		ScheduledFuture<?> kill = null;
+		if (this.timeoutMillis > 0)
+		{
+			kill = watchdog.schedule(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					timedOut.set(true);
+					process.destroy();
+				}
+			}, this.timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		
+		//the child's output is only read for its result and the last message before a failure
+		Map<String, String> values = null;
+		String lastLine = null;
+		boolean outOfMemory = false;
+		int exitCode = -1;
+		try
+		{
+			BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = in.readLine()) != null)
+			{
+				if (line.startsWith(BatchPlanner.ResultPrefix))
+				{
+					values = BatchPlanner.parseValues(line.substring(BatchPlanner.ResultPrefix.length()));
+				}
+				else if (line.trim().length() > 0)
+				{
+					lastLine = line.trim();
+					outOfMemory |= line.contains("OutOfMemoryError");
+				}
+			}
+			in.close();
+			exitCode = process.waitFor();
+		}
+		catch (IOException e)
+		{
+			lastLine = e.getMessage();
+		}
+		catch (InterruptedException e)
+		{
+			process.destroy();
+			Thread.currentThread().interrupt();
+			lastLine = "interrupted";
+		}
+		finally
+		{
+			if (kill != null)
+				kill.cancel(false);
+		}
+		double wall = (System.nanoTime() - start) / BatchPlanner.Millis;
+		
+		if (timedOut.get())
+			return new Result(problem, "timeout", -1, -1, 0, 0, wall, null);
+		if (values == null)
+		{
+			if (outOfMemory)
+				return new Result(problem, "memory", -1, -1, 0, 0, wall, lastLine);
+			else
+				return new Result(problem, "error", -1, -1, 0, 0, wall, "exit code " + exitCode 
+						+ (lastLine == null ? "" : ": " + lastLine));
+		}
+		
+		return new Result(problem, values.get("status"), Integer.parseInt(values.get("length")), 
+				Long.parseLong(values.get("nodes")), Double.parseDouble(values.get("preprocess")), 
+				Double.parseDouble(values.get("search")), wall, values.get("message"), values.get("metrics"));
+	}
+	
+	protected File getSolutionFile(File problem)
+	{
+		String name = problem.getName();
+		int dot = name.lastIndexOf('.');
+		if (dot > 0)
+			name = name.substring(0, dot);
+		
+		return new File(this.solutionDirectory, name + ".soln");
+	}
+	
+	/**
+	 * Parses a line of space-separated "key=value" pairs. The "message" value is always last, and may contain 
+	 * spaces.
+	 */
+	private static Map<String, String> parseValues(String line)
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		int messageStart = line.indexOf(" message=");
+		if (messageStart >= 0)
+		{
+			values.put("message", line.substring(messageStart + " message=".length()));
+			line = line.substring(0, messageStart);
+		}
+		for (String pair : line.trim().split(" "))
+		{
+			int eq = pair.indexOf('=');
+			if (eq > 0)
+				values.put(pair.substring(0, eq), pair.substring(eq + 1));
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Plans on a single problem in this JVM and writes the result to standard output in the form read by 
+	 * {@link #plan(File, ScheduledExecutorService)}. Planner output other than errors is discarded.
+	 * @param args The domain file, problem file, solution file or "-" for none, then the planner's options.
+	 */
+	protected static void child(String[] args)
+	{
+		File domain = new File(args[0]);
+		File problem = new File(args[1]);
+		File solution = args[2].equals("-") ? null : new File(args[2]);
+		
+		PrintStream discard = new PrintStream(new OutputStream()
+		{
+			@Override
+			public void write(int b)
+			{
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len)
+			{
+			}
+		});
+		PrintStream results = System.out;
+		System.setOut(discard);
+		PlannerContext context = new PlannerContext(new Random(PlannerContext.DefaultSeed), discard, discard, 
+				discard, System.err);
+		//progress is discarded, so the search should not spend any time building it
+		context.setLogLevel(LogLevel.Quiet);
+		
+		String status, message = null;
+		Plan plan = null;
+		long start = System.nanoTime(), preprocessed = start, end;
+		JavaFF planner = new JavaFF(domain, null, context);
+		try
+		{
+			planner.setOptions(args, 3);
+			
+			GroundProblem ground = planner.parseAndGround(problem);
+			if (ground == null)
+				throw new ParseException("Could not parse " + domain + " and " + problem);
+			planner.preprocess(ground);
+			preprocessed = System.nanoTime();
+			
+			plan = planner.doPreprocessedPlan(ground);
+			status = plan == null ? "unsolved" : "solved";
+			if (plan != null && solution != null)
+				planner.writePlanToFile(plan, solution);
+		}
+		catch (UnreachableGoalException e)
+		{
+			status = "unsolved";
+			message = "Goal " + e.getUnreachables() + " is unreachable";
+		}
+		catch (OutOfMemoryError e)
+		{
+			plan = null;
+			status = "memory";
+			message = e.toString();
+		}
+		catch (Exception e)
+		{
+			status = "error";
+			message = e.toString();
+		}
+		end = System.nanoTime();
+		if (preprocessed == start)
+			preprocessed = end;
+		
+		results.println(BatchPlanner.ResultPrefix + "status=" + status 
+				+ " length=" + (plan == null ? -1 : plan.getPlanLength()) 
+				+ " nodes=" + planner.getNodeCount() 
+				+ String.format(Locale.ROOT, " preprocess=%.3f search=%.3f", 
+						(preprocessed - start) / BatchPlanner.Millis, (end - preprocessed) / BatchPlanner.Millis) 
+				+ " metrics=" + planner.getMetrics().toJSON() 
+				+ (message == null ? "" : " message=" + message.replace('\n', ' ')));
+		results.flush();
+	}
+	
+	public static void main(String[] args)
+	{
+		if (args.length > 0 && args[0].equals("--child"))
+		{
+			BatchPlanner.child(Arrays.copyOfRange(args, 1, args.length));
+			System.exit(0);
+		}
+		
+		File domain = null;
+		List<File> inputs = new ArrayList<File>();
+		int jobs = Runtime.getRuntime().availableProcessors();
+		long timeoutMillis = 0;
+		int memoryMB = 0;
+		File reportFile = null, solutionDirectory = null;
+		String[] options = new String[0];
+		try
+		{
+			for (int i = 0; i < args.length; i++)
+			{
+				if (args[i].equals("--jobs"))
+					jobs = Integer.parseInt(args[++i]);
+				else if (args[i].equals("--timeout"))
+					timeoutMillis = (long) (Double.parseDouble(args[++i]) * 1000);
+				else if (args[i].equals("--memory"))
+					memoryMB = Integer.parseInt(args[++i]);
+				else if (args[i].equals("--report"))
+					reportFile = new File(args[++i]);
+				else if (args[i].equals("--solutions"))
+					solutionDirectory = new File(args[++i]);
+				else if (args[i].equals("--"))
+				{
+					options = Arrays.copyOfRange(args, i + 1, args.length);
+					break;
+				}
+				else if (args[i].startsWith("--"))
+					throw new IllegalArgumentException(args[i]);
+				else if (domain == null)
+					domain = new File(args[i]);
+				else
+					inputs.add(new File(args[i]));
+			}
+			if (domain == null || inputs.isEmpty() || jobs < 1)
+				throw new IllegalArgumentException();
+		}
+		catch (RuntimeException e)
+		{
+			System.out.println(BatchPlanner.Usage);
+			System.exit(1);
+		}
+		
+		BatchPlanner batch = new BatchPlanner(domain, jobs, timeoutMillis, memoryMB, solutionDirectory, options);
+		List<File> problems = new ArrayList<File>();
+		for (File f : inputs)
+		{
+			if (f.isDirectory())
+				problems.addAll(batch.findProblems(f));
+			else
+				problems.add(f);
+		}
+		if (solutionDirectory != null)
+			solutionDirectory.mkdirs();
+		
+		Report report = null;
+		try
+		{
+			if (reportFile != null)
+				report = Report.create(reportFile);
+			
+			long start = System.nanoTime();
+			List<Result> results = batch.run(problems, report, System.out);
+			
+			int solved = 0;
+			for (Result r : results)
+			{
+				if (r.getStatus().equals("solved"))
+					++solved;
+			}
+			System.out.println(String.format(Locale.ROOT, "Solved %d of %d problems in %.3fsec", solved, 
+					results.size(), (System.nanoTime() - start) / (BatchPlanner.Millis * 1000)));
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not create report " + reportFile + ": " + e.getMessage());
+			System.exit(1);
+		}
+		catch (InterruptedException e)
+		{
+			System.out.println("Interrupted");
+		}
+		finally
+		{
+			if (report != null)
+				report.close();
+		}
+	}
+}
@@ -43,16 +43,25 @@ import javaff.data.metric.NumberFunction;
 import javaff.data.strips.InstantAction;
 import javaff.data.strips.Not;
 import javaff.data.temporal.DurativeAction;
+import javaff.parser.DomainCache;
 import javaff.parser.PDDL21parser;
 import javaff.parser.ParseException;
+import javaff.planning.ArrayRelaxedPlanningGraph;
+import javaff.planning.BitSetSTRIPSState;
+import javaff.planning.FactIndex;
+import javaff.planning.Filter;
 import javaff.planning.HelpfulFilter;
+import javaff.planning.HeuristicCache;
 import javaff.planning.MetricState;
 import javaff.planning.STRIPSState;
+import javaff.planning.SuccessorGeneratorFilter;
 import javaff.planning.State;
 import javaff.planning.TemporalMetricState;
 import javaff.planning.NullFilter;
 import javaff.search.BestFirstSearch;
+import javaff.search.DualQueueBestFirstSearch;
 import javaff.search.EnforcedHillClimbingSearch;
+import javaff.search.LazyBestFirstSearch;
 import javaff.search.Search;
 import javaff.search.UnreachableGoalException;
 
@@ -70,6 +79,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * An implementation of the FF planner in Java. The planner currently only
@@ -97,7 +108,8 @@ public class JavaFF
 	 * during search. If false, the underlying order of the applicable actions
 	 * is used, if true, actions are sorted based upon a {@link Comparator}
 	 * defined elsewhere.
-	 * @deprecated Not so much deprecated as not implemented fully yet!
+	 * @deprecated Not so much deprecated as not implemented fully yet! This flag is no longer set
+	 * by {@link #main(String[])} -- see {@link PlannerContext#isDeterministic()}.
 	 */
 	protected static boolean Deterministic = false;
 
@@ -108,14 +120,35 @@ public class JavaFF
 	 */
 	public static final DomainRequirements PDDLRequirementsSupported = JavaFF.GetRequirementsSupported();
 
-	public static BigDecimal EPSILON = new BigDecimal(0.01);
-	public static BigDecimal MAX_DURATION = new BigDecimal("100000");
-	public static Random generator = new Random(1234); //FIXME reintroduce as CLI parameter!
+	public static final BigDecimal EPSILON = new BigDecimal(0.01).setScale(2, BigDecimal.ROUND_HALF_EVEN);
+	public static final BigDecimal MAX_DURATION = new BigDecimal("100000").setScale(2, BigDecimal.ROUND_HALF_EVEN);
+	
+	/**
+	 * @deprecated Shared by every planner in the JVM. Use the {@link PlannerContext} of a planner instead.
+	 */
+	@Deprecated
+	public static Random generator = PlannerContext.getDefault().getRandom();
 
-	public static PrintStream planOutput = System.out;
-	public static PrintStream parsingOutput = System.out;
-	public static PrintStream infoOutput = System.out;
-	public static PrintStream errorOutput = System.err;
+	/**
+	 * @deprecated Shared by every planner in the JVM. Use the {@link PlannerContext} of a planner instead.
+	 */
+	@Deprecated
+	public static PrintStream planOutput = PlannerContext.getDefault().getPlanOutput();
+	/**
+	 * @deprecated Shared by every planner in the JVM. Use the {@link PlannerContext} of a planner instead.
+	 */
+	@Deprecated
+	public static PrintStream parsingOutput = PlannerContext.getDefault().getParsingOutput();
+	/**
+	 * @deprecated Shared by every planner in the JVM. Use the {@link PlannerContext} of a planner instead.
+	 */
+	@Deprecated
+	public static PrintStream infoOutput = PlannerContext.getDefault().getInfoOutput();
+	/**
+	 * @deprecated Shared by every planner in the JVM. Use the {@link PlannerContext} of a planner instead.
+	 */
+	@Deprecated
+	public static PrintStream errorOutput = PlannerContext.getDefault().getErrorOutput();
 
 	protected File domainFile;
 
@@ -123,12 +156,83 @@ public class JavaFF
 	
 	protected boolean useEHC, useBFS;
 	
+	protected boolean useBitSetStates;
+	
+	protected boolean useArrayRPG;
+	
+	protected boolean useLazyBFS;
+	
+	protected boolean usePreferredBFS;
+	
+	protected boolean useSuccessorGenerator;
+	
+	protected boolean useReachabilityGrounding;
+	
+	/**
+	 * The maximum number of heuristic values cached during search of a STRIPS problem, or 0 if none are.
+	 */
+	protected int heuristicCacheSize;
+	
+	/**
+	 * The cache which the domain is parsed through, so that it is parsed once for many problems, or null if it 
+	 * is parsed again for each problem.
+	 */
+	protected DomainCache domainCache;
+	
+	/**
+	 * A file to write the metrics of each search to as JSON, or null if they are only written to the info 
+	 * output.
+	 * @see PlannerMetrics
+	 */
+	protected File metricsFile;
+	
+	/**
+	 * The filter used to find all applicable actions of a state during best-first search. This is set up 
+	 * for each problem before search starts.
+	 */
+	protected Filter successorFilter;
+	
+	protected int threads;
+	
+	/**
+	 * The number of states visited by search while planning on the current or last problem.
+	 */
+	protected long nodeCount;
+	
+	protected PlannerContext context;
+	
 	protected JavaFF()
 	{
+		this.context = new PlannerContext();
 		this.domainFile = null;
 		this.useOutputFile = null;
 		this.useEHC = true;
 		this.useBFS = true;
+		this.useBitSetStates = false;
+		this.useArrayRPG = false;
+		this.useLazyBFS = false;
+		this.usePreferredBFS = false;
+		this.useSuccessorGenerator = false;
+		this.useReachabilityGrounding = false;
+		this.heuristicCacheSize = 0;
+		this.domainCache = DomainCache.getDefault();
+		this.metricsFile = null;
+		this.successorFilter = NullFilter.getInstance();
+		this.threads = 1;
+		this.nodeCount = 0;
+	}
+	
+	/**
+	 * Initialise JavaFF with the specified domain file and context. 
+	 * @param domain The domain file which will have an associated problem file provided at planning time.
+	 * @param solutionFile A file to output any solution found to. May be null of no solution is wanted.
+	 * @param context The context which holds the random number generator and output streams of this planner.
+	 */
+	public JavaFF(File domain, File solutionFile, PlannerContext context)
+	{
+		this(domain, solutionFile);
+		
+		this.context = context;
 	}
 
 
@@ -204,11 +308,6 @@ public class JavaFF
 
 	public static void main(String args[])
 	{
-		EPSILON = EPSILON.setScale(2, BigDecimal.ROUND_HALF_EVEN);
-		MAX_DURATION = MAX_DURATION.setScale(2, BigDecimal.ROUND_HALF_EVEN);
-
-		boolean useOutputFile = false;
-
 		if (args.length < 2)
 		{
 			System.out
@@ -217,29 +316,26 @@ public class JavaFF
 		}
 		else
 		{
-			//TODO write a decent arg parser
 			File domainFile = new File(args[0]);
 			File problemFile = new File(args[1]);
 			File solutionFile = null;
 			if (args.length > 2)
-			{
 				solutionFile = new File(args[2]);
-				useOutputFile = true;
-
-				for (int i = 3; i < args.length; i++)
-				{
-					if (args[i].equals("--deterministic")
-							|| args[i].equals("-d"))
-					{
-						JavaFF.Deterministic = true;
-					}
-				}
-			}
 
 			try
 			{
 				JavaFF planner = new JavaFF(domainFile, solutionFile);
-				Plan p = planner.plan(problemFile);
+				planner.setOptions(args, 3);
+				//write output on a background thread, so the search does not wait on the console
+				planner.getContext().useAsyncOutput();
+				try
+				{
+					Plan p = planner.plan(problemFile);
+				}
+				finally
+				{
+					planner.getContext().flush();
+				}
 			}
 			catch (UnreachableGoalException e)
 			{
@@ -252,9 +348,84 @@ public class JavaFF
 			}
 		}
 	}
+	
+	/**
+	 * Applies command-line options to this planner, such as "-b" to use bitset states or "-t 4" to use 4 
+	 * threads. Unrecognised options are ignored.
+	 * @param args The arguments.
+	 * @param start The index of the first option in the arguments.
+	 */
+	public void setOptions(String[] args, int start)
+	{
+		//TODO write a decent arg parser
+		for (int i = start; i < args.length; i++)
+		{
+			if (args[i].equals("--deterministic")
+					|| args[i].equals("-d"))
+			{
+				this.getContext().setDeterministic(true);
+			}
+			else if (args[i].equals("--bitset-states")
+					|| args[i].equals("-b"))
+			{
+				this.setUseBitSetStates(true);
+			}
+			else if (args[i].equals("--array-rpg")
+					|| args[i].equals("-a"))
+			{
+				this.setUseArrayRPG(true);
+			}
+			else if (args[i].equals("--lazy-bfs")
+					|| args[i].equals("-l"))
+			{
+				this.setUseLazyBFS(true);
+			}
+			else if (args[i].equals("--preferred-bfs")
+					|| args[i].equals("-p"))
+			{
+				this.setUsePreferredBFS(true);
+			}
+			else if (args[i].equals("--successor-generator")
+					|| args[i].equals("-g"))
+			{
+				this.setUseSuccessorGenerator(true);
+			}
+			else if (args[i].equals("--reachable-grounding")
+					|| args[i].equals("-r"))
+			{
+				this.setUseReachabilityGrounding(true);
+			}
+			else if ((args[i].equals("--threads")
+					|| args[i].equals("-t")) && i + 1 < args.length)
+			{
+				this.setThreads(Integer.parseInt(args[++i]));
+			}
+			else if ((args[i].equals("--heuristic-cache")
+					|| args[i].equals("-c")) && i + 1 < args.length)
+			{
+				this.setHeuristicCacheSize(Integer.parseInt(args[++i]));
+			}
+			else if ((args[i].equals("--metrics")
+					|| args[i].equals("-m")) && i + 1 < args.length)
+			{
+				this.setMetricsFile(new File(args[++i]));
+			}
+			else if (args[i].equals("--quiet")
+					|| args[i].equals("-q"))
+			{
+				this.getContext().setLogLevel(LogLevel.Quiet);
+			}
+			else if (args[i].equals("--verbose")
+					|| args[i].equals("-v"))
+			{
+				this.getContext().setLogLevel(LogLevel.Debug);
+			}
+		}
+	}
 
 	/**
-	 * Constructs plans over several problem files.
+	 * Constructs plans over several problem files. The domain is only parsed once, through the planner's 
+	 * {@link DomainCache}, unless no cache has been set.
 	 * 
 	 * @param path
 	 *            The path to the folder containing the problem files.
@@ -323,7 +494,7 @@ public class JavaFF
 			if (useOutputFile != null)
 			{
 				this.writePlanToFile(plan, useOutputFile);
-				System.out.println("Plan written to "
+				this.context.getInfoOutput().println("Plan written to "
 						+ useOutputFile.getAbsolutePath());
 			}
 		}
@@ -371,7 +542,29 @@ public class JavaFF
 	protected Plan doSTRIPSPlan(GroundProblem ground)
 			throws UnreachableGoalException
 	{
-		STRIPSState initialState = ground.recomputeSTRIPSInitialState();
+		STRIPSState initialState;
+		if (this.isUseBitSetStates())
+			initialState = ground.recomputeBitSetSTRIPSInitialState();
+		else
+			initialState = ground.recomputeSTRIPSInitialState();
+		
+		FactIndex index = null;
+		if (initialState instanceof BitSetSTRIPSState)
+			index = ((BitSetSTRIPSState) initialState).getFactIndex();
+		else if (this.isUseArrayRPG() || this.isUseSuccessorGenerator())
+			index = new FactIndex(ground);
+		
+		if (this.isUseArrayRPG())
+			initialState.setRPG(new ArrayRelaxedPlanningGraph(ground, index));
+		
+		if (this.heuristicCacheSize > 0)
+			initialState.setHeuristicCache(new HeuristicCache(this.heuristicCacheSize, true));
+		initialState.setMetrics(this.context.getMetrics());
+		
+		if (this.isUseSuccessorGenerator())
+			this.successorFilter = new SuccessorGeneratorFilter(ground.getActions(), index);
+		else
+			this.successorFilter = NullFilter.getInstance();
 
 		return this.performPlanning(ground, initialState);
 	}
@@ -381,19 +574,21 @@ public class JavaFF
 	{
 		long startTime = System.nanoTime();
 		long afterBFSPlanning = 0, afterEHCPlanning = 0;
+		this.nodeCount = 0;
+		this.context.getMetrics().reset();
 
 		State originalInitState = (State) initialState.clone(); 
 		State goalState = null;
 
 		TotalOrderPlan plan = null;
 
-		System.out.println("Goal is: " + ground.getGoal().toString());
+		this.context.getInfoOutput().println("Goal is: " + ground.getGoal().toString());
 		
 		double planningEHCTime = 0;
 		double planningBFSTime = 0;
 		if (this.isUseEHC())
 		{
-			System.out.println("Running FF with EHC...");
+			this.context.getInfoOutput().println("Running FF with EHC...");
 			goalState = this.performFFSearch(initialState, true);
 			afterEHCPlanning = System.nanoTime();
 			planningEHCTime = (afterEHCPlanning - startTime) / JavaFF.Nanos;
@@ -401,13 +596,13 @@ public class JavaFF
 
 		if (goalState != null)
 		{
-			System.out.println("Found EHC plan: ");
+			this.context.getInfoOutput().println("Found EHC plan: ");
 			plan = (TotalOrderPlan) goalState.getSolution();
 		}
 		else if (this.isUseBFS())
 		{
 			initialState = (State) originalInitState.clone();
-			System.out.println("Running FF with BFS...");
+			this.context.getInfoOutput().println("Running FF with BFS...");
 			goalState = this.performFFSearch(initialState, false);
 			afterBFSPlanning = System.nanoTime();
 			planningBFSTime = (afterBFSPlanning - afterEHCPlanning) / JavaFF.Nanos;
@@ -416,7 +611,7 @@ public class JavaFF
 			{
 				plan = (TotalOrderPlan) goalState.getSolution();
 
-				System.out.println("Found BFS plan: ");
+				this.context.getInfoOutput().println("Found BFS plan: ");
 
 			}
 
@@ -425,7 +620,7 @@ public class JavaFF
 		TimeStampedPlan tsp = null;
 		if (plan != null)
 		{
-			System.out.println("Final plan...");
+			this.context.getInfoOutput().println("Final plan...");
 			// plan.print(planOutput);
 
 			// ***************0*****************
@@ -442,7 +637,7 @@ public class JavaFF
 //			if (goalState != null)
 //			{
 //				long beforeScheduling = System.nanoTime();
-//				infoOutput.println("Scheduling");
+//				this.context.getInfoOutput().println("Scheduling");
 //
 //				Scheduler scheduler = new STRIPSScheduler(ground);
 //				try
@@ -460,18 +655,36 @@ public class JavaFF
 
 			if (tsp != null)
 			{
-				tsp.print(planOutput);
-				System.out
+				tsp.print(this.context.getPlanOutput());
+				this.context.getInfoOutput()
 						.println("Final plan length is " + tsp.actions.size());
 			}
 
-			infoOutput.println("EHC Plan Time = " + planningEHCTime + "sec");
-			infoOutput.println("BFS Plan Time = " + planningBFSTime + "sec");
-			infoOutput.println("Scheduling Time = " + schedulingTime + "sec");
+			this.context.getInfoOutput().println("EHC Plan Time = " + planningEHCTime + "sec");
+			this.context.getInfoOutput().println("BFS Plan Time = " + planningBFSTime + "sec");
+			this.context.getInfoOutput().println("Scheduling Time = " + schedulingTime + "sec");
 		}
 		else
 		{
-			System.out.println("No plan found");
+			this.context.getInfoOutput().println("No plan found");
+		}
+		
+		if (initialState instanceof STRIPSState && ((STRIPSState) initialState).getHeuristicCache() != null)
+			this.context.getInfoOutput().println("Heuristic cache: " + ((STRIPSState) initialState).getHeuristicCache());
+		
+		if (this.context.isInfoEnabled())
+			this.context.getInfoOutput().println("Metrics: " + this.context.getMetrics().toJSON());
+		if (this.metricsFile != null)
+		{
+			try
+			{
+				this.context.getMetrics().writeJSON(this.metricsFile);
+			}
+			catch (FileNotFoundException e)
+			{
+				this.context.getErrorOutput().println("Could not write metrics to " + this.metricsFile + ": " 
+						+ e.getMessage());
+			}
 		}
 
 		return plan;
@@ -510,12 +723,12 @@ public class JavaFF
 		// MetricState ms = new MetricState(ni, ground.mstate.facts,
 		// ground.goal,
 		// ground.functionValues, metric);
-		// System.out.println("About to create gp");
+		// this.context.getInfoOutput().println("About to create gp");
 		// GroundProblem gp = new GroundProblem(na, ground.mstate.facts,
 		// ground.goal,
 		// ground.functionValues, metric);
 		// gp.getMetricInitialState();
-		// System.out.println("Creating RPG");
+		// this.context.getInfoOutput().println("Creating RPG");
 		// ms.setRPG(new RelaxedMetricPlanningGraph(gp));
 		MetricState initialState = ground.recomputeMetricInitialState();
 
@@ -552,16 +765,16 @@ public class JavaFF
 		else
 			metric = ground.getMetric();
 
-		System.out.println("About to create init tmstate");
+		this.context.getInfoOutput().println("About to create init tmstate");
 		// TemporalMetricState ts = new TemporalMetricState(ni,
 		// ground.tmstate.facts, ground.goal,
 		// ground.functionValues, metric);
-		// System.out.println("About to create gp");
+		// this.context.getInfoOutput().println("About to create gp");
 		// GroundProblem gp = new GroundProblem(na, ground.tmstate.facts,
 		// ground.goal,
 		// ground.functionValues, metric);
 		// gp.getTemporalMetricInitialState();
-		// System.out.println("Creating RPG");
+		// this.context.getInfoOutput().println("Creating RPG");
 		// ts.setRPG(new RelaxedTemporalMetricPlanningGraph(gp));
 		TemporalMetricState initialState = ground
 				.recomputeTemporalMetricInitialState();
@@ -570,22 +783,44 @@ public class JavaFF
 	}
 
 	protected Plan doPlan(GroundProblem ground) throws UnreachableGoalException
+	{
+		this.preprocess(ground);
+
+		return this.doPreprocessedPlan(ground);
+	}
+	
+	/**
+	 * Decompiles any ADL in the problem and removes unreachable facts and actions.
+	 * @param ground
+	 * @throws UnreachableGoalException
+	 */
+	protected void preprocess(GroundProblem ground) throws UnreachableGoalException
 	{
 		if (ground.getRequirements().contains(Requirement.ADL))
 		{
-			System.out.println("Decompiling ADL...");
+			this.context.getInfoOutput().println("Decompiling ADL...");
 			int previousActionCount = ground.getActions().size();
 			int naiveAdlActionCount = ground.decompileADL();
 			int adlActionCount = ground.getActions().size();
-			System.out.println(previousActionCount + " actions before ADL, "
+			this.context.getInfoOutput().println(previousActionCount + " actions before ADL, "
 					+ adlActionCount + " after ("+naiveAdlActionCount+" generated in total)");
 		}
 		 
 		//filtering has to be done after decompiling the ADL because the RPG method used only understands
 		//STRIPS facts
-		System.out.println("Performing RPG reachability analysis...");
-		ground.filterReachableFacts();
-
+		this.context.getInfoOutput().println("Performing RPG reachability analysis...");
+		ground.filterReachableFacts(false, this.context.getInfoOutput());
+		ground.assignActionOrdinals();
+	}
+	
+	/**
+	 * Plans on a problem which has already had its ADL decompiled and unreachable facts removed.
+	 * @param ground
+	 * @return
+	 * @throws UnreachableGoalException
+	 */
+	protected Plan doPreprocessedPlan(GroundProblem ground) throws UnreachableGoalException
+	{
 		//Select the correct problem type to generate -- doing a STRIPS only domain using a Temporal approach will
 		//cause massive overheads which may stop the problem being solvable. This is because the type of RPG constructed
 		//is irectly linked to the type of the initial state. That is, STRIPS states will produce RPGs and further STRIPSStates. 
@@ -616,12 +851,30 @@ public class JavaFF
 		// ********************************
 		// Parse and Ground the Problem
 		// ********************************
-		UngroundProblem unground = PDDL21parser.parseFiles(this.domainFile,
-				pFile);
+		GroundProblem ground = this.parseAndGround(pFile);
+		if (ground == null)
+			return null;
+
+		return this.doPlan(ground);
+	}
+	
+	/**
+	 * Parses the domain and specified problem file, and grounds the problem.
+	 * @param pFile
+	 * @return The ground problem, or null if either file could not be parsed.
+	 * @throws ParseException Thrown if the domain has requirements which are not supported.
+	 */
+	protected GroundProblem parseAndGround(File pFile) throws ParseException
+	{
+		UngroundProblem unground;
+		if (this.domainCache != null)
+			unground = this.domainCache.parseFiles(this.domainFile, pFile, this.context.getParsingOutput());
+		else
+			unground = PDDL21parser.parseFiles(this.domainFile, pFile, this.context.getParsingOutput());
 
 		if (unground == null)
 		{
-			System.err.println("Parsing error - see console for details");
+			this.context.getErrorOutput().println("Parsing error - see console for details");
 			return null;
 		}
 
@@ -631,11 +884,15 @@ public class JavaFF
 							+ " supports the following\n"
 							+ JavaFF.PDDLRequirementsSupported.toString());
 
-		System.out.println("Grounding...");
+		this.context.getInfoOutput().println("Grounding...");
+		unground.setReachabilityGrounding(this.useReachabilityGrounding);
+		unground.setGroundingParallelism(this.threads);
+		if (this.context.isDebugEnabled())
+			unground.setDebugOutput(this.context.getInfoOutput());
 		GroundProblem ground = unground.ground();
-		System.out.println("Grounding complete");
+		this.context.getInfoOutput().println("Grounding complete");
 
-		return this.doPlan(ground);
+		return ground;
 	}
 
 //	/**
@@ -849,34 +1106,67 @@ public class JavaFF
 		// "\nGOAL "+initialState.goal);
 		if (useEHC)
 		{
-			infoOutput
+			this.context.getInfoOutput()
 					.println("Performing search using EHC with standard helpful action filter");
 
-			Search EHCS = new EnforcedHillClimbingSearch(initialState);
+			EnforcedHillClimbingSearch EHCS = new EnforcedHillClimbingSearch(initialState);
+			EHCS.setContext(this.context);
 
 			// EHCS.setFilter(NullFilter.getInstance());
 			EHCS.setFilter(HelpfulFilter.getInstance()); // and use the helpful
 															// actions
 															// neighbourhood
+			
+			ExecutorService executor = null;
+			if (this.getThreads() > 1)
+			{
+				executor = Executors.newFixedThreadPool(this.getThreads());
+				EHCS.setExecutor(executor, this.getThreads());
+			}
 
 			// Try and find a plan using EHC
-			goalState = EHCS.search();
+			try
+			{
+				goalState = EHCS.search();
+			}
+			finally
+			{
+				if (executor != null)
+					executor.shutdownNow();
+				this.nodeCount += EHCS.getNodeCount();
+			}
 
 			if (goalState != null)
 				return goalState;
 			else
-				infoOutput.println("Failed to find solution using EHC");
+				this.context.getInfoOutput().println("Failed to find solution using EHC");
 		}
 		else
 		{
-			infoOutput.println("Performing search using BFS");
-			// create a Best-First Searcher
-			BestFirstSearch BFS = new BestFirstSearch(initialState);
-			BFS.setFilter(NullFilter.getInstance());
+			Search BFS;
+			if (this.isUsePreferredBFS())
+			{
+				this.context.getInfoOutput().println("Performing search using lazy BFS with helpful actions as preferred operators");
+				BFS = new DualQueueBestFirstSearch(initialState);
+			}
+			else if (this.isUseLazyBFS())
+			{
+				this.context.getInfoOutput().println("Performing search using lazy BFS");
+				BFS = new LazyBestFirstSearch(initialState);
+			}
+			else
+			{
+				this.context.getInfoOutput().println("Performing search using BFS");
+				// create a Best-First Searcher
+				BFS = new BestFirstSearch(initialState);
+			}
+			BFS.setContext(this.context);
+			BFS.setFilter(this.successorFilter);
 			goalState = BFS.search();
+			this.nodeCount += BFS.getNodeCount();
 
 			if (goalState == null)
-				infoOutput.println("Failed to find solution using BFS");
+				this.context.getInfoOutput().println("Failed to find solution using BFS");
 		}
 		return goalState;
 	}
@@ -896,17 +1186,36 @@ public class JavaFF
 		}
 		catch (FileNotFoundException e)
 		{
-			errorOutput.println(e);
+			this.context.getErrorOutput().println(e);
 			e.printStackTrace();
 		}
 		catch (IOException e)
 		{
-			errorOutput.println(e);
+			this.context.getErrorOutput().println(e);
 			e.printStackTrace();
 		}
 
 	}
 
+	public PlannerContext getContext()
+	{
+		return context;
+	}
+
+	public void setContext(PlannerContext context)
+	{
+		this.context = context;
+	}
+
+	/**
+	 * Returns the number of states visited by search while planning on the last problem, across both EHC and 
+	 * BFS.
+	 */
+	public long getNodeCount()
+	{
+		return nodeCount;
+	}
+
 	public File getDomainFile()
 	{
 		return domainFile;
@@ -936,4 +1245,177 @@ public class JavaFF
 	{
 		this.useBFS = useBFS;
 	}
+
+	/**
+	 * Returns whether STRIPS problems are solved using {@link BitSetSTRIPSState}s rather than 
+	 * set-based {@link STRIPSState}s.
+	 * @return
+	 */
+	public boolean isUseBitSetStates()
+	{
+		return useBitSetStates;
+	}
+
+	public void setUseBitSetStates(boolean useBitSetStates)
+	{
+		this.useBitSetStates = useBitSetStates;
+	}
+
+	/**
+	 * Returns the number of threads which grounding and EHC use. EHC uses them to evaluate successor states.
+	 * @return
+	 */
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	/**
+	 * Sets the number of threads which grounding and EHC use. Operators are grounded in parallel whenever
+	 * this is more than 1. Successors are only evaluated in parallel if the RPG supports it, which at 
+	 * present requires {@link #setUseArrayRPG(boolean)}. 
+	 * @param threads
+	 */
+	public void setThreads(int threads)
+	{
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns whether the h_FF heuristic of STRIPS problems is computed using an 
+	 * {@link ArrayRelaxedPlanningGraph} rather than a {@link javaff.planning.RelaxedPlanningGraph}.
+	 * @return
+	 */
+	public boolean isUseArrayRPG()
+	{
+		return useArrayRPG;
+	}
+
+	public void setUseArrayRPG(boolean useArrayRPG)
+	{
+		this.useArrayRPG = useArrayRPG;
+	}
+
+	/**
+	 * Returns whether the best-first search used when EHC fails defers heuristic evaluation of each state
+	 * until it is expanded.
+	 * @see LazyBestFirstSearch
+	 */
+	public boolean isUseLazyBFS()
+	{
+		return useLazyBFS;
+	}
+
+	public void setUseLazyBFS(boolean useLazyBFS)
+	{
+		this.useLazyBFS = useLazyBFS;
+	}
+
+	/**
+	 * Returns whether the best-first search used when EHC fails keeps a second open list of the states
+	 * reached by helpful actions. This takes precedence over {@link #isUseLazyBFS()}.
+	 * @see DualQueueBestFirstSearch
+	 */
+	public boolean isUsePreferredBFS()
+	{
+		return usePreferredBFS;
+	}
+
+	public void setUsePreferredBFS(boolean usePreferredBFS)
+	{
+		this.usePreferredBFS = usePreferredBFS;
+	}
+
+	/**
+	 * Returns whether best-first search on STRIPS problems finds the applicable actions of each state using
+	 * a {@link SuccessorGeneratorFilter} rather than by testing every action.
+	 * @return
+	 */
+	public boolean isUseSuccessorGenerator()
+	{
+		return useSuccessorGenerator;
+	}
+
+	public void setUseSuccessorGenerator(boolean useSuccessorGenerator)
+	{
+		this.useSuccessorGenerator = useSuccessorGenerator;
+	}
+
+	/**
+	 * Returns whether grounding only creates the actions which are reachable from the initial state in the
+	 * delete relaxation, rather than every action whose static preconditions hold.
+	 * @see UngroundProblem#setReachabilityGrounding(boolean)
+	 */
+	public boolean isUseReachabilityGrounding()
+	{
+		return useReachabilityGrounding;
+	}
+
+	public void setUseReachabilityGrounding(boolean useReachabilityGrounding)
+	{
+		this.useReachabilityGrounding = useReachabilityGrounding;
+	}
+
+	/**
+	 * Returns the maximum number of heuristic values which are cached during search of a STRIPS problem, or 0
+	 * if the heuristic cache is not used.
+	 * @see HeuristicCache
+	 */
+	public int getHeuristicCacheSize()
+	{
+		return heuristicCacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of heuristic values which are cached during search of a STRIPS problem. The 
+	 * cache is shared by EHC and best-first search, so states which either has already evaluated are not 
+	 * evaluated again.
+	 * @param heuristicCacheSize The number of values, or 0 to not use a cache.
+	 */
+	public void setHeuristicCacheSize(int heuristicCacheSize)
+	{
+		this.heuristicCacheSize = heuristicCacheSize;
+	}
+
+	/**
+	 * Returns the cache which the domain is parsed through, or null if it is parsed again for each problem.
+	 */
+	public DomainCache getDomainCache()
+	{
+		return domainCache;
+	}
+
+	/**
+	 * Sets the cache which the domain is parsed through. By default this is {@link DomainCache#getDefault()}.
+	 * @param domainCache The cache, or null to parse the domain again for each problem.
+	 */
+	public void setDomainCache(DomainCache domainCache)
+	{
+		this.domainCache = domainCache;
+	}
+
+	/**
+	 * Returns the metrics recorded by the last search, which are those of this planner's context.
+	 */
+	public PlannerMetrics getMetrics()
+	{
+		return this.context.getMetrics();
+	}
+
+	/**
+	 * Returns the file which metrics are written to after each search, or null if they are not.
+	 */
+	public File getMetricsFile()
+	{
+		return metricsFile;
+	}
+
+	/**
+	 * Sets a file to write the metrics of each search to as a JSON object. The file is overwritten by each search.
+	 * @param metricsFile The file, or null to not write metrics to a file.
+	 */
+	public void setMetricsFile(File metricsFile)
+	{
+		this.metricsFile = metricsFile;
+	}
 }
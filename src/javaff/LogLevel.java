@@ -0,0 +1,42 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+package javaff;
+
+/**
+ * How much output a planner writes, from least to most. Plans and errors are always written.
+ * @see PlannerContext#setLogLevel(LogLevel)
+ */
+public enum LogLevel
+{
+	/** Only the final plan, parsing messages and errors are written. Searches do not build any progress messages. */
+	Quiet,
+	/** Progress information is written, which is the default. */
+	Info,
+	/** Detailed information useful when debugging the planner is also written. */
+	Debug,
+}
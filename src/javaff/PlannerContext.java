@@ -0,0 +1,291 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Holds the per-run state of the planner -- the random number generator, the streams which output is written to
+ * and any run-time flags. Each {@link JavaFF} instance has its own context, which is passed down to the 
+ * searches it creates, so any number of planners can run concurrently in the same JVM without sharing
+ * state. A context should not itself be shared between planners which run at the same time, as the random 
+ * number generator will then be shared.
+ */
+public class PlannerContext
+{
+	/**
+	 * The seed of the random number generator used if none is specified.
+	 */
+	public static final long DefaultSeed = 1234;
+	
+	private static final PlannerContext DefaultContext = new PlannerContext();
+	
+	/**
+	 * A stream which discards everything written to it, returned in place of outputs which are disabled by the
+	 * log level.
+	 */
+	private static final PrintStream NullOutput = new PrintStream(new OutputStream()
+	{
+		@Override
+		public void write(int b)
+		{
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+		}
+	});
+	
+	private Random random;
+	private PrintStream planOutput;
+	private PrintStream parsingOutput;
+	private PrintStream infoOutput;
+	private PrintStream errorOutput;
+	private boolean deterministic;
+	private PlannerMetrics metrics;
+	private LogLevel logLevel;
+	
+	/**
+	 * Create a context which writes to System.out and System.err, and uses the default random seed.
+	 */
+	public PlannerContext()
+	{
+		this(DefaultSeed);
+	}
+	
+	/**
+	 * Create a context which writes to System.out and System.err, and uses the specified random seed.
+	 * @param seed
+	 */
+	public PlannerContext(long seed)
+	{
+		this(new Random(seed), System.out, System.out, System.out, System.err);
+	}
+	
+	/**
+	 * Create a context with the specified random number generator and outputs.
+	 * @param random 
+	 * @param planOutput The stream which final plans are written to.
+	 * @param parsingOutput The stream which parsing messages are written to.
+	 * @param infoOutput The stream which progress information is written to.
+	 * @param errorOutput The stream which errors are written to.
+	 */
+	public PlannerContext(Random random, PrintStream planOutput, PrintStream parsingOutput, 
+			PrintStream infoOutput, PrintStream errorOutput)
+	{
+		this.random = random;
+		this.planOutput = planOutput;
+		this.parsingOutput = parsingOutput;
+		this.infoOutput = infoOutput;
+		this.errorOutput = errorOutput;
+		this.deterministic = false;
+		this.metrics = new PlannerMetrics();
+		this.logLevel = LogLevel.Info;
+	}
+	
+	/**
+	 * Returns the context used by objects which have not been given one explicitly, such as the
+	 * singleton filters and selectors. This should only be used by code which runs a single planner at a time.
+	 * @return
+	 */
+	public static PlannerContext getDefault()
+	{
+		return DefaultContext;
+	}
+
+	public Random getRandom()
+	{
+		return random;
+	}
+
+	public void setRandom(Random random)
+	{
+		this.random = random;
+	}
+
+	public PrintStream getPlanOutput()
+	{
+		return planOutput;
+	}
+
+	public void setPlanOutput(PrintStream planOutput)
+	{
+		this.planOutput = planOutput;
+	}
+
+	public PrintStream getParsingOutput()
+	{
+		return parsingOutput;
+	}
+
+	public void setParsingOutput(PrintStream parsingOutput)
+	{
+		this.parsingOutput = parsingOutput;
+	}
+
+	/**
+	 * Returns the stream which progress information is written to, or a stream which discards it if
+	 * the log level is {@link LogLevel#Quiet}. Code which builds messages in a loop should check 
+	 * {@link #isInfoEnabled()} first, so that the messages are not built only to be discarded.
+	 * @return
+	 */
+	public PrintStream getInfoOutput()
+	{
+		if (this.isInfoEnabled() == false)
+			return NullOutput;
+		
+		return infoOutput;
+	}
+
+	public void setInfoOutput(PrintStream infoOutput)
+	{
+		this.infoOutput = infoOutput;
+	}
+
+	public PrintStream getErrorOutput()
+	{
+		return errorOutput;
+	}
+
+	public void setErrorOutput(PrintStream errorOutput)
+	{
+		this.errorOutput = errorOutput;
+	}
+
+	/**
+	 * Returns whether the planner should behave deterministically.
+	 * @return
+	 */
+	public boolean isDeterministic()
+	{
+		return deterministic;
+	}
+
+	public void setDeterministic(boolean deterministic)
+	{
+		this.deterministic = deterministic;
+	}
+
+	/**
+	 * Returns the metrics which searches, and the states they visit, record their progress in.
+	 * @return
+	 */
+	public PlannerMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics which searches record their progress in. This should be set before a search is started.
+	 * @param metrics The metrics, which cannot be null.
+	 */
+	public void setMetrics(PlannerMetrics metrics)
+	{
+		if (metrics == null)
+			throw new NullPointerException("Metrics cannot be null");
+		
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns how much output the planner writes.
+	 * @return
+	 */
+	public LogLevel getLogLevel()
+	{
+		return logLevel;
+	}
+
+	public void setLogLevel(LogLevel logLevel)
+	{
+		if (logLevel == null)
+			throw new NullPointerException("Log level cannot be null");
+		
+		this.logLevel = logLevel;
+	}
+	
+	/**
+	 * Returns whether progress information is written to the info output.
+	 * @return
+	 */
+	public boolean isInfoEnabled()
+	{
+		return this.logLevel.compareTo(LogLevel.Info) >= 0;
+	}
+	
+	/**
+	 * Returns whether debugging information is written to the info output.
+	 * @return
+	 */
+	public boolean isDebugEnabled()
+	{
+		return this.logLevel.compareTo(LogLevel.Debug) >= 0;
+	}
+	
+	/**
+	 * Replaces the plan, parsing and info outputs with streams which are written to on a background thread, 
+	 * so that writing progress information does not wait on the console. Outputs which shared a stream 
+	 * share a single background writer, so their messages remain in order. The error output is unchanged, 
+	 * and {@link #flush()} must be called before the planner exits or any pending output may be lost.
+	 */
+	public void useAsyncOutput()
+	{
+		Map<PrintStream, PrintStream> wrapped = new IdentityHashMap<PrintStream, PrintStream>();
+		this.planOutput = this.wrapAsync(this.planOutput, wrapped);
+		this.parsingOutput = this.wrapAsync(this.parsingOutput, wrapped);
+		this.infoOutput = this.wrapAsync(this.infoOutput, wrapped);
+	}
+	
+	private PrintStream wrapAsync(PrintStream out, Map<PrintStream, PrintStream> wrapped)
+	{
+		PrintStream async = wrapped.get(out);
+		if (async == null)
+		{
+			async = new PrintStream(new AsyncOutputStream(out), false);
+			wrapped.put(out, async);
+		}
+		return async;
+	}
+	
+	/**
+	 * Flushes every output, waiting for any output pending on a background thread to be written.
+	 */
+	public void flush()
+	{
+		this.planOutput.flush();
+		this.parsingOutput.flush();
+		this.infoOutput.flush();
+		this.errorOutput.flush();
+	}
+}
@@ -0,0 +1,413 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+package javaff;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A registry of named counters, timers and peak values which are updated as the planner runs. Each 
+ * {@link PlannerContext} has its own registry, which searches update directly and which is shared by every
+ * state reached from the initial state of a problem. The standard metrics are always registered and have their 
+ * own accessors, so that hot code can hold on to them rather than looking them up by name; other code can 
+ * register further metrics with {@link #getCounter(String)}, {@link #getTimer(String)} and 
+ * {@link #getPeak(String)}. Every metric is thread-safe.
+ * <p>
+ * The values of all metrics can be read with {@link #getValues()} or written as a JSON object with 
+ * {@link #toJSON()}. Timers are written as an object holding the number of intervals timed and their total 
+ * length in milliseconds.
+ */
+public class PlannerMetrics
+{
+	public static final String StatesGenerated = "states.generated";
+	public static final String StatesEvaluated = "states.evaluated";
+	public static final String StatesExpanded = "states.expanded";
+	public static final String DuplicatesPruned = "states.duplicates";
+	public static final String RPGLayers = "rpg.layers";
+	public static final String HeuristicCacheHits = "heuristicCache.hits";
+	public static final String RPGTime = "time.rpg";
+	public static final String ApplyTime = "time.apply";
+	public static final String FilterTime = "time.filter";
+	public static final String OpenPeak = "open.peak";
+	public static final String ClosedPeak = "closed.peak";
+	
+	/**
+	 * A count of events.
+	 */
+	public static class Counter
+	{
+		private final AtomicLong value = new AtomicLong();
+		
+		public void increment()
+		{
+			this.value.incrementAndGet();
+		}
+		
+		public void add(long delta)
+		{
+			this.value.addAndGet(delta);
+		}
+		
+		public long get()
+		{
+			return this.value.get();
+		}
+		
+		protected void reset()
+		{
+			this.value.set(0);
+		}
+	}
+	
+	/**
+	 * The number and total length of a series of timed intervals.
+	 */
+	public static class Timer
+	{
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong nanos = new AtomicLong();
+		
+		/**
+		 * Records an interval which started at the time specified and ends now.
+		 * @param startNanos The start of the interval, as returned by {@link System#nanoTime()}.
+		 */
+		public void stop(long startNanos)
+		{
+			this.record(System.nanoTime() - startNanos);
+		}
+		
+		public void record(long nanos)
+		{
+			this.count.incrementAndGet();
+			this.nanos.addAndGet(nanos);
+		}
+		
+		public long getCount()
+		{
+			return this.count.get();
+		}
+		
+		public long getNanos()
+		{
+			return this.nanos.get();
+		}
+		
+		protected void reset()
+		{
+			this.count.set(0);
+			this.nanos.set(0);
+		}
+	}
+	
+	/**
+	 * The largest of a series of values, such as the size of a list.
+	 */
+	public static class Peak
+	{
+		private final AtomicLong value = new AtomicLong();
+		
+		public void update(long value)
+		{
+			long peak = this.value.get();
+			while (value > peak && this.value.compareAndSet(peak, value) == false)
+				peak = this.value.get();
+		}
+		
+		public long get()
+		{
+			return this.value.get();
+		}
+		
+		protected void reset()
+		{
+			this.value.set(0);
+		}
+	}
+	
+	private final Map<String, Object> metrics;
+	
+	private final Counter statesGenerated, statesEvaluated, statesExpanded, duplicatesPruned, rpgLayers, 
+			heuristicCacheHits;
+	private final Timer rpgTime, applyTime, filterTime;
+	private final Peak openPeak, closedPeak;
+	
+	public PlannerMetrics()
+	{
+		this.metrics = new LinkedHashMap<String, Object>();
+		
+		this.statesGenerated = this.getCounter(PlannerMetrics.StatesGenerated);
+		this.statesEvaluated = this.getCounter(PlannerMetrics.StatesEvaluated);
+		this.statesExpanded = this.getCounter(PlannerMetrics.StatesExpanded);
+		this.duplicatesPruned = this.getCounter(PlannerMetrics.DuplicatesPruned);
+		this.rpgLayers = this.getCounter(PlannerMetrics.RPGLayers);
+		this.heuristicCacheHits = this.getCounter(PlannerMetrics.HeuristicCacheHits);
+		this.rpgTime = this.getTimer(PlannerMetrics.RPGTime);
+		this.applyTime = this.getTimer(PlannerMetrics.ApplyTime);
+		this.filterTime = this.getTimer(PlannerMetrics.FilterTime);
+		this.openPeak = this.getPeak(PlannerMetrics.OpenPeak);
+		this.closedPeak = this.getPeak(PlannerMetrics.ClosedPeak);
+	}
+	
+	/**
+	 * Returns the counter with the specified name, registering it if there is none.
+	 * @throws IllegalArgumentException Thrown if a metric of another kind has the same name.
+	 */
+	public Counter getCounter(String name)
+	{
+		return this.get(name, Counter.class);
+	}
+	
+	/**
+	 * Returns the timer with the specified name, registering it if there is none.
+	 * @throws IllegalArgumentException Thrown if a metric of another kind has the same name.
+	 */
+	public Timer getTimer(String name)
+	{
+		return this.get(name, Timer.class);
+	}
+	
+	/**
+	 * Returns the peak value with the specified name, registering it if there is none.
+	 * @throws IllegalArgumentException Thrown if a metric of another kind has the same name.
+	 */
+	public Peak getPeak(String name)
+	{
+		return this.get(name, Peak.class);
+	}
+	
+	private synchronized <T> T get(String name, Class<T> type)
+	{
+		Object metric = this.metrics.get(name);
+		if (metric == null)
+		{
+			try
+			{
+				metric = type.getDeclaredConstructor().newInstance();
+			}
+			catch (ReflectiveOperationException e)
+			{
+				throw new IllegalStateException(e);
+			}
+			this.metrics.put(name, metric);
+		}
+		else if (type.isInstance(metric) == false)
+		{
+			throw new IllegalArgumentException("Metric " + name + " is not a " + type.getSimpleName());
+		}
+		
+		return type.cast(metric);
+	}
+	
+	/**
+	 * Returns the number of states created by applying an action to another state.
+	 */
+	public Counter getStatesGenerated()
+	{
+		return statesGenerated;
+	}
+	
+	/**
+	 * Returns the number of heuristic values computed, whether by the RPG or from a cache.
+	 */
+	public Counter getStatesEvaluated()
+	{
+		return statesEvaluated;
+	}
+	
+	/**
+	 * Returns the number of states whose successors have been generated.
+	 */
+	public Counter getStatesExpanded()
+	{
+		return statesExpanded;
+	}
+	
+	/**
+	 * Returns the number of states discarded because they had already been visited.
+	 */
+	public Counter getDuplicatesPruned()
+	{
+		return duplicatesPruned;
+	}
+	
+	/**
+	 * Returns the total number of fact layers in every RPG built.
+	 */
+	public Counter getRPGLayers()
+	{
+		return rpgLayers;
+	}
+	
+	/**
+	 * Returns the number of heuristic values found in a {@link javaff.planning.HeuristicCache}.
+	 */
+	public Counter getHeuristicCacheHits()
+	{
+		return heuristicCacheHits;
+	}
+	
+	/**
+	 * Returns the time spent building RPGs and extracting relaxed plans from them.
+	 */
+	public Timer getRPGTime()
+	{
+		return rpgTime;
+	}
+	
+	/**
+	 * Returns the time spent applying actions to states.
+	 */
+	public Timer getApplyTime()
+	{
+		return applyTime;
+	}
+	
+	/**
+	 * Returns the time spent finding the actions to apply to states.
+	 */
+	public Timer getFilterTime()
+	{
+		return filterTime;
+	}
+	
+	/**
+	 * Returns the largest number of states on the open list (or lists) of a search.
+	 */
+	public Peak getOpenPeak()
+	{
+		return openPeak;
+	}
+	
+	/**
+	 * Returns the largest number of states on the closed list of a search.
+	 */
+	public Peak getClosedPeak()
+	{
+		return closedPeak;
+	}
+	
+	/**
+	 * Sets every metric back to zero. Metrics remain registered.
+	 */
+	public synchronized void reset()
+	{
+		for (Object metric : this.metrics.values())
+		{
+			if (metric instanceof Counter)
+				((Counter) metric).reset();
+			else if (metric instanceof Timer)
+				((Timer) metric).reset();
+			else
+				((Peak) metric).reset();
+		}
+	}
+	
+	/**
+	 * Returns the current value of every metric, in the order they were registered. Timers are represented by 
+	 * their total length in nanoseconds, and have an additional entry with ".count" appended to their name for 
+	 * the number of intervals timed.
+	 */
+	public synchronized Map<String, Long> getValues()
+	{
+		Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Object> e : this.metrics.entrySet())
+		{
+			Object metric = e.getValue();
+			if (metric instanceof Counter)
+			{
+				values.put(e.getKey(), ((Counter) metric).get());
+			}
+			else if (metric instanceof Timer)
+			{
+				values.put(e.getKey(), ((Timer) metric).getNanos());
+				values.put(e.getKey() + ".count", ((Timer) metric).getCount());
+			}
+			else
+			{
+				values.put(e.getKey(), ((Peak) metric).get());
+			}
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Returns every metric as a single-line JSON object.
+	 */
+	public String toJSON()
+	{
+		Map<String, Object> metrics;
+		synchronized (this)
+		{
+			metrics = new LinkedHashMap<String, Object>(this.metrics);
+		}
+		
+		StringBuilder json = new StringBuilder("{");
+		for (Map.Entry<String, Object> e : metrics.entrySet())
+		{
+			if (json.length() > 1)
+				json.append(',');
+			json.append('"').append(e.getKey().replace("\\", "\\\\").replace("\"", "\\\"")).append("\":");
+			
+			Object metric = e.getValue();
+			if (metric instanceof Counter)
+				json.append(((Counter) metric).get());
+			else if (metric instanceof Timer)
+				json.append(String.format(Locale.ROOT, "{\"count\":%d,\"millis\":%.3f}", 
+						((Timer) metric).getCount(), ((Timer) metric).getNanos() / 1000000d));
+			else
+				json.append(((Peak) metric).get());
+		}
+		json.append('}');
+		
+		return json.toString();
+	}
+	
+	/**
+	 * Writes every metric to a file as a JSON object.
+	 * @param file
+	 * @throws FileNotFoundException Thrown if the file cannot be written to.
+	 */
+	public void writeJSON(File file) throws FileNotFoundException
+	{
+		PrintStream out = new PrintStream(file);
+		out.println(this.toJSON());
+		out.close();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.toJSON();
+	}
+}
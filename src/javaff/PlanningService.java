@@ -0,0 +1,557 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+package javaff;
+
+import javaff.data.GroundProblem;
+import javaff.data.Plan;
+import javaff.parser.DomainCache;
+import javaff.parser.ParseException;
+import javaff.search.UnreachableGoalException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-lived planner which accepts requests as lines of text, so that JVM start-up and JIT warm-up are paid 
+ * once rather than for every problem. Requests are planned on a bounded pool of worker threads, and each 
+ * parsed domain is kept in the service's own {@link DomainCache}, so only the problem file of a request is 
+ * parsed when its domain has been seen before.
+ * <p>
+ * Requests are read from standard input, or from connections to a local port if one is given. Each request is 
+ * a single line:
+ * <ul>
+ * <li><code>plan &lt;domain&gt; &lt;problem&gt; [options]</code> -- plans on a problem, where the options are 
+ * those accepted by {@link JavaFF#main(String[])}. Paths cannot contain whitespace. The reply is 
+ * <code>accepted &lt;id&gt;</code>, or <code>rejected &lt;id&gt; &lt;reason&gt;</code> if the queue is full. 
+ * Once the problem has been planned on, one of the following blocks is written, in whichever order requests 
+ * finish:
+ * <ul>
+ * <li><code>solved &lt;id&gt; length=&lt;n&gt; &lt;timings&gt;</code>, then the plan, one action per line</li>
+ * <li><code>unsolved &lt;id&gt; &lt;timings&gt;</code></li>
+ * <li><code>error &lt;id&gt; &lt;message&gt;</code></li>
+ * </ul>
+ * Each block ends with a line containing only ".". The timings are <code>cached</code>, whether the domain was 
+ * already parsed, and <code>queued</code>, <code>preprocess</code>, <code>search</code> and 
+ * <code>total</code>, in milliseconds.</li>
+ * <li><code>stats</code> -- replies with a single line of counters for the whole service.</li>
+ * <li><code>quit</code> -- stops reading requests from the input or connection, which is closed once all of its 
+ * accepted requests have been answered.</li>
+ * </ul>
+ */
+public class PlanningService
+{
+	private static final String Usage = "PlanningService Usage: java javaff.PlanningService [--port <port>] "
+			+ "[--workers <threads>] [--queue <requests>] [--cache <domains>]";
+	
+	private static final double Millis = 1000000d;
+	
+	/**
+	 * The outcome of a single request.
+	 */
+	public static class Result
+	{
+		private final Plan plan;
+		private final String error;
+		private final boolean cached;
+		private final long queuedNanos, preprocessNanos, searchNanos;
+		
+		protected Result(Plan plan, String error, boolean cached, long queuedNanos, long preprocessNanos, 
+				long searchNanos)
+		{
+			this.plan = plan;
+			this.error = error;
+			this.cached = cached;
+			this.queuedNanos = queuedNanos;
+			this.preprocessNanos = preprocessNanos;
+			this.searchNanos = searchNanos;
+		}
+		
+		/**
+		 * Returns the plan found, or null if none was.
+		 */
+		public Plan getPlan()
+		{
+			return plan;
+		}
+		
+		/**
+		 * Returns a description of the error which stopped planning, or null if there was none.
+		 */
+		public String getError()
+		{
+			return error;
+		}
+		
+		/**
+		 * Returns whether the domain was found in the cache, rather than parsed.
+		 */
+		public boolean isCached()
+		{
+			return cached;
+		}
+		
+		public long getQueuedNanos()
+		{
+			return queuedNanos;
+		}
+		
+		public long getPreprocessNanos()
+		{
+			return preprocessNanos;
+		}
+		
+		public long getSearchNanos()
+		{
+			return searchNanos;
+		}
+		
+		/**
+		 * Returns the time from the request being accepted to it being answered.
+		 */
+		public long getTotalNanos()
+		{
+			return queuedNanos + preprocessNanos + searchNanos;
+		}
+		
+		/**
+		 * Returns the timings in the form used by the line protocol.
+		 */
+		public String getTimings()
+		{
+			return String.format(Locale.ROOT, "cached=%b queued=%.3f preprocess=%.3f search=%.3f total=%.3f", 
+					this.cached, this.queuedNanos / Millis, this.preprocessNanos / Millis, 
+					this.searchNanos / Millis, this.getTotalNanos() / Millis);
+		}
+	}
+	
+	private final ThreadPoolExecutor workers;
+	private final DomainCache domains;
+	
+	private final AtomicLong nextId, completed, failed, rejected;
+	
+	/**
+	 * Create a service.
+	 * @param workers The number of requests which are planned on at once.
+	 * @param queueSize The number of requests which can wait for a worker before further requests are rejected.
+	 * @param cacheSize The number of parsed domains kept in memory, or 0 to parse the domain of every request.
+	 */
+	public PlanningService(int workers, int queueSize, int cacheSize)
+	{
+		this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, 
+				new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)));
+		this.domains = new DomainCache(cacheSize);
+		
+		this.nextId = new AtomicLong();
+		this.completed = new AtomicLong();
+		this.failed = new AtomicLong();
+		this.rejected = new AtomicLong();
+	}
+	
+	/**
+	 * Queues a problem to be planned on.
+	 * @param domain The domain file.
+	 * @param problem The problem file.
+	 * @param options Options for the planner, as accepted by {@link JavaFF#main(String[])}.
+	 * @return The result of planning.
+	 * @throws RejectedExecutionException Thrown if the queue is full or the service has been shut down.
+	 */
+	public Future<Result> submit(File domain, File problem, String[] options)
+	{
+		FutureTask<Result> task = new FutureTask<Result>(this.newRequest(domain, problem, options));
+		this.workers.execute(task);
+		return task;
+	}
+	
+	protected Callable<Result> newRequest(final File domain, final File problem, final String[] options)
+	{
+		final long accepted = System.nanoTime();
+		return new Callable<Result>()
+		{
+			@Override
+			public Result call()
+			{
+				return PlanningService.this.plan(domain, problem, options, accepted);
+			}
+		};
+	}
+	
+	protected Result plan(File domain, File problem, String[] options, long accepted)
+	{
+		long start = System.nanoTime();
+		long preprocessed = start;
+		
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		PrintStream discard = new PrintStream(new OutputStream()
+		{
+			@Override
+			public void write(int b)
+			{
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len)
+			{
+			}
+		});
+		PlannerContext context = new PlannerContext(new Random(PlannerContext.DefaultSeed), discard, discard, 
+				discard, new PrintStream(errors, true));
+		//progress is discarded, so the search should not spend any time building it
+		context.setLogLevel(LogLevel.Quiet);
+		
+		JavaFF planner = new JavaFF(domain, null, context);
+		planner.setDomainCache(this.domains);
+		Plan plan = null;
+		String error = null;
+		boolean cached = false;
+		try
+		{
+			planner.setOptions(options, 0);
+			
+			cached = this.domains.contains(domain);
+			GroundProblem ground = planner.parseAndGround(problem);
+			if (ground == null)
+				throw new ParseException("Could not parse " + domain + " and " + problem);
+			
+			planner.preprocess(ground);
+			preprocessed = System.nanoTime();
+			
+			plan = planner.doPreprocessedPlan(ground);
+		}
+		catch (UnreachableGoalException e)
+		{
+			error = "Goal " + e.getUnreachables() + " is unreachable";
+		}
+		catch (ParseException e)
+		{
+			error = e.getMessage();
+		}
+		catch (RuntimeException e)
+		{
+			error = e.toString();
+		}
+		catch (OutOfMemoryError e)
+		{
+			error = e.toString();
+		}
+		long end = System.nanoTime();
+		if (preprocessed == start)
+			preprocessed = end;
+		
+		if (error == null && plan == null && errors.size() > 0)
+			error = errors.toString().trim();
+		
+		if (error != null)
+			this.failed.incrementAndGet();
+		else
+			this.completed.incrementAndGet();
+		
+		return new Result(plan, error, cached, start - accepted, preprocessed - start, end - preprocessed);
+	}
+	
+	/**
+	 * Returns the counters of this service in the form used by the line protocol.
+	 */
+	public String getStats()
+	{
+		return "requests=" + this.nextId.get() + " completed=" + this.completed.get() + " failed=" 
+				+ this.failed.get() + " rejected=" + this.rejected.get() + " active=" 
+				+ this.workers.getActiveCount() + " queued=" + this.workers.getQueue().size() 
+				+ " cachedDomains=" + this.domains.size() + " cacheHits=" + this.domains.getHits();
+	}
+	
+	/**
+	 * Reads requests until the input ends or "quit" is read, then waits for every accepted request to be 
+	 * answered.
+	 * @param in The requests.
+	 * @param out The stream which replies are written to. Each reply is written atomically.
+	 * @throws IOException Thrown if the input cannot be read.
+	 */
+	public void serve(BufferedReader in, final PrintStream out) throws IOException
+	{
+		//the number of accepted requests which have not been answered yet
+		final int[] outstanding = new int[1];
+		String line;
+		while ((line = in.readLine()) != null)
+		{
+			String[] words = line.trim().split("\\s+");
+			if (words[0].length() == 0)
+				continue;
+			
+			if (words[0].equals("quit"))
+			{
+				break;
+			}
+			else if (words[0].equals("stats"))
+			{
+				this.reply(out, "stats " + this.getStats() + "\n");
+			}
+			else if (words[0].equals("plan") && words.length >= 3)
+			{
+				final long id = this.nextId.incrementAndGet();
+				
+				//the reply is written by the worker as soon as the request is done, so the reader is never blocked
+				FutureTask<Result> task = new FutureTask<Result>(this.newRequest(new File(words[1]), 
+						new File(words[2]), Arrays.copyOfRange(words, 3, words.length)))
+				{
+					@Override
+					protected void done()
+					{
+						PlanningService.this.reply(out, PlanningService.this.format(id, this));
+						synchronized (outstanding)
+						{
+							--outstanding[0];
+							outstanding.notifyAll();
+						}
+					}
+				};
+				
+				synchronized (outstanding)
+				{
+					++outstanding[0];
+				}
+				//holding the output means the request cannot be answered before it is acknowledged
+				synchronized (out)
+				{
+					try
+					{
+						this.workers.execute(task);
+						this.reply(out, "accepted " + id + "\n");
+					}
+					catch (RejectedExecutionException e)
+					{
+						synchronized (outstanding)
+						{
+							--outstanding[0];
+						}
+						this.rejected.incrementAndGet();
+						this.reply(out, "rejected " + id + " queue full\n");
+					}
+				}
+			}
+			else
+			{
+				this.reply(out, "error 0 unknown request: " + line + "\n.\n");
+			}
+		}
+		
+		synchronized (outstanding)
+		{
+			try
+			{
+				while (outstanding[0] > 0)
+					outstanding.wait();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	protected String format(long id, Future<Result> future)
+	{
+		Result result;
+		try
+		{
+			result = future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return "error " + id + " interrupted\n.\n";
+		}
+		catch (ExecutionException e)
+		{
+			return "error " + id + " " + e.getCause() + "\n.\n";
+		}
+		
+		StringWriter reply = new StringWriter();
+		PrintWriter writer = new PrintWriter(reply);
+		if (result.getError() != null)
+		{
+			writer.print("error " + id + " " + result.getError().replace('\n', ' ') + "\n");
+		}
+		else if (result.getPlan() == null)
+		{
+			writer.print("unsolved " + id + " " + result.getTimings() + "\n");
+		}
+		else
+		{
+			writer.print("solved " + id + " length=" + result.getPlan().getPlanLength() + " " 
+					+ result.getTimings() + "\n");
+			result.getPlan().print(writer);
+		}
+		writer.print(".\n");
+		writer.flush();
+		
+		return reply.toString();
+	}
+	
+	protected void reply(PrintStream out, String reply)
+	{
+		synchronized (out)
+		{
+			out.print(reply);
+			out.flush();
+		}
+	}
+	
+	/**
+	 * Accepts connections on a port of the loopback interface, serving each on its own thread, until the 
+	 * service is shut down.
+	 * @param port
+	 * @throws IOException Thrown if the port cannot be listened on.
+	 */
+	public void listen(int port) throws IOException
+	{
+		ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		try
+		{
+			while (this.workers.isShutdown() == false)
+			{
+				final Socket socket = server.accept();
+				Thread connection = new Thread(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						try
+						{
+							PlanningService.this.serve(new BufferedReader(new InputStreamReader(
+									socket.getInputStream(), "UTF-8")), 
+									new PrintStream(socket.getOutputStream(), false, "UTF-8"));
+						}
+						catch (IOException e)
+						{
+						}
+						finally
+						{
+							try
+							{
+								socket.close();
+							}
+							catch (IOException e)
+							{
+							}
+						}
+					}
+				}, "PlanningService-" + socket.getPort());
+				connection.setDaemon(true);
+				connection.start();
+			}
+		}
+		finally
+		{
+			server.close();
+		}
+	}
+	
+	/**
+	 * Stops accepting requests. Requests which have already been accepted are still planned on.
+	 */
+	public void shutdown()
+	{
+		this.workers.shutdown();
+	}
+	
+	public static void main(String[] args)
+	{
+		int port = -1;
+		int workers = Runtime.getRuntime().availableProcessors();
+		int queue = 64;
+		int cache = 16;
+		try
+		{
+			for (int i = 0; i < args.length; i++)
+			{
+				if (args[i].equals("--port"))
+					port = Integer.parseInt(args[++i]);
+				else if (args[i].equals("--workers"))
+					workers = Integer.parseInt(args[++i]);
+				else if (args[i].equals("--queue"))
+					queue = Integer.parseInt(args[++i]);
+				else if (args[i].equals("--cache"))
+					cache = Integer.parseInt(args[++i]);
+				else
+					throw new IllegalArgumentException(args[i]);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			System.out.println(PlanningService.Usage);
+			System.exit(1);
+		}
+		
+		PlanningService service = new PlanningService(workers, queue, cache);
+		try
+		{
+			if (port >= 0)
+			{
+				System.err.println("Listening on port " + port);
+				service.listen(port);
+			}
+			else
+			{
+				//some parts of the planner still write to System.out, which would corrupt the replies
+				PrintStream replies = System.out;
+				System.setOut(System.err);
+				service.serve(new BufferedReader(new InputStreamReader(System.in, "UTF-8")), replies);
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println(e.getMessage());
+		}
+		finally
+		{
+			service.shutdown();
+		}
+	}
+}
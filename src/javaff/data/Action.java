@@ -46,12 +46,20 @@ public abstract class Action implements Comparable<Action>
 	private List<Parameter> parameters; // List of PDDLObjects
 
 	private BigDecimal cost;
+	/** The cost as a primitive, which is kept in step with the BigDecimal cost. */
+	private long costValue;
+	
+	/** The signature returned by {@link #toString()}, built on first use and cleared when the name or parameters are set. */
+	private String signature;
+	/** The ordinal assigned by {@link #setOrdinal(long)}, or -1 if this action has none. */
+	private long ordinal = -1;
 	
 	public Action()
 	{
 		this.name = new OperatorName("");
 		this.parameters = new ArrayList<Parameter>(); // List of PDDLObjects
 		this.cost = BigDecimal.ONE;
+		this.costValue = 1;
 		
 //		this.stringRepresentation = updateStringRepresentation();
 	}
@@ -61,33 +69,80 @@ public abstract class Action implements Comparable<Action>
 		this.name = new OperatorName(name);
 		this.parameters = new ArrayList<Parameter>(); // List of PDDLObjects
 		this.cost = BigDecimal.ONE;
+		this.costValue = 1;
 		
 //		this.stringRepresentation = updateStringRepresentation();
 	}
 	/**
 	 * Basic comparator return value is determined by the natural alphabetical ordering of 
-	 * this action's signature.
-	 * @return -1 if this action is alphabetically before the other, 0 if they are the same, and +1 if it is after the other.
+	 * this action's signature. If both actions have been given ordinals by the same call to 
+	 * {@link javaff.data.GroundProblem#assignActionOrdinals()} these are compared instead, which gives the same order.
+	 * @return A negative value if this action is alphabetically before the other, 0 if they are the same, and a positive 
+	 * value if it is after the other.
 	 * @see #toString()
 	 */
 	@Override	public int compareTo(Action o)
 	{
+		return this.compareSignature(o);
+	}
+	
+	/**
+	 * Compares the signatures of this action and another, using their ordinals if both have been assigned 
+	 * by the same call to {@link javaff.data.GroundProblem#assignActionOrdinals()}.
+	 * @param o
+	 * @return
+	 */
+	protected int compareSignature(Action o)
+	{
+		long a = this.getOrdinal();
+		long b = o.getOrdinal();
+		if (a >= 0 && b >= 0 && (a >>> 32) == (b >>> 32))
+			return Long.compare(a, b);
+		
 		return this.toString().compareTo(o.toString());
 	}
 
 	public String toString()
 	{
-//		return this.stringRepresentation;
-//		return this.updateStringRepresentation();
-		String stringrep = this.getName().toString();
-		Iterator<Parameter> i = this.getParameters().iterator();
-		while (i.hasNext())
+		String stringrep = this.signature;
+		if (stringrep == null)
 		{
-			stringrep = stringrep + " " + i.next();
+			StringBuilder buf = new StringBuilder(this.getName().toString());
+			Iterator<Parameter> i = this.getParameters().iterator();
+			while (i.hasNext())
+			{
+				buf.append(' ');
+				buf.append(i.next());
+			}
+			
+			stringrep = buf.toString();
+			this.signature = stringrep;
 		}
 		
 		return stringrep;
 	}
+	
+	/**
+	 * Gets the ordinal of this action. The upper 32 bits identify the call to 
+	 * {@link javaff.data.GroundProblem#assignActionOrdinals()} which assigned it and the lower 32 bits are the rank 
+	 * of this action's signature amongst the actions of that problem.
+	 * @return The ordinal, or -1 if none has been assigned.
+	 */
+	public long getOrdinal()
+	{
+		return ordinal;
+	}
+	
+	/**
+	 * Sets the ordinal of this action. Ordinals are only compared when their upper 32 bits match, so they must order 
+	 * actions in the same way as their signatures do.
+	 * @param ordinal The ordinal, or -1 to remove it.
+	 * @see #getOrdinal()
+	 */
+	public void setOrdinal(long ordinal)
+	{
+		this.ordinal = ordinal;
+	}
 
 	public abstract boolean isApplicable(State s);
 
@@ -173,6 +228,8 @@ public abstract class Action implements Comparable<Action>
 	public void setParameters(List<Parameter> parameters)
 	{
 		this.parameters = parameters;
+		this.signature = null;
+		this.ordinal = -1;
 	}
 
 	public OperatorName getName()
@@ -183,15 +240,29 @@ public abstract class Action implements Comparable<Action>
 	public void setName(OperatorName name)
 	{
 		this.name = name;
+		this.signature = null;
+		this.ordinal = -1;
 	}
 
 	public BigDecimal getCost()
 	{
 		return cost;
 	}
+	
+	/**
+	 * Returns the cost of this action as a primitive, rounded towards zero. Costs in STRIPS and action-cost 
+	 * domains are integers, so this is exact for them, and unlike {@link #getCost()} it can be summed 
+	 * without allocating.
+	 * @return
+	 */
+	public long getCostLong()
+	{
+		return costValue;
+	}
 
 	public void setCost(BigDecimal cost)
 	{
 		this.cost = cost;
+		this.costValue = cost.longValue();
 	}
 }
@@ -28,6 +28,8 @@
 package javaff.data;
 
 import javaff.parser.SolutionParser;
+import javaff.planning.BitSetSTRIPSState;
+import javaff.planning.FactIndex;
 import javaff.planning.STRIPSState;
 import javaff.planning.MetricState;
 import javaff.planning.State;
@@ -51,6 +53,7 @@ import javaff.data.metric.NamedFunction;
 import javaff.data.metric.ResourceOperator;
 import javaff.data.strips.And;
 import javaff.data.strips.Equals;
+import javaff.data.strips.FactTable;
 import javaff.data.strips.InstantAction;
 import javaff.data.strips.Not;
 import javaff.data.strips.NullFact;
@@ -61,7 +64,9 @@ import javaff.data.strips.SingleLiteral;
 import javaff.data.strips.TrueCondition;
 import javaff.data.temporal.DurativeAction;
 
+import java.io.PrintStream;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -71,6 +76,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class GroundProblem implements Cloneable
 {
@@ -104,6 +110,9 @@ public class GroundProblem implements Cloneable
 	private Set<Parameter> objects;
 	private DomainRequirements requirements;
 	
+	/** Identifies each call to {@link #assignActionOrdinals()}. */
+	private static final AtomicLong OrdinalGeneration = new AtomicLong();
+	
 	protected GroundProblem()
 	{
 		actions = new HashSet<Action>();
@@ -330,7 +339,7 @@ public class GroundProblem implements Cloneable
 			Collection<Fact> needsNotted = GroundProblem.decompileFact(((Not)f).getLiteral(), staticFacts);
 			for (Fact nn : needsNotted)
 			{
-				Not wrapped = new Not(nn);
+				Not wrapped = FactTable.getInstance().negate(nn);
 				decompiled.add(wrapped);
 			}
 		}
@@ -372,6 +381,22 @@ public class GroundProblem implements Cloneable
 		return (STRIPSState) this.getState();
 	}
 
+	/**
+	 * Constructs a new {@link BitSetSTRIPSState} as the initial state of this problem, which will also be
+	 * returned by subsequent calls to {@link #getState()}. Every fact in the problem is assigned a dense
+	 * integer ID by a new {@link FactIndex}, so this should be called after {@link #filterReachableFacts()}.
+	 * @return
+	 */
+	public STRIPSState recomputeBitSetSTRIPSInitialState()
+	{
+		FactIndex index = new FactIndex(this);
+		STRIPSState s = new BitSetSTRIPSState(index, getActions(), getInitial(), getGoal());
+		s.setRPG(new RelaxedPlanningGraph(this));
+		this.setState(s);
+		
+		return (STRIPSState) this.getState();
+	}
+
 	public MetricState recomputeMetricInitialState()
 	{
 		MetricState ms = new MetricState(getActions(), getInitial(), getGoal(),
@@ -475,6 +500,18 @@ public class GroundProblem implements Cloneable
 	 * @see #getGoal()
 	 */
 	public void filterReachableFacts(boolean ignoreUnreachableGoal) throws UnreachableGoalException
+	{
+		this.filterReachableFacts(ignoreUnreachableGoal, System.out);
+	}
+	
+	/**
+	 * Performs reachability analysis as {@link #filterReachableFacts(boolean)}, writing the number of facts and 
+	 * actions which remain to the specified stream.
+	 * @param ignoreUnreachableGoal Whether unreachable goals should be ignored.
+	 * @param out The stream to write the result of the analysis to.
+	 * @throws UnreachableGoalException Thrown only if parameter flag is false
+	 */
+	public void filterReachableFacts(boolean ignoreUnreachableGoal, PrintStream out) throws UnreachableGoalException
 	{
 		STRIPSState init = this.getSTRIPSInitialState();
 
@@ -506,9 +543,9 @@ public class GroundProblem implements Cloneable
 		int oldActionCount = this.getActions().size();
 		this.getActions().retainAll(actionsUsed);
 
-		System.out.println("Found " + this.getReachableFacts().size()
+		out.println("Found " + this.getReachableFacts().size()
 				+ " reachable facts from " + oldFactCount + " original facts.");
-		System.out.println("Found " + this.getActions().size()
+		out.println("Found " + this.getActions().size()
 				+ " applicable actions from " + oldActionCount
 				+ " original actions");
 		
@@ -704,6 +741,35 @@ public class GroundProblem implements Cloneable
 	{
 		this.actions = actions;
 	}
+	
+	/**
+	 * Gives each action in this problem an ordinal which is the rank of its signature amongst all the actions, 
+	 * so that {@link Action#compareTo(Action)} can compare two ints rather than two strings. Actions with the same 
+	 * signature are given the same ordinal. This should be called once the set of actions is final, i.e. after 
+	 * ADL decompilation and reachability analysis. Calling it again invalidates the ordinals of any previous call, 
+	 * and actions which do not share a call will still be compared by their signatures.
+	 */
+	public void assignActionOrdinals()
+	{
+		long generation = GroundProblem.OrdinalGeneration.incrementAndGet() & 0x7FFFFFFFL;
+		
+		Action[] sorted = this.actions.toArray(new Action[this.actions.size()]);
+		for (Action a : sorted)
+			a.setOrdinal(-1); //make sure the sort compares signatures
+		Arrays.sort(sorted);
+		
+		long rank = -1;
+		String previous = null;
+		for (Action a : sorted)
+		{
+			String signature = a.toString();
+			if (signature.equals(previous) == false)
+				++rank;
+			
+			a.setOrdinal((generation << 32) | rank);
+			previous = signature;
+		}
+	}
 
 	public Map<NamedFunction, BigDecimal> getFunctionValues()
 	{
@@ -60,6 +60,12 @@ public class NullInstantAction extends STRIPSInstantAction
 		return BigDecimal.ZERO;
 	}
 	
+	@Override
+	public long getCostLong()
+	{
+		return 0;
+	}
+	
 	@Override
 	public void apply(State s)
 	{
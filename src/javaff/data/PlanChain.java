@@ -0,0 +1,145 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.data;
+
+/**
+ * An immutable, singly-linked sequence of actions, where each link points back to the link for the previous
+ * action. Extending a chain never copies it, so any number of chains can share a common prefix. This
+ * makes it a cheap way for search states to record the actions which led to them -- a
+ * {@link TotalOrderPlan} only needs to be built once a goal state is found.
+ * 
+ * @see #toTotalOrderPlan(TotalOrderPlan)
+ */
+public final class PlanChain
+{
+	private final PlanChain parent;
+	private final Action action;
+	private final int length;
+	private final long cost;
+	
+	/**
+	 * Create a new chain which appends the specified action to the parent chain.
+	 * @param parent The chain of actions preceding the action. May be null if this is the first action.
+	 * @param action The action to append.
+	 */
+	public PlanChain(PlanChain parent, Action action)
+	{
+		this.parent = parent;
+		this.action = action;
+		this.length = parent == null ? 1 : parent.length + 1;
+		this.cost = (parent == null ? 0 : parent.cost) + action.getCostLong();
+	}
+	
+	/**
+	 * Returns a new chain which ends with the specified action, and whose prefix is this chain.
+	 * @param a
+	 * @return
+	 */
+	public PlanChain append(Action a)
+	{
+		return new PlanChain(this, a);
+	}
+
+	/**
+	 * Returns the chain of actions preceding the last action, or null if there are none.
+	 * @return
+	 */
+	public PlanChain getParent()
+	{
+		return parent;
+	}
+
+	/**
+	 * Returns the last action in the chain.
+	 * @return
+	 */
+	public Action getAction()
+	{
+		return action;
+	}
+
+	/**
+	 * Returns the number of actions in the chain.
+	 * @return
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+	
+	/**
+	 * Returns the sum of the costs of the actions in the chain.
+	 * @see Action#getCostLong()
+	 * @return
+	 */
+	public long getCost()
+	{
+		return cost;
+	}
+	
+	/**
+	 * Constructs a new totally-ordered plan, made up of the actions in the prefix plan followed
+	 * by those in this chain. Neither the prefix nor its actions are cloned or modified.
+	 * @param prefix The plan which precedes this chain. May be null, in which case the resulting plan has no goal.
+	 * @return A new plan containing the actions of the prefix and this chain, in order.
+	 */
+	public TotalOrderPlan toTotalOrderPlan(TotalOrderPlan prefix)
+	{
+		Action[] actions = new Action[this.length];
+		PlanChain curr = this;
+		for (int i = this.length - 1; i >= 0; i--)
+		{
+			actions[i] = curr.action;
+			curr = curr.parent;
+		}
+		
+		TotalOrderPlan plan;
+		if (prefix == null)
+		{
+			plan = new TotalOrderPlan(null);
+		}
+		else
+		{
+			plan = new TotalOrderPlan(prefix.getGoal());
+			for (Action a : prefix)
+				plan.addAction(a);
+		}
+		
+		for (Action a : actions)
+			plan.addAction(a);
+		
+		return plan;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.toTotalOrderPlan(null).toString();
+	}
+}
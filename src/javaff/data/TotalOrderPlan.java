@@ -101,6 +101,19 @@ public class TotalOrderPlan implements Plan, Cloneable, Iterable<Action>
 		
 		return cost;
 	}
+	
+	/**
+	 * Returns the sum of all action-costs in this plan as a primitive.
+	 * @see Action#getCostLong()
+	 */
+	public long getCostLong()
+	{
+		long cost = 0;
+		for (Action a : this)
+			cost += a.getCostLong();
+		
+		return cost;
+	}
 
 	public boolean addAction(Action a)
 	{
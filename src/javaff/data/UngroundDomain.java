@@ -0,0 +1,193 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+package javaff.data;
+
+import javaff.data.adl.Quantifier;
+import javaff.data.metric.FunctionSymbol;
+import javaff.data.strips.Constant;
+import javaff.data.strips.Not;
+import javaff.data.strips.Operator;
+import javaff.data.strips.PDDLObject;
+import javaff.data.strips.PredicateSymbol;
+import javaff.data.strips.UngroundInstantAction;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts of an {@link UngroundProblem} which are defined by a domain file -- its types, constants, predicate 
+ * and function symbols and operators. A domain is never modified once it has been created, so a single instance 
+ * can be shared by every problem of the domain, and problems parsed concurrently. Each problem is parsed into 
+ * a copy of the domain's collections returned by {@link #newProblem()}, while the elements of those collections 
+ * are shared.
+ */
+public class UngroundDomain
+{
+	private final String name;
+	private final DomainRequirements requirements;
+	private final Set<Type> types;
+	private final Map<String, Type> typeMap;
+	private final TypeGraph typeGraph;
+	private final Set<PredicateSymbol> predSymbols;
+	private final Map<String, PredicateSymbol> predSymbolMap;
+	private final Set<Constant> constants;
+	private final Map<String, Constant> constantMap;
+	private final Set<FunctionSymbol> funcSymbols;
+	private final Map<String, FunctionSymbol> funcSymbolMap;
+	private final Set<Operator> actions;
+	private final boolean quantified;
+	
+	/**
+	 * Create a domain from a problem into which only a domain file has been parsed.
+	 * @param parsed
+	 */
+	public UngroundDomain(UngroundProblem parsed)
+	{
+		this.name = parsed.DomainName;
+		this.requirements = (DomainRequirements) parsed.requirements.clone();
+		this.types = new HashSet<Type>(parsed.types);
+		this.typeMap = new Hashtable<String, Type>(parsed.typeMap);
+		this.typeGraph = (TypeGraph) parsed.typeGraph.clone();
+		this.predSymbols = new HashSet<PredicateSymbol>(parsed.predSymbols);
+		this.predSymbolMap = new Hashtable<String, PredicateSymbol>(parsed.predSymbolMap);
+		this.constants = new HashSet<Constant>(parsed.constants);
+		this.constantMap = new Hashtable<String, Constant>(parsed.constantMap);
+		this.funcSymbols = new HashSet<FunctionSymbol>(parsed.funcSymbols);
+		this.funcSymbolMap = new Hashtable<String, FunctionSymbol>(parsed.funcSymbolMap);
+		this.actions = new HashSet<Operator>(parsed.actions);
+		
+		boolean quantified = false;
+		for (Operator o : this.actions)
+		{
+			if (o instanceof UngroundInstantAction)
+			{
+				UngroundInstantAction a = (UngroundInstantAction) o;
+				for (Fact pc : a.condition.getFacts())
+					quantified |= UngroundDomain.isQuantifier(pc);
+				for (Fact eff : a.effect.getFacts())
+					quantified |= UngroundDomain.isQuantifier(eff);
+			}
+		}
+		this.quantified = quantified;
+	}
+	
+	/**
+	 * Mirrors the facts which {@link UngroundProblem#setupQuantifiers()} modifies.
+	 */
+	private static boolean isQuantifier(Fact f)
+	{
+		if (f instanceof Quantifier)
+			return true;
+		else if (f instanceof Not)
+			return UngroundDomain.isQuantifier(((Not) f).getLiteral());
+		else
+			return false;
+	}
+	
+	/**
+	 * Returns a new problem containing this domain, into which a problem file can be parsed. 
+	 * @throws IllegalStateException Thrown if the domain contains quantifiers, which are set up with the 
+	 * objects of each problem and so cannot be shared.
+	 * @see #isShareable()
+	 */
+	public UngroundProblem newProblem()
+	{
+		if (this.quantified)
+			throw new IllegalStateException("Domain " + this.name + " contains quantifiers and cannot be shared");
+		
+		UngroundProblem problem = new UngroundProblem();
+		problem.DomainName = this.name;
+		problem.requirements = (DomainRequirements) this.requirements.clone();
+		problem.types = new HashSet<Type>(this.types);
+		problem.typeMap = new Hashtable<String, Type>(this.typeMap);
+		problem.typeGraph = (TypeGraph) this.typeGraph.clone();
+		problem.predSymbols = new HashSet<PredicateSymbol>(this.predSymbols);
+		problem.predSymbolMap = new Hashtable<String, PredicateSymbol>(this.predSymbolMap);
+		problem.constants = new HashSet<Constant>(this.constants);
+		problem.constantMap = new Hashtable<String, Constant>(this.constantMap);
+		problem.funcSymbols = new HashSet<FunctionSymbol>(this.funcSymbols);
+		problem.funcSymbolMap = new Hashtable<String, FunctionSymbol>(this.funcSymbolMap);
+		problem.actions = new HashSet<Operator>(this.actions);
+		problem.typeSets = new Hashtable<Type, Set<PDDLObject>>();
+		
+		return problem;
+	}
+	
+	/**
+	 * Returns whether this domain can be shared by several problems. Domains whose operators contain 
+	 * quantifiers cannot, as the quantified objects are stored in the operators themselves.
+	 */
+	public boolean isShareable()
+	{
+		return this.quantified == false;
+	}
+	
+	public String getName()
+	{
+		return name;
+	}
+	
+	public DomainRequirements getRequirements()
+	{
+		return (DomainRequirements) requirements.clone();
+	}
+	
+	public Set<Type> getTypes()
+	{
+		return Collections.unmodifiableSet(types);
+	}
+	
+	public Set<PredicateSymbol> getPredicateSymbols()
+	{
+		return Collections.unmodifiableSet(predSymbols);
+	}
+	
+	public Set<Constant> getConstants()
+	{
+		return Collections.unmodifiableSet(constants);
+	}
+	
+	public Set<FunctionSymbol> getFunctionSymbols()
+	{
+		return Collections.unmodifiableSet(funcSymbols);
+	}
+	
+	public Set<Operator> getOperators()
+	{
+		return Collections.unmodifiableSet(actions);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "UngroundDomain: " + this.name;
+	}
+}
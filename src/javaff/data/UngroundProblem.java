@@ -39,6 +39,7 @@ import javaff.data.strips.PDDLObject;
 import javaff.data.strips.Proposition;
 import javaff.data.strips.Operator;
 import javaff.data.strips.SingleLiteral;
+import javaff.data.strips.PropositionIndex;
 import javaff.data.strips.UngroundInstantAction;
 import javaff.data.temporal.TimedInitialLiteral;
 import javaff.data.adl.ForAll;
@@ -52,10 +53,13 @@ import javaff.data.metric.NamedFunction;
 import javaff.data.metric.NumberFunction;
 import javaff.parser.ParseException;
 
+import java.io.PrintStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -63,6 +67,9 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 public class UngroundProblem
 {
@@ -75,6 +82,12 @@ public class UngroundProblem
 	 */
 	public static boolean RemoveStaticFacts = true;
 	
+	/**
+	 * The estimated number of parameter combinations below which a parallel grounding task is not split 
+	 * any further.
+	 */
+	public static final long ParallelGroundingThreshold = 4096;
+	
 	public String DomainName = ""; // Name of Domain
 	public String ProblemName = ""; // Name of Problem
 	public String ProblemDomainName = ""; // Name of Domain as specified by the
@@ -125,6 +138,14 @@ public class UngroundProblem
 
 	public List<TimedInitialLiteral> tils = new ArrayList<TimedInitialLiteral>();
 	
+	protected PropositionIndex staticFactIndex = null;
+	
+	protected boolean reachabilityGrounding = false;
+	
+	protected int groundingParallelism = 1;
+	
+	protected PrintStream debugOutput = null;
+	
 	public TypeGraph typeGraph = new TypeGraph();
 	
 	public UngroundProblem()
@@ -396,28 +417,45 @@ public class UngroundProblem
 		this.calculateStatics();
 		this.makeStaticPropositionMap();
 		this.buildTypeSets();
-		Set<Action> groundActions = new HashSet<Action>();
-		for (Operator o : this.actions)
+		this.staticFactIndex = new PropositionIndex(this.staticPropositionMap);
+		Set<Action> groundActions;
+		if (this.reachabilityGrounding && this.isReachabilityGroundable())
 		{
-			Set<Action> s = o.ground(this);
-			groundActions.addAll(s);
+			groundActions = this.groundReachable();
+		}
+		else if (this.groundingParallelism > 1)
+		{
+			groundActions = this.groundParallel();
+		}
+		else
+		{
+			Set<Action> grounded = new HashSet<Action>();
+			for (Operator o : this.actions)
+			{
+				o.ground(this, grounded);
+			}
+			groundActions = this.getOrderedActions(grounded);
 		}
 		
 		//FIXME this will need fixed for JavaFF2.2/numerics
 		//TODO move this code to a better location?
 		//This loop goes around all actions looking for functions
 		//
-		for (Action a : groundActions)
+		//this only reports the comparators found, so is skipped unless debugging output is wanted
+		if (this.debugOutput != null)
 		{
-			for (NamedFunction co : a.getComparators())
+			for (Action a : groundActions)
 			{
-				System.out.println("found comparator "+co+" in "+a);
+				for (NamedFunction co : a.getComparators())
+				{
+					this.debugOutput.println("found comparator "+co+" in "+a);
 //				BinaryComparator bc = (BinaryComparator) co;
 //				NamedFunction namef = (NamedFunction) bc.first;
 //				NumberFunction numf = (NumberFunction) bc.second;
 //				
 //				if (this.funcValues.containsKey(namef) == false)
 //					this.funcValues.put(namef, new BigDecimal(0));
+				}
 			}
 		}
 	
@@ -457,6 +495,295 @@ public class UngroundProblem
 		this.removeStaticsFromInitialState();
 	}
 
+	/**
+	 * Grounds only those actions whose positive preconditions are reachable from the initial state in the
+	 * delete relaxation. Starting from the initial state, each round grounds the bindings of every operator
+	 * which use a proposition first reached in the previous round, and adds the add effects of the new 
+	 * actions as the propositions of the next round, until no new propositions are reached. Negative and
+	 * non-literal preconditions are ignored, so this never omits an action which could be applied.
+	 * @return The set of reachable ground actions.
+	 */
+	protected Set<Action> groundReachable()
+	{
+		final PropositionIndex reachable = new PropositionIndex();
+		for (Fact f : this.initial)
+		{
+			if (f instanceof Proposition)
+				reachable.add((Proposition) f, 0);
+		}
+		
+		//each round only reads the index, so the operators of a round can be grounded in parallel
+		ForkJoinPool pool = null;
+		if (this.groundingParallelism > 1)
+			pool = new ForkJoinPool(this.groundingParallelism);
+		
+		Set<Action> groundActions = new HashSet<Action>();
+		List<Action> newActions = new ArrayList<Action>();
+		boolean changed = true;
+		try
+		{
+			for (int round = 1; changed; round++)
+			{
+				newActions.clear();
+				if (pool == null)
+				{
+					for (Operator o : this.actions)
+					{
+						o.groundReachable(this, reachable, round, newActions);
+					}
+				}
+				else
+				{
+					final int r = round;
+					List<ForkJoinTask<List<Action>>> tasks = new ArrayList<ForkJoinTask<List<Action>>>();
+					for (final Operator o : this.actions)
+					{
+						tasks.add(pool.submit(new RecursiveTask<List<Action>>()
+						{
+							private static final long serialVersionUID = 1L;
+							
+							protected List<Action> compute()
+							{
+								List<Action> out = new ArrayList<Action>();
+								o.groundReachable(UngroundProblem.this, reachable, r, out);
+								return out;
+							}
+						}));
+					}
+					
+					for (ForkJoinTask<List<Action>> t : tasks)
+						newActions.addAll(t.join());
+				}
+				
+				changed = false;
+				for (Action a : newActions)
+				{
+					groundActions.add(a);
+					for (Fact add : a.getAddPropositions())
+					{
+						if (add instanceof Proposition && reachable.add((Proposition) add, round))
+							changed = true;
+					}
+				}
+			}
+		}
+		finally
+		{
+			if (pool != null)
+				pool.shutdown();
+		}
+		
+		return this.getOrderedActions(groundActions);
+	}
+	
+	/**
+	 * Grounds every operator on a fork/join pool of {@link #getGroundingParallelism()} threads. Each operator
+	 * is a separate task, and the objects of the first parameter of an operator with many parameter 
+	 * combinations are split between further tasks. The actions of all tasks are then merged in name order,
+	 * so the resulting set is the same, and iterates in the same order, however the tasks are scheduled.
+	 * @return The set of ground actions.
+	 * @see Operator#ground(UngroundProblem, Collection, Collection)
+	 */
+	protected Set<Action> groundParallel()
+	{
+		ForkJoinPool pool = new ForkJoinPool(this.groundingParallelism);
+		try
+		{
+			List<GroundingTask> tasks = new ArrayList<GroundingTask>();
+			for (Operator o : this.actions)
+			{
+				GroundingTask t = new GroundingTask(o);
+				pool.execute(t);
+				tasks.add(t);
+			}
+			
+			List<Action> groundActions = new ArrayList<Action>();
+			for (GroundingTask t : tasks)
+				groundActions.addAll(t.join());
+			
+			return this.getOrderedActions(groundActions);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Returns the specified actions as a set which iterates in name order. Neither the order in which 
+	 * parallel tasks finish nor the hash codes of the objects they create then affect the order of the
+	 * actions passed on to search. Every way of grounding returns its actions through this, so the number
+	 * of grounding threads never changes the plan found.
+	 * @see Action#compareTo(Action)
+	 */
+	protected Set<Action> getOrderedActions(Collection<Action> groundActions)
+	{
+		List<Action> sorted = new ArrayList<Action>(groundActions);
+		Collections.sort(sorted);
+		
+		return new LinkedHashSet<Action>(sorted);
+	}
+	
+	/**
+	 * Grounds an operator for a range of the objects of its first parameter, splitting the range in two 
+	 * while the estimated number of parameter combinations in it is above 
+	 * {@link UngroundProblem#ParallelGroundingThreshold}.
+	 */
+	private class GroundingTask extends RecursiveTask<List<Action>>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final Operator operator;
+		/** The objects of the first parameter, or null to ground the whole operator at once. */
+		private final List<PDDLObject> firstValues;
+		private final int from, to;
+		/** The estimated number of parameter combinations for each object of the first parameter. */
+		private final long combinationsPerValue;
+		
+		private GroundingTask(Operator operator)
+		{
+			this.operator = operator;
+			
+			Set<PDDLObject> objs = null;
+			if (operator.params.isEmpty() == false)
+				objs = typeSets.get(operator.params.get(0).getType());
+			
+			if (objs == null)
+			{
+				this.firstValues = null;
+				this.from = this.to = 0;
+				this.combinationsPerValue = 0;
+				return;
+			}
+			
+			this.firstValues = new ArrayList<PDDLObject>(objs);
+			this.from = 0;
+			this.to = this.firstValues.size();
+			
+			long combinations = 1;
+			for (int i = 1; i < operator.params.size(); i++)
+			{
+				Set<PDDLObject> s = typeSets.get(operator.params.get(i).getType());
+				//capped, as the estimate only needs to be compared against the threshold
+				combinations = Math.min(combinations * Math.max(1, s == null ? 0 : s.size()), 
+						ParallelGroundingThreshold);
+			}
+			this.combinationsPerValue = combinations;
+		}
+		
+		private GroundingTask(GroundingTask parent, int from, int to)
+		{
+			this.operator = parent.operator;
+			this.firstValues = parent.firstValues;
+			this.from = from;
+			this.to = to;
+			this.combinationsPerValue = parent.combinationsPerValue;
+		}
+		
+		@Override
+		protected List<Action> compute()
+		{
+			List<Action> out = new ArrayList<Action>();
+			if (this.firstValues == null)
+			{
+				this.operator.ground(UngroundProblem.this, out);
+				return out;
+			}
+			
+			int count = this.to - this.from;
+			if (count > 1 && count * this.combinationsPerValue > ParallelGroundingThreshold)
+			{
+				int mid = (this.from + this.to) >>> 1;
+				GroundingTask left = new GroundingTask(this, this.from, mid);
+				GroundingTask right = new GroundingTask(this, mid, this.to);
+				left.fork();
+				List<Action> rightActions = right.compute();
+				
+				out.addAll(left.join());
+				out.addAll(rightActions);
+				return out;
+			}
+			
+			this.operator.ground(UngroundProblem.this, this.firstValues.subList(this.from, this.to), out);
+			return out;
+		}
+	}
+	
+	/**
+	 * Returns true if every operator in this problem can be grounded by reachability, and there are no timed
+	 * initial literals which could add propositions not in the initial state.
+	 * @see Operator#isReachabilityGroundable()
+	 */
+	public boolean isReachabilityGroundable()
+	{
+		if (this.tils.isEmpty() == false)
+			return false;
+		
+		for (Operator o : this.actions)
+		{
+			if (o.isReachabilityGroundable() == false)
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Returns whether {@link #ground()} only creates the actions which are reachable from the initial 
+	 * state, rather than every action whose static preconditions are true. This has no effect if 
+	 * {@link #isReachabilityGroundable()} is false.
+	 */
+	public boolean isReachabilityGrounding()
+	{
+		return reachabilityGrounding;
+	}
+
+	public void setReachabilityGrounding(boolean reachabilityGrounding)
+	{
+		this.reachabilityGrounding = reachabilityGrounding;
+	}
+
+	/**
+	 * Returns the number of threads used by {@link #ground()}. If this is 1, operators are grounded one at
+	 * a time on the calling thread.
+	 */
+	public int getGroundingParallelism()
+	{
+		return groundingParallelism;
+	}
+
+	public void setGroundingParallelism(int groundingParallelism)
+	{
+		this.groundingParallelism = groundingParallelism;
+	}
+
+	/**
+	 * Returns the stream which {@link #ground()} writes debugging information to, or null if none is written.
+	 */
+	public PrintStream getDebugOutput()
+	{
+		return debugOutput;
+	}
+
+	public void setDebugOutput(PrintStream debugOutput)
+	{
+		this.debugOutput = debugOutput;
+	}
+
+	/**
+	 * Returns the index of the static propositions in {@link #staticPropositionMap}, used to join the static
+	 * preconditions of operators during grounding. The index is built on first use, so is only valid once the 
+	 * static proposition map is complete.
+	 * @return
+	 */
+	public PropositionIndex getStaticFactIndex()
+	{
+		if (this.staticFactIndex == null)
+			this.staticFactIndex = new PropositionIndex(this.staticPropositionMap);
+		
+		return this.staticFactIndex;
+	}
+
 	public void buildTypeSets() // builds typeSets for easy access of all
 									// the objects of a particular type
 	{
@@ -592,6 +919,8 @@ public class UngroundProblem
 		clone.types = new HashSet<Type>(this.types);
 		clone.typeSets = new Hashtable<Type, Set<PDDLObject>>(this.typeSets);
 		clone.typeGraph = (TypeGraph) typeGraph.clone();
+		clone.reachabilityGrounding = this.reachabilityGrounding;
+		clone.groundingParallelism = this.groundingParallelism;
 		
 		return clone;
 	}
@@ -0,0 +1,382 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.data.strips;
+
+import javaff.data.Fact;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A JVM-wide table of canonical ground facts. Interning a {@link Proposition} returns the single instance 
+ * which is equal to it and has the same {@link PredicateSymbol}, so that the equal propositions of a 
+ * problem are the same object and can be compared by reference. Each interned proposition is also given 
+ * an integer ID, which is shared by every equal proposition, including those of problems which were 
+ * parsed separately and so have their own predicate symbols. Negations of interned propositions are 
+ * canonical in the same way, and share the ID of the proposition they negate.
+ * <p>
+ * The table only holds interned facts weakly. Once no proposition with an ID is reachable, the ID is 
+ * released and may be given to a different proposition, so a long-running process does not keep the 
+ * facts of every problem it has planned on. An ID therefore only identifies a proposition while that 
+ * proposition is reachable. Interned propositions must never be modified.
+ * <p>
+ * Lookups of facts which have already been interned do not lock, so the table can be used by parallel 
+ * grounding.
+ */
+public class FactTable
+{
+	private static final FactTable Instance = new FactTable();
+	
+	private final ConcurrentHashMap<Key, SlotReference> slots;
+	private final ReferenceQueue<Slot> released;
+	private int nextId;
+	/** IDs which have been released and can be given out again, of which there are freeCount. */
+	private int[] freeIds;
+	private int freeCount;
+	
+	protected FactTable()
+	{
+		this.slots = new ConcurrentHashMap<Key, SlotReference>();
+		this.released = new ReferenceQueue<Slot>();
+		this.nextId = 0;
+		this.freeIds = new int[16];
+		this.freeCount = 0;
+	}
+	
+	public static FactTable getInstance()
+	{
+		return FactTable.Instance;
+	}
+	
+	/**
+	 * Returns the canonical instance of the specified proposition, which may be the proposition itself.
+	 * @param p A proposition which will not be modified after this call.
+	 */
+	public Proposition intern(Proposition p)
+	{
+		//only canonical propositions have IDs
+		if (p.getId() >= 0)
+			return p;
+		
+		Slot slot = this.getSlot(p);
+		if (slot != null)
+		{
+			Proposition c = slot.find(p.getPredicateSymbol());
+			if (c != null)
+				return c;
+		}
+		
+		synchronized (this)
+		{
+			this.expunge();
+			
+			slot = this.getSlot(p);
+			if (slot == null)
+			{
+				slot = new Slot(p, this.takeId());
+				SlotReference ref = new SlotReference(slot, this.released);
+				this.slots.put(ref, ref);
+			}
+			
+			return slot.add(p);
+		}
+	}
+	
+	/**
+	 * Returns the canonical negation of the specified fact. If the fact is not a {@link Proposition}, a new
+	 * {@link Not} is returned.
+	 */
+	public Not negate(Fact literal)
+	{
+		if (literal instanceof Proposition == false)
+			return new Not(literal);
+		
+		Proposition p = this.intern((Proposition) literal);
+		Not n = p.getNegation();
+		if (n != null)
+			return n;
+		
+		synchronized (p)
+		{
+			n = p.getNegation();
+			if (n == null)
+			{
+				n = new Not(p);
+				p.setNegation(n);
+			}
+			
+			return n;
+		}
+	}
+	
+	/**
+	 * Returns the canonical instance of a {@link Proposition} or of the {@link Not} of one. Any other fact is 
+	 * returned unchanged.
+	 */
+	public Fact intern(Fact f)
+	{
+		if (f instanceof Proposition)
+			return this.intern((Proposition) f);
+		else if (f instanceof Not && ((Not) f).getLiteral() instanceof Proposition)
+			return this.negate(((Not) f).getLiteral());
+		
+		return f;
+	}
+	
+	/**
+	 * Returns the Zobrist key of the specified fact, which is used to hash sets of facts. The key of a
+	 * proposition is that of its ID, and that of any other fact is derived from its hash code, so equal facts
+	 * always have the same key.
+	 * @see #getKey(long)
+	 */
+	public long getKey(Fact f)
+	{
+		if (f instanceof Proposition)
+		{
+			int id = ((Proposition) f).getId();
+			return FactTable.getKey(id >= 0 ? id : this.intern((Proposition) f).getId());
+		}
+		
+		return FactTable.getKey(~f.hashCode() & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Returns the Zobrist key of the specified ID. Keys are effectively random 64-bit values, but are the 
+	 * same in every run, so a set of facts can be hashed by XORing the keys of its members, and the hash
+	 * updated as members are added and removed by XORing their keys again.
+	 */
+	public static long getKey(long id)
+	{
+		//the SplitMix64 finaliser
+		long z = (id + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Returns one more than the highest ID which has been given out, including IDs which have since been 
+	 * released.
+	 */
+	public synchronized int size()
+	{
+		return this.nextId;
+	}
+	
+	/**
+	 * Returns the number of IDs which are currently held by reachable propositions.
+	 */
+	public synchronized int liveSize()
+	{
+		this.expunge();
+		return this.nextId - this.freeCount;
+	}
+	
+	private Slot getSlot(Proposition p)
+	{
+		SlotReference ref = this.slots.get(new PropositionKey(p));
+		return ref == null ? null : ref.get();
+	}
+	
+	private int takeId()
+	{
+		if (this.freeCount > 0)
+			return this.freeIds[--this.freeCount];
+		
+		return this.nextId++;
+	}
+	
+	/**
+	 * Removes the slots of propositions which have been garbage collected, releasing their IDs.
+	 */
+	private void expunge()
+	{
+		Reference<? extends Slot> r;
+		while ((r = this.released.poll()) != null)
+		{
+			SlotReference ref = (SlotReference) r;
+			this.slots.remove(ref);
+			
+			if (this.freeCount == this.freeIds.length)
+				this.freeIds = Arrays.copyOf(this.freeIds, this.freeCount * 2);
+			this.freeIds[this.freeCount++] = ref.id;
+		}
+	}
+	
+	/**
+	 * The ID shared by all propositions which are equal to the first one interned, along with the canonical
+	 * proposition for each predicate symbol. Every canonical proposition refers to its slot, so the slot is 
+	 * only collected once none of them are reachable.
+	 */
+	static class Slot
+	{
+		private final Proposition first;
+		private final int id;
+		/** Weak references to the canonical propositions, which always refer to a {@link Proposition}. */
+		private volatile Reference<?>[] canonical;
+		
+		Slot(Proposition first, int id)
+		{
+			this.first = first;
+			this.id = id;
+			this.canonical = new Reference<?>[0];
+		}
+		
+		/**
+		 * Returns the canonical proposition with the predicate symbol, or null if there is none.
+		 */
+		Proposition find(PredicateSymbol symbol)
+		{
+			for (Reference<?> ref : this.canonical)
+			{
+				Proposition c = (Proposition) ref.get();
+				if (c != null && c.getPredicateSymbol() == symbol)
+					return c;
+			}
+			
+			return null;
+		}
+		
+		/**
+		 * Makes the proposition canonical for its predicate symbol, unless there already is one. This must
+		 * be called while holding the lock on the table.
+		 */
+		Proposition add(Proposition p)
+		{
+			Proposition c = this.find(p.getPredicateSymbol());
+			if (c != null)
+				return c;
+			
+			//drop the propositions of problems which have been collected
+			Reference<?>[] old = this.canonical;
+			Reference<?>[] updated = Arrays.copyOf(old, old.length + 1);
+			int live = 0;
+			for (Reference<?> ref : old)
+			{
+				if (ref.get() != null)
+					updated[live++] = ref;
+			}
+			updated[live++] = new WeakReference<Proposition>(p);
+			
+			p.setSlot(this, this.id);
+			this.canonical = Arrays.copyOf(updated, live);
+			return p;
+		}
+	}
+	
+	/**
+	 * A key of the slot table. Keys are equal if their propositions are.
+	 */
+	private interface Key
+	{
+		public Proposition getProposition();
+	}
+	
+	private static boolean keysEqual(Key a, Object obj)
+	{
+		if (a == obj)
+			return true;
+		if (obj instanceof Key == false)
+			return false;
+		
+		Proposition p = a.getProposition();
+		Proposition q = ((Key) obj).getProposition();
+		return p != null && q != null && p.equals(q);
+	}
+	
+	/**
+	 * The key used to look up a proposition.
+	 */
+	private static class PropositionKey implements Key
+	{
+		private final Proposition p;
+		
+		PropositionKey(Proposition p)
+		{
+			this.p = p;
+		}
+		
+		@Override
+		public Proposition getProposition()
+		{
+			return this.p;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return this.p.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			return keysEqual(this, obj);
+		}
+	}
+	
+	/**
+	 * The key of a slot in the table, which is also its value. This holds the slot weakly, and is queued 
+	 * once the slot has been collected so that it can be removed.
+	 */
+	private static class SlotReference extends WeakReference<Slot> implements Key
+	{
+		private final int hash;
+		private final int id;
+		
+		SlotReference(Slot slot, ReferenceQueue<Slot> queue)
+		{
+			super(slot, queue);
+			this.hash = slot.first.hashCode();
+			this.id = slot.id;
+		}
+		
+		@Override
+		public Proposition getProposition()
+		{
+			Slot s = this.get();
+			return s == null ? null : s.first;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			return keysEqual(this, obj);
+		}
+	}
+}
@@ -39,6 +39,7 @@ import javaff.data.metric.NamedFunction;
 import javaff.planning.State;
 import javaff.planning.STRIPSState;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.HashSet;
 import java.util.Set;
@@ -54,6 +55,8 @@ public class Not extends Literal implements GroundFact, UngroundFact, STRIPSFact
 	private int hash;
 	
 	private Fact literal;
+	
+	private Set<Fact> facts;
 
 	public Not(Fact l)
 	{
@@ -71,17 +74,26 @@ public class Not extends Literal implements GroundFact, UngroundFact, STRIPSFact
 		return this.hash;
 	}
 	
+	/**
+	 * Returns an unmodifiable set containing only this fact.
+	 */
 	@Override
 	public Set<Fact> getFacts()
 	{
-		Set<Fact> s = new HashSet<Fact>(1);
-		s.add(this);
-		return s;
+		if (this.facts == null)
+			this.facts = Collections.<Fact>singleton(this);
+		
+		return this.facts;
 	}
 	
+	/**
+	 * Returns the canonical negation of a clone of the literal, which is this object if it negates an interned
+	 * proposition.
+	 * @see FactTable#negate(Fact)
+	 */
 	public Object clone()
 	{
-		return new Not((Fact) this.getLiteral().clone());
+		return FactTable.getInstance().negate((Fact) this.getLiteral().clone());
 	}
 
 	public void apply(State s)
@@ -135,6 +147,9 @@ public class Not extends Literal implements GroundFact, UngroundFact, STRIPSFact
 
 	public boolean equals(Object obj)
 	{
+		if (this == obj)
+			return true;
+		
 		if (obj instanceof Not)
 		{
 			Not n = (Not) obj;
@@ -222,7 +237,7 @@ public class Not extends Literal implements GroundFact, UngroundFact, STRIPSFact
 		if (staticed instanceof Not)
 			return staticed;
 		else
-			return new Not(staticed);
+			return FactTable.getInstance().negate(staticed);
 //		return this;
 	}
 
@@ -253,7 +268,7 @@ public class Not extends Literal implements GroundFact, UngroundFact, STRIPSFact
 	@Override
 	public GroundFact ground(Map<Variable, PDDLObject> varMap)
 	{
-		return new Not(((UngroundFact)this.getLiteral()).ground(varMap));
+		return FactTable.getInstance().negate(((UngroundFact)this.getLiteral()).ground(varMap));
 	}
 
 	@Override
@@ -30,8 +30,12 @@ package javaff.data.strips;
 import javaff.data.Action;
 import javaff.data.Fact;
 import javaff.data.Parameter;
+import javaff.data.Type;
 import javaff.data.UngroundProblem;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Hashtable;
 import java.util.List;
@@ -96,52 +100,385 @@ public abstract class Operator implements javaff.data.PDDLPrintable
 
 	public Set<Action> ground(UngroundProblem up)
 	{
-		Set<ArrayList<PDDLObject>> s = this.getParameterCombinations(up);
 		Set<Action> rSet = new HashSet<Action>();
-		out : for (ArrayList<PDDLObject> l : s)
+		this.ground(up, rSet);
+		return rSet;
+	}
+	
+	/**
+	 * Grounds this operator, adding each valid ground action to the specified collection as soon as it is
+	 * created. Parameters which appear in static preconditions are bound by joining those preconditions
+	 * against the problem's static {@link PropositionIndex}, so only combinations which satisfy every static
+	 * precondition are ever considered. Any remaining parameters are then bound to every object of their 
+	 * type. No set of parameter combinations is built.
+	 * @param up
+	 * @param out The collection to add ground actions to.
+	 */
+	public void ground(UngroundProblem up, Collection<? super Action> out)
+	{
+		List<Predicate> joins = this.getStaticJoinPredicates();
+		new Grounder(up, out, up.getStaticFactIndex(), joins, new int[joins.size()], 
+				new int[joins.size()], -1).bindJoin(0);
+	}
+	
+	/**
+	 * Grounds only those actions whose first parameter is one of the specified objects, adding each valid
+	 * ground action to the specified collection. Grounding an operator once for each part of a partition of 
+	 * the objects of its first parameter's type produces the same actions as 
+	 * {@link #ground(UngroundProblem, Collection)}, so the parts can be grounded on different threads.
+	 * Grounding only reads the problem and this operator, and every action and proposition it creates is 
+	 * new, so nothing is shared between threads other than immutable objects such as predicate symbols.
+	 * @param up
+	 * @param firstValues The values of the first parameter to ground. Objects which are not of the 
+	 * parameter's type are ignored.
+	 * @param out The collection to add ground actions to.
+	 */
+	public void ground(UngroundProblem up, Collection<PDDLObject> firstValues, 
+			Collection<? super Action> out)
+	{
+		if (params.isEmpty())
 		{
-			//This is a hack to stop actions which have no associated parameters being created -- as this causes 
-			//a NullPointerException to be thrown during grounding. The alternative to this is to construct a pfile
-			//which has one of every object type.
-			//TODO Do this in getParameterCombinations()
-			for (PDDLObject p : l)
+			this.ground(up, out);
+			return;
+		}
+		
+		List<Predicate> joins = this.getStaticJoinPredicates();
+		new Grounder(up, out, up.getStaticFactIndex(), joins, new int[joins.size()], 
+				new int[joins.size()], -1).bindFirst(firstValues);
+	}
+	
+	/**
+	 * Performs one round of relaxed-reachability grounding. Every positive precondition returned by 
+	 * {@link #getReachabilityJoinPredicates()} is joined against the propositions reached so far, and a 
+	 * ground action is created only for those bindings which use at least one proposition reached in the
+	 * previous round, so that no binding is ever considered twice. In the first round all propositions
+	 * are new, and operators without any positive preconditions are grounded in full.
+	 * <p>
+	 * This is only valid if {@link #isReachabilityGroundable()} is true.
+	 * @param up
+	 * @param reachable The propositions reached so far, stamped with the round in which they were first 
+	 * reached. The initial state has a stamp of zero.
+	 * @param round The round to ground, starting at 1. Propositions with a stamp of (round - 1) are 
+	 * treated as new.
+	 * @param out The collection to add ground actions to.
+	 */
+	public void groundReachable(UngroundProblem up, PropositionIndex reachable, int round, 
+			Collection<? super Action> out)
+	{
+		List<Predicate> joins = this.getReachabilityJoinPredicates();
+		int n = joins.size();
+		if (n == 0)
+		{
+			if (round == 1)
+				new Grounder(up, out, reachable, joins, new int[0], new int[0], -1).bindJoin(0);
+			return;
+		}
+		
+		//semi-naive evaluation -- the d'th precondition takes a new proposition, those before it take
+		//only old propositions and those after it take either
+		int previous = round - 1;
+		for (int d = 0; d < n; d++)
+		{
+			if (d > 0 && previous == 0)
+				break; //nothing is older than the initial state
+			
+			int[] minStamp = new int[n];
+			int[] maxStamp = new int[n];
+			for (int j = 0; j < n; j++)
 			{
-				//if p is null then the pfile has no parameter with which to ground out an action, so ignore it. This can massively reduce the action set for planning!
-				if (p == null)
-					continue out;
+				minStamp[j] = j == d ? previous : 0;
+				maxStamp[j] = j < d ? previous - 1 : previous;
 			}
 			
+			new Grounder(up, out, reachable, joins, minStamp, maxStamp, d).bindJoin(0);
+		}
+	}
+	
+	/**
+	 * Returns the static predicates which must be true for this operator to be applicable, and which can 
+	 * therefore be used to restrict the values of its parameters. By default this is every 
+	 * {@link Predicate} returned by {@link #getStaticConditionPredicates()}.
+	 */
+	protected List<Predicate> getStaticJoinPredicates()
+	{
+		List<Predicate> joins = new ArrayList<Predicate>();
+		for (Fact f : this.getStaticConditionPredicates())
+		{
+			if (f instanceof Predicate)
+				joins.add((Predicate) f);
+		}
+		
+		return joins;
+	}
+	
+	/**
+	 * Returns the predicates, static or otherwise, which must be true for this operator to be applicable. 
+	 * These are used to restrict the values of its parameters during 
+	 * {@link #groundReachable(UngroundProblem, PropositionIndex, int, Collection)}. By default this is the 
+	 * same as {@link #getStaticJoinPredicates()}.
+	 */
+	protected List<Predicate> getReachabilityJoinPredicates()
+	{
+		return this.getStaticJoinPredicates();
+	}
+	
+	/**
+	 * Returns whether every proposition which a ground action of this operator can add is returned by 
+	 * {@link Action#getAddPropositions()}, so that it can be grounded with
+	 * {@link #groundReachable(UngroundProblem, PropositionIndex, int, Collection)}. Defaults to false.
+	 */
+	public boolean isReachabilityGroundable()
+	{
+		return false;
+	}
+	
+	/**
+	 * Tests whether a ground action can ever be applied, given the static facts in the initial state.
+	 */
+	protected boolean isGroundActionValid(Action groundedAction, UngroundProblem up)
+	{
+		//23/8/11 -- Eliminate any grounded actions whose preconditions contain
+		//			 a static fact which is not true in the initial state, rendering it impossible
+		//18/5/14 -- Also remove any simple preconditions which always evaluate to True. This has been 
+		//			 caused by the realisation that all Equals which do not have the same set of parameters
+		//			 will always evaluate to false, making the whole action unusable, so it can be pruned.
+		for (Fact pc : groundedAction.getPreconditions())
+		{
+			//It is possible that an unground fact may return a TrueCondition as its grounded form
+			//(see ForAlls), so just ignore these. They are still valid, but the IF statement below
+			//this will say that the action is invalid, as the probability of a TrueCondition appearing
+			//in the initial state is low.
+			if (TrueCondition.isSimpleTrue(pc) == 1)
+			{
+				continue;
+			}
+			if (this.isSimpleFalse(pc) == -1)
+				return false;
+
+			if (pc.isStatic() && up.initial.contains(pc) == false)
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Enumerates the parameter bindings of this operator by backtracking. The join predicates are
+	 * matched first, with each looked up through the hash index of an argument which is already bound. 
+	 * The join with a restricted range of new propositions is matched first if there is one, then the 
+	 * remainder smallest relation first. Parameters not bound by any join are then enumerated over their
+	 * type.
+	 */
+	private class Grounder
+	{
+		private final UngroundProblem up;
+		private final Collection<? super Action> out;
+		private final PropositionIndex index;
+		
+		private final Predicate[] joins;
+		/** For each join and argument, the index of the parameter it refers to, or -1 for a constant. */
+		private final int[][] joinParams;
+		/** The range of stamps of the propositions which each join may be matched against. */
+		private final int[] minStamp, maxStamp;
+		private final PDDLObject[] values;
+		
+		private int[] freeParams;
+		
+		private Grounder(UngroundProblem up, Collection<? super Action> out, PropositionIndex index, 
+				List<Predicate> joinList, int[] minStamps, int[] maxStamps, int first)
+		{
+			this.up = up;
+			this.out = out;
+			this.index = index;
+			this.values = new PDDLObject[params.size()];
 			
+			Integer[] order = new Integer[joinList.size()];
+			for (int j = 0; j < order.length; j++)
+				order[j] = j;
+			
+			final PropositionIndex idx = this.index;
+			final List<Predicate> jl = joinList;
+			final int f = first;
+			Arrays.sort(order, new Comparator<Integer>()
+			{
+				public int compare(Integer a, Integer b)
+				{
+					if (a.intValue() == b.intValue())
+						return 0;
+					if (a.intValue() == f)
+						return -1;
+					if (b.intValue() == f)
+						return 1;
+					
+					return idx.size(jl.get(a).getPredicateSymbol()) - idx.size(jl.get(b).getPredicateSymbol());
+				}
+			});
 			
-			Action groundedAction = ground(l); //ground an individual action using the specified grounded parameters
+			this.joins = new Predicate[order.length];
+			this.minStamp = new int[order.length];
+			this.maxStamp = new int[order.length];
+			for (int j = 0; j < order.length; j++)
+			{
+				this.joins[j] = joinList.get(order[j]);
+				this.minStamp[j] = minStamps[order[j]];
+				this.maxStamp[j] = first < 0 ? Integer.MAX_VALUE : maxStamps[order[j]];
+			}
+			
+			boolean[] bound = new boolean[params.size()];
+			this.joinParams = new int[this.joins.length][];
+			for (int j = 0; j < this.joins.length; j++)
+			{
+				List<Parameter> args = this.joins[j].getParameters();
+				this.joinParams[j] = new int[args.size()];
+				for (int i = 0; i < args.size(); i++)
+				{
+					int p = args.get(i) instanceof PDDLObject ? -1 : params.indexOf(args.get(i));
+					this.joinParams[j][i] = p;
+					if (p >= 0)
+						bound[p] = true;
+				}
+			}
+			
+			int freeCount = 0;
+			int[] free = new int[params.size()];
+			for (int p = 0; p < params.size(); p++)
+			{
+				if (bound[p] == false)
+					free[freeCount++] = p;
+			}
+			this.freeParams = Arrays.copyOf(free, freeCount);
+		}
+		
+		/**
+		 * Binds the first parameter to each of the specified values in turn, then binds the rest as normal.
+		 */
+		private void bindFirst(Collection<PDDLObject> firstValues)
+		{
+			if (this.freeParams.length > 0 && this.freeParams[0] == 0)
+				this.freeParams = Arrays.copyOfRange(this.freeParams, 1, this.freeParams.length);
+			
+			Type type = params.get(0).getType();
+			for (PDDLObject v : firstValues)
+			{
+				if (v.isOfType(type) == false)
+					continue;
+				
+				this.values[0] = v;
+				this.bindJoin(0);
+			}
+			this.values[0] = null;
+		}
 		
-			//23/8/11 -- Eliminate any grounded actions whose preconditions contain
-			//			 a static fact which is not true in the initial state, rendering it impossible
-			//18/5/14 -- Also remove any simple preconditions which always evaluate to True. This has been 
-			//			 caused by the realisation that all Equals which do not have the same set of parameters
-			//			 will always evaluate to false, making the whole action unusable, so it can be pruned.
-			//			//TODO move this code to the getParameterCombinations() method
-			for (Fact pc : groundedAction.getPreconditions())
+		private void bindJoin(int j)
+		{
+			if (j == this.joins.length)
 			{
-				//It is possible that an unground fact may return a TrueCondition as its grounded form
-				//(see ForAlls), so just ignore these. They are still valid, but the IF statement below
-				//this will say that the action is invalid, as the probability of a TrueCondition appearing
-				//in the initial state is low.
-//				if (pc instanceof TrueCondition)
-				if (TrueCondition.isSimpleTrue(pc) == 1)
+				this.bindFree(0);
+				return;
+			}
+			
+			PredicateSymbol ps = this.joins[j].getPredicateSymbol();
+			List<Parameter> args = this.joins[j].getParameters();
+			int[] argParams = this.joinParams[j];
+			int min = this.minStamp[j], max = this.maxStamp[j];
+			
+			//use the index on the first argument which already has a value, if there is one
+			PropositionIndex.Bucket candidates = null;
+			boolean indexed = false;
+			for (int i = 0; i < argParams.length && indexed == false; i++)
+			{
+				PDDLObject v = argParams[i] < 0 ? (PDDLObject) args.get(i) : this.values[argParams[i]];
+				if (v != null)
 				{
+					candidates = this.index.lookup(ps, i, v);
+					indexed = true;
+				}
+			}
+			if (indexed && candidates == null)
+				return;
+			
+			//tuples are held in stamp order, so a full scan can skip straight to the first one in range
+			int start = indexed || min <= 0 ? 0 : this.index.getFirstWithStamp(ps, min);
+			int count = indexed ? candidates.size : this.index.size(ps);
+			int[] newlyBound = new int[argParams.length];
+			for (int c = start; c < count; c++)
+			{
+				int t = indexed ? candidates.ids[c] : c;
+				int stamp = this.index.getStamp(ps, t);
+				if (stamp > max)
+					break;
+				if (stamp < min)
+					continue;
+				
+				PDDLObject[] tuple = this.index.getTuple(ps, t);
+				if (tuple.length != argParams.length)
 					continue;
+				
+				int boundCount = 0;
+				boolean ok = true;
+				for (int i = 0; i < argParams.length && ok; i++)
+				{
+					int p = argParams[i];
+					if (p < 0)
+					{
+						ok = args.get(i).equals(tuple[i]);
+					}
+					else if (this.values[p] != null)
+					{
+						ok = this.values[p].equals(tuple[i]);
+					}
+					//this picks up a subtle bug whereby the static fact contains parameters
+					//which are valid in the context of the precondition in this action, but
+					//that their actual type is too abstract to be applied to the other
+					//predicates in the action. See IPC5 storage problem 2.
+					else if (tuple[i].isOfType(params.get(p).getType()))
+					{
+						this.values[p] = tuple[i];
+						newlyBound[boundCount++] = p;
+					}
+					else
+						ok = false;
 				}
-				if (this.isSimpleFalse(pc) == -1)
-					continue out;
+				
+				if (ok)
+					this.bindJoin(j + 1);
+				
+				for (int b = 0; b < boundCount; b++)
+					this.values[newlyBound[b]] = null;
+			}
+		}
 
-				if (pc.isStatic() && up.initial.contains(pc) == false)
-					continue out;
+		private void bindFree(int f)
+		{
+			if (f == this.freeParams.length)
+			{
+				this.emit();
+				return;
+			}
+			
+			int p = this.freeParams[f];
+			Set<PDDLObject> objs = this.up.typeSets.get(params.get(p).getType());
+			if (objs == null)
+				return;
+			
+			for (PDDLObject o : objs)
+			{
+				this.values[p] = o;
+				this.bindFree(f + 1);
 			}
+			this.values[p] = null;
+		}
+		
+		private void emit()
+		{
+			Map<Variable, PDDLObject> varMap = new HashMap<Variable, PDDLObject>();
+			for (int p = 0; p < this.values.length; p++)
+				varMap.put((Variable) params.get(p), this.values[p]);
 			
-			rSet.add(groundedAction); 
+			Action groundedAction = ground(varMap); //ground an individual action using the specified grounded parameters
+			if (isGroundActionValid(groundedAction, this.up))
+				this.out.add(groundedAction);
 		}
-		return rSet;
 	}
 
 	/**
@@ -165,6 +502,12 @@ public abstract class Operator implements javaff.data.PDDLPrintable
 	
 	
 
+	/**
+	 * Returns every combination of parameters which satisfies the static preconditions of this operator.
+	 * @deprecated This materialises every combination, which can exhaust memory for operators with many 
+	 * parameters. Use {@link #ground(UngroundProblem, Collection)} to stream the ground actions instead.
+	 */
+	@Deprecated
 	public Set<ArrayList<PDDLObject>> getParameterCombinations(UngroundProblem up)
 	{
 		int arraysize = params.size();
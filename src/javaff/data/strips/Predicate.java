@@ -114,7 +114,7 @@ public class Predicate extends Literal implements UngroundFact, SingleLiteral
 
 			p.addParameter(po);
 		}
-		return p;
+		return FactTable.getInstance().intern(p);
 	}
 
 //	public GroundFact ground(Map<Variable, PDDLObject> varMap)
@@ -35,13 +35,23 @@ import javaff.planning.State;
 import javaff.planning.STRIPSState;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Set;
-import java.util.HashSet;
 
 public class Proposition extends javaff.data.Literal implements GroundFact, SingleLiteral, STRIPSFact
 {
 	private int hash;
 	
+	private int id = -1;
+	
+	/** The slot of the fact table which holds the ID, kept so that the ID is not released while this is reachable. */
+	private FactTable.Slot slot;
+	
+	/** The canonical negation of this proposition, or null if it has not been created. */
+	private volatile Not negation;
+	
+	private Set<Fact> facts;
+	
 	public Proposition(PredicateSymbol p)
 	{
 		super();
@@ -75,16 +85,51 @@ public class Proposition extends javaff.data.Literal implements GroundFact, Sing
 //		return this.hash;
 	}
 	
+	/**
+	 * Returns the ID given to this proposition by the {@link FactTable}, or -1 if it has not been interned.
+	 */
+	public int getId()
+	{
+		return this.id;
+	}
+	
+	void setSlot(FactTable.Slot slot, int id)
+	{
+		this.slot = slot;
+		this.id = id;
+	}
+	
+	Not getNegation()
+	{
+		return this.negation;
+	}
+	
+	void setNegation(Not negation)
+	{
+		this.negation = negation;
+	}
+	
+	/**
+	 * Returns an unmodifiable set containing only this proposition.
+	 */
 	@Override
 	public Set<Fact> getFacts()
 	{
-		Set<Fact> s = new HashSet<Fact>(1);
-		s.add(this);
-		return s;
+		if (this.facts == null)
+			this.facts = Collections.<Fact>singleton(this);
+		
+		return this.facts;
 	}
 	
+	/**
+	 * Returns this proposition if it has been interned, as interned propositions are never modified. 
+	 * Otherwise a copy is returned.
+	 */
 	public Object clone()
 	{
+		if (this.id >= 0)
+			return this;
+		
 		Proposition p = new Proposition(this.name);
 		p.parameters = new ArrayList(this.parameters);
 		
@@ -116,7 +161,7 @@ public class Proposition extends javaff.data.Literal implements GroundFact, Sing
 	public void applyDels(State s)
 	{
 		STRIPSState ss = (STRIPSState) s;
-		ss.removeFact(new Not(this)); //TODO hack for removing negated version of propositions
+		ss.removeFact(FactTable.getInstance().negate(this)); //TODO hack for removing negated version of propositions
 	}
 
 	public boolean isStatic()
@@ -151,9 +196,16 @@ public class Proposition extends javaff.data.Literal implements GroundFact, Sing
 	@Override
 	public boolean equals(Object obj)
 	{
+		if (this == obj)
+			return true;
+		
 		if (obj instanceof Proposition)
 		{
 			Proposition p = (Proposition) obj;
+			//interned propositions have the same ID if and only if they are equal
+			if (this.id >= 0 && p.id >= 0)
+				return this.id == p.id;
+			
 			boolean eq = (name.equals(p.name) && parameters.equals(p.parameters));
 			return eq;
 			
@@ -0,0 +1,237 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.data.strips;
+
+import javaff.data.Parameter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of propositions stored as relations, so that operators can be grounded by joining their 
+ * preconditions against it. Each predicate symbol maps to a table of argument tuples, with a hash index on
+ * every argument position so that the tuples which agree with an already-bound argument can be found
+ * without scanning the whole table.
+ * <p>
+ * Propositions can be added to the index at any time. Each is given a stamp when it is added, which is 
+ * normally the layer at which it was first reached, and stamps must never decrease. The tuples of a 
+ * relation are therefore held in stamp order, and a join can be limited to the tuples added within a range 
+ * of stamps.
+ * 
+ * @see Operator#ground(javaff.data.UngroundProblem)
+ * @see Operator#groundReachable(javaff.data.UngroundProblem, PropositionIndex, int, Collection)
+ */
+public class PropositionIndex
+{
+	private Map<PredicateSymbol, Relation> relations;
+	
+	/**
+	 * Create an empty index.
+	 */
+	public PropositionIndex()
+	{
+		this.relations = new HashMap<PredicateSymbol, Relation>();
+	}
+	
+	/**
+	 * Create an index over the static propositions of a problem, all of which have a stamp of zero.
+	 * @param staticPropositionMap The static propositions which are true in the initial state, keyed on 
+	 * their predicate symbol. 
+	 */
+	public PropositionIndex(Map<PredicateSymbol, Set<Proposition>> staticPropositionMap)
+	{
+		this();
+		for (Map.Entry<PredicateSymbol, Set<Proposition>> e : staticPropositionMap.entrySet())
+		{
+			for (Proposition p : e.getValue())
+				this.add(p, 0);
+		}
+	}
+	
+	/**
+	 * Adds a proposition to the index if it is not already present.
+	 * @param p The proposition to add.
+	 * @param stamp The stamp of the proposition. This must be no less than the stamp of any proposition 
+	 * already added.
+	 * @return True if the proposition was not already in the index, false otherwise.
+	 */
+	public boolean add(Proposition p, int stamp)
+	{
+		Relation r = this.relations.get(p.getPredicateSymbol());
+		if (r == null)
+		{
+			r = new Relation();
+			this.relations.put(p.getPredicateSymbol(), r);
+		}
+		
+		return r.add(p, stamp);
+	}
+	
+	/**
+	 * Returns whether the specified proposition is in this index.
+	 */
+	public boolean contains(Proposition p)
+	{
+		Relation r = this.relations.get(p.getPredicateSymbol());
+		return r != null && r.members.contains(p);
+	}
+	
+	/**
+	 * Returns the arguments of the t'th tuple of the specified predicate symbol.
+	 */
+	public PDDLObject[] getTuple(PredicateSymbol ps, int t)
+	{
+		return this.relations.get(ps).tuples[t];
+	}
+	
+	/**
+	 * Returns the stamp of the t'th tuple of the specified predicate symbol.
+	 */
+	public int getStamp(PredicateSymbol ps, int t)
+	{
+		return this.relations.get(ps).stamps[t];
+	}
+	
+	/**
+	 * Returns the index of the first tuple of the specified predicate symbol which has a stamp of at least
+	 * the one specified, or {@link #size(PredicateSymbol)} if there is none.
+	 */
+	public int getFirstWithStamp(PredicateSymbol ps, int stamp)
+	{
+		Relation r = this.relations.get(ps);
+		if (r == null)
+			return 0;
+		
+		int lo = 0, hi = r.size;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (r.stamps[mid] < stamp)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+	
+	/**
+	 * Returns the indices of the tuples which have the specified object at the specified argument position,
+	 * in ascending order, or null if there are none. Only the first {@link Bucket#size} entries are valid.
+	 */
+	Bucket lookup(PredicateSymbol ps, int position, PDDLObject value)
+	{
+		Relation r = this.relations.get(ps);
+		if (r == null || position >= r.byPosition.size())
+			return null;
+		
+		return r.byPosition.get(position).get(value);
+	}
+	
+	/**
+	 * Returns the number of tuples of the specified predicate symbol.
+	 */
+	public int size(PredicateSymbol ps)
+	{
+		Relation r = this.relations.get(ps);
+		return r == null ? 0 : r.size;
+	}
+	
+	/**
+	 * A growable list of tuple indices.
+	 */
+	static class Bucket
+	{
+		int[] ids = new int[4];
+		int size = 0;
+		
+		private void add(int id)
+		{
+			if (this.size == this.ids.length)
+				this.ids = Arrays.copyOf(this.ids, this.size * 2);
+			
+			this.ids[this.size++] = id;
+		}
+	}
+	
+	private static class Relation
+	{
+		private PDDLObject[][] tuples = new PDDLObject[8][];
+		private int[] stamps = new int[8];
+		private int size = 0;
+		private Set<Proposition> members = new HashSet<Proposition>();
+		private List<Map<PDDLObject, Bucket>> byPosition = new ArrayList<Map<PDDLObject, Bucket>>();
+		
+		private boolean add(Proposition p, int stamp)
+		{
+			if (this.size > 0 && stamp < this.stamps[this.size - 1])
+				throw new IllegalArgumentException("Stamps must not decrease");
+			
+			if (this.members.add(p) == false)
+				return false;
+			
+			List<Parameter> args = p.getParameters();
+			PDDLObject[] tuple = new PDDLObject[args.size()];
+			for (int i = 0; i < args.size(); i++)
+				tuple[i] = (PDDLObject) args.get(i);
+			
+			if (this.size == this.tuples.length)
+			{
+				this.tuples = Arrays.copyOf(this.tuples, this.size * 2);
+				this.stamps = Arrays.copyOf(this.stamps, this.size * 2);
+			}
+			
+			int t = this.size++;
+			this.tuples[t] = tuple;
+			this.stamps[t] = stamp;
+			
+			while (this.byPosition.size() < tuple.length)
+				this.byPosition.add(new HashMap<PDDLObject, Bucket>());
+			
+			for (int i = 0; i < tuple.length; i++)
+			{
+				Map<PDDLObject, Bucket> index = this.byPosition.get(i);
+				Bucket b = index.get(tuple[i]);
+				if (b == null)
+				{
+					b = new Bucket();
+					index.put(tuple[i], b);
+				}
+				b.add(t);
+			}
+			
+			return true;
+		}
+	}
+}
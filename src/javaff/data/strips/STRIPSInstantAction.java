@@ -56,6 +56,7 @@ public class STRIPSInstantAction extends InstantAction
 		for (Parameter p : super.getParameters())
 			clone.getParameters().add((Parameter) p.clone());
 		clone.setCost(new BigDecimal(0).add(super.getCost()));
+		clone.setOrdinal(super.getOrdinal());
 		
 		return clone;
 	}
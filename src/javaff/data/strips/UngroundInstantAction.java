@@ -31,9 +31,14 @@ import javaff.data.Action;
 import javaff.data.Fact;
 import javaff.data.GroundFact;
 import javaff.data.UngroundFact;
+import javaff.data.adl.ADLFact;
 
 import javaff.data.PDDLPrinter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -81,6 +86,74 @@ public class UngroundInstantAction extends Operator
 		return condition.getStaticPredicates();
 	}
 
+	/**
+	 * Returns the static predicates which are conjuncts of this action's condition. Static predicates
+	 * nested within any other type of condition, such as a negation or disjunction, are not required to be
+	 * true, so cannot be used to restrict the parameters of the action.
+	 */
+	@Override
+	protected List<Predicate> getStaticJoinPredicates()
+	{
+		List<Predicate> joins = new ArrayList<Predicate>();
+		for (Predicate p : this.getReachabilityJoinPredicates())
+		{
+			if (p.getPredicateSymbol().isStatic())
+				joins.add(p);
+		}
+		
+		return joins;
+	}
+	
+	/**
+	 * Returns the predicates which are conjuncts of this action's condition, whether static or not.
+	 */
+	@Override
+	protected List<Predicate> getReachabilityJoinPredicates()
+	{
+		Collection<? extends Fact> conjuncts;
+		if (condition instanceof And)
+			conjuncts = ((And) condition).getFacts();
+		else
+			conjuncts = Collections.singleton((Fact) condition);
+		
+		List<Predicate> joins = new ArrayList<Predicate>();
+		for (Fact f : conjuncts)
+		{
+			if (f instanceof Predicate)
+				joins.add((Predicate) f);
+		}
+		
+		return joins;
+	}
+	
+	/**
+	 * Returns true if this action's effect is a conjunction of literals and numeric effects. Conditional
+	 * and quantified effects are only expanded after grounding, so actions which have them cannot be
+	 * grounded by reachability.
+	 */
+	@Override
+	public boolean isReachabilityGroundable()
+	{
+		return this.isSimpleEffect(this.effect);
+	}
+	
+	private boolean isSimpleEffect(Fact f)
+	{
+		if (f instanceof ADLFact)
+			return false;
+		
+		if (f instanceof And)
+		{
+			for (Fact c : ((And) f).getFacts())
+			{
+				if (this.isSimpleEffect(c) == false)
+					return false;
+			}
+		}
+		
+		return true;
+	}
+
 	public void PDDLPrint(java.io.PrintStream p, int indent)
 	{
 		p.println();
@@ -0,0 +1,248 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+package javaff.parser;
+
+import javaff.data.UngroundDomain;
+import javaff.data.UngroundProblem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of parsed domains, so that a domain which is shared by many problem files is only parsed once. Domains 
+ * are keyed by the canonical path of their file, and are parsed again if the file's modification time or length 
+ * changes. The least recently used domain is discarded once the cache is full.
+ * <p>
+ * Domains which cannot be shared between problems (see {@link UngroundDomain#isShareable()}) are parsed again 
+ * for every problem, but from the text held by the cache rather than from disk.
+ */
+public class DomainCache
+{
+	public static final int DefaultSize = 8;
+	
+	private static final DomainCache Default = new DomainCache(DomainCache.DefaultSize);
+	
+	private static class Entry
+	{
+		private final long modified, length;
+		private final String source;
+		private final UngroundDomain domain;
+		
+		private Entry(long modified, long length, String source, UngroundDomain domain)
+		{
+			this.modified = modified;
+			this.length = length;
+			this.source = source;
+			this.domain = domain;
+		}
+	}
+	
+	private final int size;
+	private final Map<String, Entry> domains;
+	private final AtomicLong hits, misses;
+	
+	/**
+	 * Create a cache.
+	 * @param size The maximum number of domains held.
+	 */
+	public DomainCache(int size)
+	{
+		this.size = size;
+		this.domains = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+			{
+				return this.size() > DomainCache.this.size;
+			}
+		};
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+	}
+	
+	/**
+	 * Returns the cache shared by every planner in the JVM which has not been given its own.
+	 */
+	public static DomainCache getDefault()
+	{
+		return DomainCache.Default;
+	}
+	
+	/**
+	 * Parse a problem file against a domain, parsing the domain only if it is not in the cache or its file has 
+	 * changed since it was parsed.
+	 * @param pDomainFile The domain file.
+	 * @param pProblemFile The problem file.
+	 * @param out The stream to write any messages to.
+	 * @return The problem, or null if either file could not be parsed.
+	 */
+	public UngroundProblem parseFiles(File pDomainFile, File pProblemFile, PrintStream out)
+	{
+		Entry entry = this.getEntry(pDomainFile, out);
+		if (entry == null)
+			return null;
+		
+		if (entry.domain.isShareable())
+			return PDDL21parser.parseFiles(entry.domain, pProblemFile, out);
+		else
+			return PDDL21parser.parseFiles(pDomainFile, entry.source, pProblemFile, out);
+	}
+	
+	/**
+	 * Returns the parsed domain in the file specified, parsing it if it is not in the cache or its file has 
+	 * changed since it was parsed.
+	 * @param pDomainFile The domain file.
+	 * @param out The stream to write any messages to.
+	 * @return The domain, or null if it could not be parsed.
+	 */
+	public UngroundDomain getDomain(File pDomainFile, PrintStream out)
+	{
+		Entry entry = this.getEntry(pDomainFile, out);
+		return entry == null ? null : entry.domain;
+	}
+	
+	/**
+	 * Returns whether the domain in the file specified is in the cache, and its file has not changed since it
+	 * was parsed. This does not count as a hit or a miss.
+	 */
+	public boolean contains(File pDomainFile)
+	{
+		Entry entry;
+		synchronized (this.domains)
+		{
+			entry = this.domains.get(DomainCache.getKey(pDomainFile));
+		}
+		
+		return entry != null && entry.modified == pDomainFile.lastModified() 
+				&& entry.length == pDomainFile.length();
+	}
+	
+	private static String getKey(File pDomainFile)
+	{
+		try
+		{
+			return pDomainFile.getCanonicalPath();
+		}
+		catch (IOException e)
+		{
+			return pDomainFile.getAbsolutePath();
+		}
+	}
+	
+	private Entry getEntry(File pDomainFile, PrintStream out)
+	{
+		String key = DomainCache.getKey(pDomainFile);
+		long modified = pDomainFile.lastModified();
+		long length = pDomainFile.length();
+		
+		Entry entry;
+		synchronized (this.domains)
+		{
+			entry = this.domains.get(key);
+		}
+		if (entry != null && entry.modified == modified && entry.length == length)
+		{
+			this.hits.incrementAndGet();
+			return entry;
+		}
+		this.misses.incrementAndGet();
+		
+		//parsing is done outside of the lock, so a domain requested by several threads at once may be parsed by 
+		//each of them, but requests for other domains are never held up
+		String source;
+		try
+		{
+			source = new String(Files.readAllBytes(pDomainFile.toPath()), Charset.defaultCharset());
+		}
+		catch (IOException e)
+		{
+			out.println("File "+pDomainFile+" could not be read");
+			out.println(e.getMessage());
+			return null;
+		}
+		
+		UngroundDomain domain = PDDL21parser.parseDomain(pDomainFile, source, out);
+		if (domain == null)
+			return null;
+		
+		entry = new Entry(modified, length, source, domain);
+		if (this.size > 0)
+		{
+			synchronized (this.domains)
+			{
+				this.domains.put(key, entry);
+			}
+		}
+		
+		return entry;
+	}
+	
+	/**
+	 * Removes every domain from the cache.
+	 */
+	public void clear()
+	{
+		synchronized (this.domains)
+		{
+			this.domains.clear();
+		}
+	}
+	
+	/**
+	 * Returns the number of domains in the cache.
+	 */
+	public int size()
+	{
+		synchronized (this.domains)
+		{
+			return this.domains.size();
+		}
+	}
+	
+	/**
+	 * Returns the number of times a domain has been found in the cache.
+	 */
+	public long getHits()
+	{
+		return hits.get();
+	}
+	
+	/**
+	 * Returns the number of times a domain has been parsed because it was not in the cache.
+	 */
+	public long getMisses()
+	{
+		return misses.get();
+	}
+}
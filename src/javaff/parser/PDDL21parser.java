@@ -12,6 +12,8 @@ import javaff.data.DomainRequirements;
 import java.io.PrintStream;
 import java.io.File;
 import java.io.FileReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
@@ -26,97 +28,159 @@ import java.util.Iterator;
 import java.math.BigDecimal;
 
 public class PDDL21parser implements PDDL21parserConstants {
-        public static UngroundProblem UP = new UngroundProblem();
+	protected UngroundProblem UP = new UngroundProblem();
+	
+	protected PrintStream out = System.out;
 
         /**
-	 * Destroy {@link PDDL21parser.UP}
+	 * Returns the problem which this parser has populated so far.
 	 */
-        public static void reset()
+        public UngroundProblem getUngroundProblem()
         {
-                UP = new  UngroundProblem();
+                return UP;
         }
 
+	/**
+	 * Parse the domain and problem files into a new {@link UngroundProblem}, writing any messages to System.out.
+	 */
     public static UngroundProblem parseFiles(File pDomainFile, File pProblemFile)
     {
-        reset();
+		return parseFiles(pDomainFile, pProblemFile, System.out);
+	}
+
+	/**
+	 * Parse the domain and problem files into a new {@link UngroundProblem}, writing any messages to the
+	 * stream specified. No state is shared between calls, so files may be parsed concurrently. 
+	 */
+	public static UngroundProblem parseFiles(File pDomainFile, File pProblemFile, PrintStream out)
+	{
+		return parseFiles(pDomainFile, null, pProblemFile, out);
+	}
+
+	/**
+	 * Parse the domain and problem files into a new {@link UngroundProblem}, where the text of the domain file
+	 * has already been read.
+	 * @param domainSource The text of the domain file, or null to read it from the file.
+	 */
+	public static UngroundProblem parseFiles(File pDomainFile, String domainSource, File pProblemFile, 
+			PrintStream out)
+	{
+		UngroundProblem problem = new UngroundProblem();
                 boolean probsuc = false;
-                boolean suc = parseDomainFile(pDomainFile);
-                if (suc) probsuc = parseProblemFile(pProblemFile);
+                boolean suc = parseDomainFile(pDomainFile, domainSource, problem, out);
+                if (suc) probsuc = parseProblemFile(pProblemFile, problem, out);
                 if (probsuc)
                 {
                         //ADL quantifiers (Exists and ForAll) need to have their quantified variables set up after the
                         //problem file has been parsed. The problem file cannot be swapped to be parsed first because
                         //constants present in the domain file are needed for grounding the initial and goal states.
                         //this method is the lesser of two evils.
-                        UP.buildTypeSets(); //required for quantifier grounding		 //TODO find a better place to do this.
+                        problem.buildTypeSets(); //required for quantifier grounding		 //TODO find a better place to do this.
 
-                        UP.setupQuantifiers();
-                        return UP;
+                        problem.setupQuantifiers(); 
+                        return problem;
                 }
                 else return null;
     }
 
-    private static boolean parseDomainFile(File pFile)
+	/**
+	 * Parse a domain into a new {@link UngroundDomain}, which problems can then be parsed against with
+	 * {@link #parseFiles(UngroundDomain, File, PrintStream)}.
+	 * @param pDomainFile The domain file.
+	 * @param source The text of the domain file if it has already been read, or null to read it from the file.
+	 * @param out The stream to write any messages to.
+	 * @return The domain, or null if it could not be parsed.
+	 */
+	public static UngroundDomain parseDomain(File pDomainFile, String source, PrintStream out)
+	{
+		UngroundProblem problem = new UngroundProblem();
+		if (parseDomainFile(pDomainFile, source, problem, out))
+			return new UngroundDomain(problem);
+		else return null;
+	}
+
+	/**
+	 * Parse a problem file against a domain which has already been parsed, writing any messages to the stream 
+	 * specified. The domain is not modified, so several problems may be parsed against it concurrently.
+	 * @throws IllegalStateException Thrown if the domain cannot be shared between problems.
+	 * @see UngroundDomain#isShareable()
+	 */
+	public static UngroundProblem parseFiles(UngroundDomain domain, File pProblemFile, PrintStream out)
+	{
+		UngroundProblem problem = domain.newProblem();
+		if (parseProblemFile(pProblemFile, problem, out)) 
+		{
+			problem.buildTypeSets();
+			return problem;
+		}
+		else return null;
+	}
+
+	private static boolean parseDomainFile(File pFile, String source, UngroundProblem problem, PrintStream out)
     {
                 boolean req = false;
         try
         {
-            FileReader tFileReader = new FileReader(pFile);
+            Reader tFileReader = source == null ? new FileReader(pFile) : new StringReader(source);
                         PDDL21parser parser = new PDDL21parser(tFileReader);
+			parser.UP = problem;
+			parser.out = out;
             req = parser.parseDomain();
             tFileReader.close();
           }
                 catch (FileNotFoundException e)
                 {
-            System.out.println("File "+pFile+" has not been found");
+            out.println("File "+pFile+" has not been found");
             req = false;
                 }
                 catch (IOException e)
                 {
-            System.out.println("Unknown IOException caught");
-            System.out.println(e.getMessage());
+            out.println("Unknown IOException caught");
+            out.println(e.getMessage());
             req = false;
                 }
         catch (ParseException e)
         {
-            System.out.println("Error whilst parsing file "+pFile);
-            System.out.println(e.getMessage());
+            out.println("Error whilst parsing file "+pFile);
+            out.println(e.getMessage());
             req = false;
         }
-        if (req) System.out.println("Parsed Domain file "+pFile+" successfully");
-                else System.out.println("Parsing of Domain file "+pFile+" failed");
+        if (req) out.println("Parsed Domain file "+pFile+" successfully");
+                else out.println("Parsing of Domain file "+pFile+" failed");
                 return req;
     }
 
-    private static boolean parseProblemFile(File pFile)
+    private static boolean parseProblemFile(File pFile, UngroundProblem problem, PrintStream out)
     {
                 boolean probsuc = true;
         try
         {
             FileReader tFileReader = new FileReader(pFile);
                         PDDL21parser parser = new PDDL21parser(tFileReader);
+			parser.UP = problem;
+			parser.out = out;
             parser.parseProblem();
             tFileReader.close();
                 }
                 catch (FileNotFoundException e)
                 {
-            System.out.println("File "+pFile+" has not been found");
+            out.println("File "+pFile+" has not been found");
             probsuc = false;
                 }
                 catch (IOException e)
                 {
-            System.out.println("Unknown IOException caught");
-            System.out.println(e.getMessage());
+            out.println("Unknown IOException caught");
+            out.println(e.getMessage());
             probsuc = false;
                 }
         catch (ParseException e)
         {
-            System.out.println("Error whilst parsing file "+pFile);
-            System.out.println(e.getMessage());
+            out.println("Error whilst parsing file "+pFile);
+            out.println(e.getMessage());
             probsuc = false;
         }
-        if (probsuc) System.out.println("Parsed Problem file "+pFile+" successfully");
-                else System.out.println("Parsing Problem file "+pFile+" failed");
+        if (probsuc) out.println("Parsed Problem file "+pFile+" successfully");
+                else out.println("Parsing Problem file "+pFile+" failed");
                 return probsuc;
     }
 
@@ -256,10 +320,10 @@ public class PDDL21parser implements PDDL21parserConstants {
                                         UP.requirements.addRequirement(Requirement.Equality);
       } else if (jj_2_9(20)) {
         t = jj_consume_token(NON_HANDLED_LABELS);
-                        System.out.println("Unsupported requirement tag: "+t.toString().toLowerCase()); {if (true) return false;}
+                        out.println("Unsupported requirement tag: "+t.toString().toLowerCase()); {if (true) return false;}
       } else if (jj_2_10(20)) {
         t = jj_consume_token(PDDL_1_7_LABELS);
-                        System.out.println("PDDL 1.7 tags not supported: "+t.toString().toLowerCase()); {if (true) return false;}
+                        out.println("PDDL 1.7 tags not supported: "+t.toString().toLowerCase()); {if (true) return false;}
       } else {
         jj_consume_token(-1);
         throw new ParseException();
@@ -809,6 +873,8 @@ public class PDDL21parser implements PDDL21parserConstants {
                         else
                                 ((Predicate)lit).addParameter(o);
                 }
+                if (lit instanceof Proposition)
+                        lit = FactTable.getInstance().intern((Proposition) lit);
                 {if (true) return lit;}
     throw new Error("Missing return statement in function");
   }
@@ -1397,7 +1463,7 @@ public class PDDL21parser implements PDDL21parserConstants {
                 UP.ProblemName = t.toString().toLowerCase();
                 UP.ProblemDomainName = t2.toString().toLowerCase();
                 if (!UP.DomainName.toLowerCase().equals(t2.toString().toLowerCase()))
-                        System.out.println("Warning Domain Name and Problem Name do not match");
+                        out.println("Warning Domain Name and Problem Name do not match");
     if (jj_2_97(20)) {
       parseRequireDef();
     } else {
@@ -0,0 +1,1475 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.planning;
+
+import javaff.data.Action;
+import javaff.data.Fact;
+import javaff.data.GroundProblem;
+import javaff.data.RelaxedPlan;
+import javaff.data.strips.FactTable;
+import javaff.data.strips.Not;
+import javaff.data.strips.Proposition;
+import javaff.data.strips.RelaxedFFPlan;
+import javaff.data.strips.TrueCondition;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An implementation of the relaxed planning graph which works entirely on integer-indexed arrays of facts
+ * and actions, in the style of FF's own C implementation. Rather than building layers of {@link PlanningGraph.PGFact}s
+ * and {@link PlanningGraph.PGAction}s, each fact and action has a dense integer ID, and the graph is expanded by 
+ * decrementing per-action precondition counters. The only objects created during evaluation are the resulting 
+ * {@link RelaxedFFPlan} and its {@link HelpfulActionList}.
+ * <p>
+ * Proposition IDs are taken from a {@link FactIndex}, and the negation of a proposition with ID <i>p</i> has 
+ * the ID <i>n + p</i>, where <i>n</i> is the size of the index. The relaxed plan extraction and helpful action
+ * semantics are the same as those of {@link RelaxedPlanningGraph}, including the treatment of negative
+ * preconditions as being true by their absence. Where the original graph has several equally good achievers
+ * for a goal, the one with the lowest ID is chosen, and the goals of each layer are considered in order of ID.
+ * The original graph breaks these ties by the iteration order of its hash sets, so individual h values and 
+ * helpful actions can differ from it, but never depend on hash codes.
+ * <p>
+ * Different branches of the graph can be evaluated on different threads at the same time.
+ * <p>
+ * A branch is normally evaluated incrementally from the graph it was branched from. The fact layers of the 
+ * parent state are expanded to a fixpoint once, the first time one of its branches is evaluated, and each 
+ * branch then only propagates the changes caused by the facts which differ between the two states. Facts 
+ * which were added can only move to earlier layers, and facts which were removed, along with anything 
+ * which depended on them, are recomputed. This gives exactly the same relaxed plan as a full expansion. A 
+ * full expansion is used instead if there are many changes, or if any action has a negative precondition,
+ * as the facts which are true by their absence depend on the order in which the graph is expanded. If 
+ * three quarters of the first few updates of a problem need a full expansion anyway, no more are attempted.
+ * <p>
+ * The layers of the graph are not kept once a plan has been extracted. The methods which query them, such as
+ * {@link #getFactsAtLayer(int)}, can only be used after the graph has been expanded in full by
+ * {@link #constructStableGraph(State)}, which keeps its layers until the next call to {@link #getPlan(State)}.
+ */
+public class ArrayRelaxedPlanningGraph extends RelaxedPlanningGraph
+{
+	/**
+	 * The problem-specific structure of the graph. This never changes once constructed, and is shared 
+	 * between all branches of the graph.
+	 */
+	protected Structure structure;
+	
+	/** The value returned by {@link #update(long[], Scratch)} if the graph could not be updated. */
+	protected static final int NotUpdated = -2;
+	/** The number of times facts can be cleared and recomputed in one update before a full expansion is used. */
+	protected static final int MaxUpdateRounds = 8;
+	/** The number of incremental updates after which they are abandoned if three quarters needed a full expansion. */
+	protected static final int UpdateTrials = 256;
+	
+	protected Fact goalFact;
+	protected int[] goalIds;
+	/** The distinct goals which are indexed, in order of ID. */
+	protected int[] goalOrder;
+	
+	protected HelpfulActionList helpful;
+	protected int layerCount;
+	
+	protected boolean incremental;
+	
+	/**
+	 * The layer 0 facts of the state this graph last evaluated, from which its branches are updated. 
+	 */
+	protected Baseline baseline;
+	/**
+	 * The baseline of the graph this was branched from, or null if there is none.
+	 */
+	protected Baseline parentBaseline;
+	
+	/**
+	 * The graph expanded in full by {@link #constructStableGraph(State)}, or null if it has not been, or
+	 * {@link #getPlan(State)} has been called since.
+	 */
+	protected Levels stable;
+	/**
+	 * The state which {@link #stable} was expanded from.
+	 */
+	protected STRIPSState stableState;
+	
+	/**
+	 * Create an RPG for the specified problem. 
+	 * @param gp The problem.
+	 * @param index An index containing every proposition which appears in the problem.
+	 * @throws IllegalArgumentException Thrown if any action has a precondition or effect which is not 
+	 * a proposition or negated proposition in the index.
+	 */
+	public ArrayRelaxedPlanningGraph(GroundProblem gp, FactIndex index)
+	{
+		this(new Structure(gp.getActions(), index));
+		
+		this.setGoal(gp.getGoal());
+	}
+	
+	protected ArrayRelaxedPlanningGraph(Structure structure)
+	{
+		super();
+		
+		this.structure = structure;
+		this.goalFact = null;
+		this.goalIds = new int[0];
+		this.goalOrder = new int[0];
+		this.helpful = HelpfulActionList.Empty;
+		this.layerCount = 0;
+		this.incremental = true;
+		this.baseline = null;
+		this.parentBaseline = null;
+		this.stable = null;
+		this.stableState = null;
+	}
+	
+	/**
+	 * Returns the index which this graph's fact IDs are taken from.
+	 * @return
+	 */
+	public FactIndex getFactIndex()
+	{
+		return this.structure.index;
+	}
+	
+	@Override
+	public ArrayRelaxedPlanningGraph branch()
+	{
+		ArrayRelaxedPlanningGraph branch = new ArrayRelaxedPlanningGraph(this.structure);
+		branch.goalFact = this.goalFact;
+		branch.goalIds = this.goalIds;
+		branch.goalOrder = this.goalOrder;
+		branch.incremental = this.incremental;
+		branch.parentBaseline = this.baseline;
+		
+		return branch;
+	}
+	
+	@Override
+	public Object clone()
+	{
+		ArrayRelaxedPlanningGraph clone = this.branch();
+		clone.layerCount = this.layerCount;
+		clone.baseline = this.baseline;
+		clone.parentBaseline = this.parentBaseline;
+		clone.helpful = this.helpful; //lists cannot be modified
+		clone.stable = this.stable; //never modified once expanded
+		clone.stableState = this.stableState;
+		
+		return clone;
+	}
+	
+	@Override
+	public void setGoal(Fact g)
+	{
+		if (g == this.goalFact)
+			return;
+		
+		int[] ids = new int[g.getFacts().size()];
+		int[] order = new int[ids.length];
+		int count = 0, orderCount = 0;
+		for (Fact f : g.getFacts())
+		{
+			int id = this.structure.getId(f);
+			if (id == Structure.TRUE)
+				continue;
+			
+			ids[count++] = id; //unknown goals are kept as -1, so they are never reached
+			if (id >= 0)
+				order[orderCount++] = id;
+		}
+		Arrays.sort(order, 0, orderCount);
+		
+		int distinct = 0;
+		for (int i = 0; i < orderCount; i++)
+		{
+			if (distinct == 0 || order[distinct - 1] != order[i])
+				order[distinct++] = order[i];
+		}
+		
+		this.goalFact = g;
+		this.goalIds = Arrays.copyOf(ids, count);
+		this.goalOrder = Arrays.copyOf(order, distinct);
+	}
+	
+	/**
+	 * The initial state is taken from the state passed to {@link #getPlan(State)}, so this does nothing.
+	 */
+	@Override
+	public void setInitial(State S)
+	{
+	}
+	
+	@Override
+	public int size()
+	{
+		return this.layerCount;
+	}
+	
+	/**
+	 * Returns whether branches of this graph are evaluated incrementally from their parent where possible. 
+	 * This is always false if any action has a negative precondition.
+	 */
+	public boolean isIncremental()
+	{
+		return this.incremental && this.structure.hasNegativePreconditions == false;
+	}
+	
+	/**
+	 * Sets whether branches of this graph, and their branches in turn, are evaluated incrementally. Defaults
+	 * to true.
+	 * @param incremental
+	 */
+	public void setIncremental(boolean incremental)
+	{
+		this.incremental = incremental;
+	}
+	
+	@Override
+	public HelpfulActionList getHelpfulActions()
+	{
+		return this.helpful;
+	}
+	
+	/**
+	 * All working memory is held per-thread, so branches of this graph can be evaluated concurrently.
+	 */
+	@Override
+	public boolean supportsConcurrentBranches()
+	{
+		return true;
+	}
+	
+	/**
+	 * Expands the graph from the specified state until no new facts can be added, and keeps its layers so
+	 * that they can be queried by {@link #getFactsAtLayer(int)}, {@link #getActionsAtLayer(int)} and
+	 * {@link #getLayerContaining(Fact)}, and plans extracted from them by {@link #getPlanFromExistingGraph(Fact)}.
+	 * As in {@link PlanningGraph}, the graph has one more layer than that at which the last fact appears, which
+	 * contains the same facts as the one before it.
+	 */
+	@Override
+	public void constructStableGraph(State init)
+	{
+		this.setGoal(init.goal);
+		this.helpful = HelpfulActionList.Empty;
+		
+		STRIPSState s = (STRIPSState) init;
+		Levels levels = this.getFixpoint(this.structure.getLayerZero(s), this.structure.getScratch());
+		
+		int last = 0;
+		for (int l : levels.factLayer)
+			last = Math.max(last, l);
+		
+		this.stable = levels;
+		this.stableState = s;
+		this.layerCount = last + 2;
+	}
+	
+	/**
+	 * Extracts a relaxed plan for the specified goal from the graph expanded by
+	 * {@link #constructStableGraph(State)}.
+	 * @return The relaxed plan, or null if any goal does not appear in the graph.
+	 * @throws IllegalStateException Thrown if the graph has not been expanded.
+	 */
+	@Override
+	public RelaxedPlan getPlanFromExistingGraph(Fact g)
+	{
+		Levels levels = this.getStableLevels();
+		this.setGoal(g);
+		this.helpful = HelpfulActionList.Empty;
+		
+		int top = 0;
+		for (int id : this.goalIds)
+		{
+			if (id < 0 || levels.factLayer[id] < 0)
+				return null;
+			
+			top = Math.max(top, levels.factLayer[id]);
+		}
+		
+		Scratch scratch = this.structure.getScratch();
+		scratch.reset();
+		System.arraycopy(levels.factLayer, 0, scratch.factLayer, 0, levels.factLayer.length);
+		System.arraycopy(levels.actionLayer, 0, scratch.actionLayer, 0, levels.actionLayer.length);
+		System.arraycopy(levels.difficulty, 0, scratch.difficulty, 0, levels.difficulty.length);
+		scratch.overwritten = true;
+		
+		return this.extract(this.stableState, scratch, top);
+	}
+	
+	/**
+	 * Returns every fact which appears at or before the specified layer of the graph expanded by
+	 * {@link #constructStableGraph(State)}, including {@link TrueCondition}.
+	 * @throws IllegalStateException Thrown if the graph has not been expanded.
+	 */
+	@Override
+	public Set<Fact> getFactsAtLayer(int i)
+	{
+		Levels levels = this.getStableLevels();
+		
+		Set<Fact> facts = new HashSet<Fact>();
+		facts.add(TrueCondition.getInstance());
+		for (int f = 0; f < levels.factLayer.length; f++)
+		{
+			if (levels.factLayer[f] >= 0 && levels.factLayer[f] <= i)
+				facts.add(this.structure.getFact(f));
+		}
+		
+		return facts;
+	}
+	
+	/**
+	 * Returns the actions which first appear at the specified layer of the graph expanded by
+	 * {@link #constructStableGraph(State)}.
+	 * @throws IllegalStateException Thrown if the graph has not been expanded.
+	 */
+	@Override
+	public Set<Action> getActionsAtLayer(int l)
+	{
+		Levels levels = this.getStableLevels();
+		
+		Set<Action> actions = new HashSet<Action>();
+		for (int a = 0; a < levels.actionLayer.length; a++)
+		{
+			if (levels.actionLayer[a] == l && l >= 0)
+				actions.add(this.structure.actions[a]);
+		}
+		
+		return actions;
+	}
+	
+	/**
+	 * Returns the layer at which the specified fact first appears in the graph expanded by
+	 * {@link #constructStableGraph(State)}, or -1 if it does not appear.
+	 * @throws IllegalStateException Thrown if the graph has not been expanded.
+	 */
+	@Override
+	public int getLayerContaining(Fact p)
+	{
+		Levels levels = this.getStableLevels();
+		
+		int id = this.structure.getId(p);
+		if (id == Structure.TRUE)
+			return 0;
+		
+		return id < 0 ? -1 : levels.factLayer[id];
+	}
+	
+	/**
+	 * Returns the number of layers in the graph expanded by {@link #constructStableGraph(State)}, which, as in
+	 * {@link PlanningGraph}, is one more than {@link #size()}.
+	 * @throws IllegalStateException Thrown if the graph has not been expanded.
+	 */
+	@Override
+	public int getFactLayerSize()
+	{
+		this.getStableLevels();
+		
+		return this.layerCount + 1;
+	}
+	
+	private Levels getStableLevels()
+	{
+		if (this.stable == null)
+			throw new IllegalStateException("The layers of an ArrayRelaxedPlanningGraph are only kept after constructStableGraph()");
+		
+		return this.stable;
+	}
+	
+	@Override
+	public RelaxedPlan getPlan(State s)
+	{
+		this.setGoal(s.goal);
+		this.helpful = HelpfulActionList.Empty;
+		this.stable = null;
+		this.stableState = null;
+		
+		Scratch scratch = this.structure.getScratch();
+		scratch.reset();
+		
+		long[] layerZero = this.structure.getLayerZero((STRIPSState) s);
+		int top = NotUpdated;
+		if (this.isIncremental())
+		{
+			if (this.parentBaseline != null && this.structure.isUpdateWorthwhile())
+			{
+				top = this.update(layerZero, scratch);
+				this.structure.recordUpdate(top != NotUpdated);
+			}
+			this.baseline = new Baseline(layerZero);
+		}
+		
+		if (top == NotUpdated)
+		{
+			scratch.reset();
+			this.seed(layerZero, scratch);
+			top = this.expand(scratch, true);
+		}
+		
+		RelaxedPlan plan = null;
+		if (top >= 0)
+			plan = this.extract((STRIPSState) s, scratch, top);
+		
+		this.layerCount = top < 0 ? scratch.layer + 1 : top + 1;
+		return plan;
+	}
+	
+	/**
+	 * Places the specified facts in layer 0, along with the actions which have no preconditions. 
+	 * @param layerZero The facts of the state, as returned by {@link Structure#getLayerZero(STRIPSState)}.
+	 */
+	protected void seed(long[] layerZero, Scratch sc)
+	{
+		Structure st = this.structure;
+		
+		int words = st.propWords;
+		for (int w = 0; w < words; w++)
+		{
+			for (long word = layerZero[w]; word != 0; word &= word - 1)
+				this.reachFact(sc, (w << 6) + Long.numberOfTrailingZeros(word), 0, true);
+			for (long word = layerZero[words + w]; word != 0; word &= word - 1)
+				this.reachFact(sc, st.propCount + (w << 6) + Long.numberOfTrailingZeros(word), 0, true);
+		}
+		
+		//the propositions added at each layer are marked if any Nots can be true by their absence
+		if (st.absentNots.length > 0)
+		{
+			sc.addedStamp = ++sc.stamp;
+			for (int w = 0; w < words; w++)
+			{
+				for (long word = layerZero[w]; word != 0; word &= word - 1)
+					sc.addedMark[(w << 6) + Long.numberOfTrailingZeros(word)] = sc.addedStamp;
+			}
+		}
+		
+		//actions with no preconditions are always applicable
+		for (int a : st.alwaysApplicable)
+		{
+			sc.actionLayer[a] = 0;
+			sc.touchedActions[sc.touchedActionCount++] = a;
+			sc.newActions[sc.newActionCount++] = a;
+		}
+	}
+
+	/**
+	 * Expands the graph from layer 0 until all goals appear, or no new facts can be added.
+	 * @param stopAtGoals If false, the graph is always expanded until no new facts can be added.
+	 * @return The layer at which all goals first appear, or -1 if they are not reachable or stopAtGoals is
+	 * false.
+	 */
+	protected int expand(Scratch sc, boolean stopAtGoals)
+	{
+		Structure st = this.structure;
+		boolean absentNots = st.absentNots.length > 0;
+		
+		int layerStart = 0;
+		boolean newActions = true;
+		for (int l = 0; ; l++)
+		{
+			sc.layer = l;
+			if (absentNots)
+				this.reachAbsentNots(sc, l);
+			
+			if (stopAtGoals && this.goalsReached(sc))
+				return l;
+			
+			//Nots which are true by their absence can appear at a layer which adds no new propositions, so the
+			//graph has only levelled off once a layer adds no new actions, and the next no new facts 
+			if (absentNots && l > 0 && sc.reachedCount == layerStart && newActions == false)
+				return -1;
+			
+			//schedule all actions whose final precondition appeared at this layer
+			int layerEnd = sc.reachedCount;
+			for (int i = layerStart; i < layerEnd; i++)
+			{
+				for (int a : st.enables[sc.reached[i]])
+				{
+					if (sc.actionLayer[a] >= 0)
+						continue;
+					
+					if (sc.counter[a] == 0)
+						sc.touchedActions[sc.touchedActionCount++] = a;
+					
+					sc.counter[a]++;
+					sc.difficulty[a] += l;
+					if (sc.counter[a] == st.pre[a].length)
+					{
+						sc.actionLayer[a] = l;
+						sc.newActions[sc.newActionCount++] = a;
+					}
+				}
+			}
+			layerStart = layerEnd;
+			newActions = sc.newActionCount > 0;
+			
+			//add their effects at the next layer
+			if (absentNots)
+				sc.addedStamp = ++sc.stamp;
+			for (int i = 0; i < sc.newActionCount; i++)
+			{
+				for (int f : st.achieves[sc.newActions[i]])
+				{
+					if (absentNots)
+						sc.addedMark[f] = sc.addedStamp;
+					if (sc.factLayer[f] < 0)
+						this.reachFact(sc, f, l + 1, true);
+				}
+			}
+			sc.newActionCount = 0;
+			
+			if (sc.reachedCount == layerEnd && absentNots == false)
+				return -1; //levelled off
+		}
+	}
+	
+	/**
+	 * Places each of {@link Structure#absentNots} at the specified layer if its literal was not added at that
+	 * layer, as {@link RelaxedPlanningGraph#createFactLayer(List, int)} does. 
+	 */
+	private void reachAbsentNots(Scratch sc, int layer)
+	{
+		Structure st = this.structure;
+		for (int n : st.absentNots)
+		{
+			if (sc.factLayer[n] < 0 && sc.addedMark[n - st.propCount] != sc.addedStamp)
+				this.reachFact(sc, n, layer, false);
+		}
+	}
+	
+	/**
+	 * Returns the layer of every fact and action when the graph is expanded from the specified facts until
+	 * it levels off.
+	 */
+	protected Levels getFixpoint(long[] layerZero, Scratch sc)
+	{
+		sc.reset();
+		this.seed(layerZero, sc);
+		this.expand(sc, false);
+		
+		Levels levels = new Levels(sc.factLayer.clone(), sc.actionLayer.clone(), sc.difficulty.clone());
+		sc.reset();
+		return levels;
+	}
+	
+	/**
+	 * Fills the scratch memory with the fact and action layers of the fully expanded graph of the specified 
+	 * state, by updating those of the parent graph's state.
+	 * <p>
+	 * Facts which were removed from layer 0, and every fact whose achievers at its old layer needed one of 
+	 * them at their own layer, may move to a later layer, so are cleared. They are then recomputed along with
+	 * the facts added to layer 0, in order of layer, with every action which needs a fact which changed being 
+	 * recomputed from its preconditions. An action which needed a cleared fact at an earlier layer than its 
+	 * own is only known to have moved once the fact has been recomputed, in which case the facts which relied
+	 * on it are cleared and recomputed in turn.
+	 * @param layerZero The facts of the state.
+	 * @return The layer at which all goals first appear, or {@link #NotUpdated} if the graph cannot be
+	 * updated, in which case the scratch memory must be reset.
+	 */
+	protected int update(long[] layerZero, Scratch sc)
+	{
+		Structure st = this.structure;
+		Baseline parent = this.parentBaseline;
+		if (parent == null)
+			return NotUpdated;
+		
+		long[] parentZero = parent.layerZero;
+		int changes = 0;
+		for (int w = 0; w < layerZero.length; w++)
+			changes += Long.bitCount(layerZero[w] ^ parentZero[w]);
+		if (changes > st.maxIncrementalChanges)
+			return NotUpdated;
+		
+		Levels base = parent.getLevels(this, sc);
+		
+		int[] L = sc.factLayer, R = sc.actionLayer;
+		System.arraycopy(base.factLayer, 0, L, 0, L.length);
+		System.arraycopy(base.actionLayer, 0, R, 0, R.length);
+		System.arraycopy(base.difficulty, 0, sc.difficulty, 0, R.length);
+		sc.overwritten = true;
+		
+		int changedStamp = ++sc.stamp;
+		int changedCount = 0;
+		int stamp = ++sc.stamp;
+		int affectedCount = 0, recomputeCount = 0;
+		sc.heapSize = 0;
+		for (int w = 0; w < layerZero.length; w++)
+		{
+			for (long word = parentZero[w] & ~layerZero[w]; word != 0; word &= word - 1)
+			{
+				int f = st.getFactId(w, Long.numberOfTrailingZeros(word));
+				sc.factMark[f] = stamp;
+				sc.affected[affectedCount++] = f;
+			}
+			for (long word = layerZero[w] & ~parentZero[w]; word != 0; word &= word - 1)
+				sc.push(st.getFactId(w, Long.numberOfTrailingZeros(word)), 0);
+		}
+		
+		for (int round = 0; ; round++)
+		{
+			if (round == MaxUpdateRounds)
+				return NotUpdated;
+			
+			//find every fact which may move to a later layer
+			int watchedCount = 0;
+			for (int i = 0; i < affectedCount; i++)
+			{
+				int f = sc.affected[i];
+				if (sc.changedMark[f] != changedStamp)
+				{
+					sc.changedMark[f] = changedStamp;
+					sc.changed[changedCount++] = f;
+				}
+				
+				for (int a : st.enables[f])
+				{
+					if (R[a] < 0 || sc.actionMark[a] == stamp)
+						continue;
+					
+					if (L[f] < R[a])
+					{
+						if (sc.watchMark[a] != stamp)
+						{
+							sc.watchMark[a] = stamp;
+							sc.watched[watchedCount++] = a;
+						}
+						continue;
+					}
+					
+					sc.actionMark[a] = stamp;
+					affectedCount = this.clearEffects(layerZero, sc, a, stamp, affectedCount);
+					if (affectedCount < 0)
+						return NotUpdated;
+					R[a] = -1;
+				}
+			}
+			
+			//the cleared facts are first placed at the layer given by any achievers which were not cleared
+			for (int i = 0; i < affectedCount; i++)
+				L[sc.affected[i]] = -1;
+			for (int i = 0; i < affectedCount; i++)
+			{
+				int f = sc.affected[i];
+				int best = -1;
+				for (int a : st.achievers[f])
+				{
+					if (R[a] >= 0 && (best < 0 || R[a] + 1 < best))
+						best = R[a] + 1;
+				}
+				if (best >= 0)
+					sc.push(f, best);
+			}
+			for (int i = 0; i < recomputeCount; i++)
+			{
+				int a = sc.recompute[i];
+				int r = this.getActionLayer(L, a);
+				if (r < 0)
+					continue;
+				
+				R[a] = r;
+				for (int g : st.achieves[a])
+				{
+					if (L[g] < 0 || L[g] > r + 1)
+						sc.push(g, r + 1);
+				}
+			}
+			
+			//then propagate every change in order of layer
+			while (sc.heapSize > 0)
+			{
+				int l = sc.heapLayer[0];
+				int f = sc.pop();
+				if (L[f] >= 0 && L[f] <= l)
+					continue;
+				
+				L[f] = l;
+				if (sc.changedMark[f] != changedStamp)
+				{
+					sc.changedMark[f] = changedStamp;
+					sc.changed[changedCount++] = f;
+				}
+				
+				for (int a : st.enables[f])
+				{
+					int r = this.getActionLayer(L, a);
+					if (r < 0 || (R[a] >= 0 && R[a] <= r))
+						continue;
+					
+					R[a] = r;
+					for (int g : st.achieves[a])
+					{
+						if (L[g] < 0 || L[g] > r + 1)
+							sc.push(g, r + 1);
+					}
+				}
+			}
+			
+			//actions which needed a cleared fact before their own layer have moved if the fact is now later
+			stamp = ++sc.stamp;
+			affectedCount = 0;
+			recomputeCount = 0;
+			for (int i = 0; i < watchedCount; i++)
+			{
+				int a = sc.watched[i];
+				if (R[a] < 0 || this.getActionLayer(L, a) == R[a])
+					continue;
+				
+				affectedCount = this.clearEffects(layerZero, sc, a, stamp, affectedCount);
+				if (affectedCount < 0)
+					return NotUpdated;
+				R[a] = -1;
+				sc.recompute[recomputeCount++] = a;
+			}
+			
+			if (affectedCount == 0 && recomputeCount == 0)
+				break;
+		}
+		
+		//the difficulty of an action is the sum of the layers of its preconditions
+		int dstamp = ++sc.stamp;
+		for (int i = 0; i < changedCount; i++)
+		{
+			for (int a : st.enables[sc.changed[i]])
+			{
+				if (sc.actionMark[a] == dstamp)
+					continue;
+				
+				sc.actionMark[a] = dstamp;
+				int d = 0;
+				for (int p : st.pre[a])
+					d += L[p];
+				sc.difficulty[a] = d;
+			}
+		}
+		
+		int top = 0;
+		for (int g : this.goalIds)
+		{
+			if (g < 0 || L[g] < 0)
+				return NotUpdated; //let a full expansion decide how far the graph levels off
+			
+			top = Math.max(top, L[g]);
+		}
+		
+		return top;
+	}
+	
+	/**
+	 * Adds every fact which relied on the specified action being at its current layer to the facts which are
+	 * to be cleared. 
+	 * @return The new number of facts to be cleared, or -1 if there are too many.
+	 */
+	private int clearEffects(long[] layerZero, Scratch sc, int a, int stamp, int affectedCount)
+	{
+		Structure st = this.structure;
+		int r = sc.actionLayer[a];
+		for (int g : st.achieves[a])
+		{
+			if (sc.factMark[g] != stamp && sc.factLayer[g] == r + 1 && st.isInLayerZero(layerZero, g) == false)
+			{
+				if (affectedCount == st.maxIncrementalAffected)
+					return -1;
+				
+				sc.factMark[g] = stamp;
+				sc.affected[affectedCount++] = g;
+			}
+		}
+		
+		return affectedCount;
+	}
+	
+	/**
+	 * Returns the layer at which an action is first applicable, given the layers of its preconditions, or
+	 * -1 if it is not applicable.
+	 */
+	private int getActionLayer(int[] factLayer, int a)
+	{
+		int r = 0;
+		for (int p : this.structure.pre[a])
+		{
+			if (factLayer[p] < 0)
+				return -1;
+			
+			r = Math.max(r, factLayer[p]);
+		}
+		
+		return r;
+	}
+	
+	/**
+	 * Marks the fact as appearing at the specified layer. If implied is true, any negative preconditions 
+	 * of actions the fact enables are assumed to be true by their absence at the same layer, as in 
+	 * {@link PlanningGraph#filterFactLayer(List)}.
+	 */
+	private void reachFact(Scratch sc, int f, int layer, boolean implied)
+	{
+		if (sc.factLayer[f] >= 0)
+			return;
+		
+		sc.factLayer[f] = layer;
+		sc.reached[sc.reachedCount++] = f;
+		
+		if (implied)
+		{
+			for (int n : this.structure.impliedNots[f])
+				this.reachFact(sc, n, layer, false);
+		}
+	}
+	
+	private boolean goalsReached(Scratch sc)
+	{
+		for (int g : this.goalIds)
+		{
+			if (g < 0 || sc.factLayer[g] < 0)
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Extracts a relaxed plan from the expanded graph, and records the helpful actions in the process. The 
+	 * goals of each layer are considered in order of ID, and each is achieved by its No-Op if it appears at an 
+	 * earlier layer, otherwise by an action already chosen at this layer if there is one, otherwise by the 
+	 * least difficult action with the lowest ID.
+	 */
+	protected RelaxedPlan extract(STRIPSState s, Scratch sc, int top)
+	{
+		Structure st = this.structure;
+		
+		//the goals at the current and next layer are held in separate arrays, with separate membership marks
+		int[] goals = sc.goalsA, next = sc.goalsB;
+		int[] goalMark = sc.goalMarkA, nextMark = sc.goalMarkB;
+		int goalCount = this.goalOrder.length;
+		int goalStamp = ++sc.stamp;
+		for (int i = 0; i < goalCount; i++)
+		{
+			goals[i] = this.goalOrder[i];
+			goalMark[goals[i]] = goalStamp;
+		}
+		
+		//the chosen actions of layer l-1 are stored in sc.chosen from chosenStart[l]
+		int chosenCount = 0;
+		for (int l = top; l > 0; l--)
+		{
+			sc.chosenStart[l] = chosenCount;
+			int nextCount = 0;
+			int levelStamp = ++sc.stamp;
+			
+			for (int i = 0; i < goalCount; i++)
+			{
+				int g = goals[i];
+				
+				//always choose No-Ops if they exist
+				if (sc.factLayer[g] < l)
+				{
+					if (nextMark[g] != levelStamp)
+					{
+						nextMark[g] = levelStamp;
+						next[nextCount++] = g;
+					}
+					continue;
+				}
+				
+				int best = -1;
+				for (int a : st.achievers[g])
+				{
+					int al = sc.actionLayer[a];
+					if (al < 0 || al >= l)
+						continue;
+					
+					if (sc.chosenMark[a] == levelStamp)
+					{
+						best = a;
+						break;
+					}
+					if (best < 0 || sc.difficulty[best] > sc.difficulty[a]) //this is the "min" in h_add
+						best = a;
+				}
+				
+				if (best < 0 || sc.chosenMark[best] == levelStamp)
+					continue;
+				
+				sc.chosenMark[best] = levelStamp;
+				sc.chosen[chosenCount++] = best;
+				for (int p : st.pre[best])
+				{
+					if (nextMark[p] != levelStamp)
+					{
+						nextMark[p] = levelStamp;
+						next[nextCount++] = p;
+					}
+				}
+			}
+			Arrays.sort(next, 0, nextCount);
+			
+			//actions chosen at layer 0 are helpful if they are applicable in the current state, and are ranked by
+			//how many of the goals at layer 1 they achieve
+			if (l == 1)
+			{
+				HelpfulActionList.Builder helpful = new HelpfulActionList.Builder();
+				for (int i = sc.chosenStart[l]; i < chosenCount; i++)
+				{
+					int a = sc.chosen[i];
+					if (st.actions[a].isApplicable(s) == false)
+						continue;
+					
+					int achieved = 0;
+					for (int f : st.adds[a])
+					{
+						if (goalMark[f] == goalStamp)
+							++achieved;
+					}
+					
+					helpful.add(st.actions[a], achieved);
+				}
+				this.helpful = helpful.build();
+			}
+			
+			int[] tmp = goals;
+			goals = next;
+			next = tmp;
+			tmp = goalMark;
+			goalMark = nextMark;
+			nextMark = tmp;
+			goalCount = nextCount;
+			goalStamp = levelStamp;
+		}
+		sc.chosenStart[0] = chosenCount;
+		
+		RelaxedFFPlan plan = new RelaxedFFPlan(this.goalFact);
+		for (int l = 1; l <= top; l++)
+		{
+			int end = l == 1 ? chosenCount : sc.chosenStart[l - 1];
+			HashSet<Action> layer = new HashSet<Action>();
+			for (int i = sc.chosenStart[l]; i < end; i++)
+				layer.add(st.actions[sc.chosen[i]]);
+			
+			plan.addActions(layer);
+		}
+		
+		return plan;
+	}
+	
+	/**
+	 * The problem-specific arrays which make up the graph.
+	 */
+	protected static class Structure
+	{
+		/** The ID returned for facts which are always true and so are not stored. */
+		protected static final int TRUE = -2;
+		
+		protected final FactIndex index;
+		protected final int propCount;
+		protected final Action[] actions;
+		
+		/** Action ID to the IDs of its preconditions. */
+		protected final int[][] pre;
+		/** Action ID to the IDs of the propositions it adds. */
+		protected final int[][] adds;
+		/** Action ID to the IDs of its adds, and of the negation of its deletes. */
+		protected final int[][] achieves;
+		/** Fact ID to the IDs of the actions which require it. */
+		protected final int[][] enables;
+		/** Fact ID to the IDs of the actions which achieve it. */
+		protected final int[][] achievers;
+		/** Fact ID to the IDs of the negative preconditions of all actions it enables. */
+		protected final int[][] impliedNots;
+		/** The IDs of actions with no preconditions. */
+		protected final int[] alwaysApplicable;
+		/** 
+		 * The negative preconditions of actions whose preconditions are all negative. These are true at any layer 
+		 * at which their literal is not added, even if it was added at an earlier layer.
+		 */
+		protected final int[] absentNots;
+		/** Whether any action has a negated precondition. */
+		protected final boolean hasNegativePreconditions;
+		
+		/** The number of words needed to store one bit for every proposition. */
+		protected final int propWords;
+		/** The number of facts which can differ between a state and its parent for it to be updated incrementally. */
+		protected final int maxIncrementalChanges;
+		/** The number of facts which can be recomputed when a state is updated incrementally. */
+		protected final int maxIncrementalAffected;
+		/** The number of incremental updates attempted, and the number which needed a full expansion. */
+		private final AtomicInteger updates, fallbacks;
+		
+		private final ThreadLocal<Scratch> scratch;
+		
+		protected Structure(Set<Action> groundActions, FactIndex index)
+		{
+			this.index = index;
+			this.propCount = index.size();
+			this.actions = groundActions.toArray(new Action[groundActions.size()]);
+			this.scratch = new ThreadLocal<Scratch>();
+			
+			int factCount = this.propCount * 2;
+			this.pre = new int[this.actions.length][];
+			this.adds = new int[this.actions.length][];
+			this.achieves = new int[this.actions.length][];
+			
+			List<Integer> always = new ArrayList<Integer>();
+			Set<Integer> absent = new LinkedHashSet<Integer>();
+			for (int a = 0; a < this.actions.length; a++)
+			{
+				Action action = this.actions[a];
+				this.pre[a] = this.getIds(action.getPreconditions(), action);
+				
+				boolean onlyNegative = true;
+				for (Fact p : action.getPreconditions())
+					onlyNegative &= p instanceof Not;
+				if (onlyNegative)
+				{
+					for (int p : this.pre[a])
+						absent.add(p);
+				}
+				this.adds[a] = this.getIds(action.getAddPropositions(), action);
+				
+				int[] dels = this.getIds(action.getDeletePropositions(), action);
+				this.achieves[a] = new int[this.adds[a].length + dels.length];
+				System.arraycopy(this.adds[a], 0, this.achieves[a], 0, this.adds[a].length);
+				System.arraycopy(dels, 0, this.achieves[a], this.adds[a].length, dels.length);
+				
+				if (this.pre[a].length == 0)
+					always.add(a);
+			}
+			
+			this.alwaysApplicable = new int[always.size()];
+			for (int i = 0; i < always.size(); i++)
+				this.alwaysApplicable[i] = always.get(i);
+			
+			this.absentNots = new int[absent.size()];
+			int absentCount = 0;
+			for (int n : absent)
+				this.absentNots[absentCount++] = n;
+			
+			this.enables = invert(this.pre, factCount);
+
+			this.achievers = invert(this.achieves, factCount);
+			
+			this.impliedNots = new int[factCount][];
+			int[] mark = new int[factCount];
+			int[] buf = new int[factCount];
+			boolean negative = false;
+			for (int f = 0; f < factCount; f++)
+			{
+				int count = 0;
+				for (int a : this.enables[f])
+				{
+					for (int p : this.pre[a])
+					{
+						if (p >= this.propCount && mark[p] != f + 1)
+						{
+							mark[p] = f + 1;
+							buf[count++] = p;
+						}
+					}
+				}
+				this.impliedNots[f] = Arrays.copyOf(buf, count);
+				negative |= f >= this.propCount && this.enables[f].length > 0;
+			}
+			this.hasNegativePreconditions = negative;
+			
+			this.propWords = (this.propCount + 63) >>> 6;
+			this.maxIncrementalChanges = Math.max(16, factCount / 8);
+			this.maxIncrementalAffected = Math.max(16, factCount / 4);
+			this.updates = new AtomicInteger();
+			this.fallbacks = new AtomicInteger();
+		}
+		
+		/**
+		 * Returns false if at least three quarters of the first {@link ArrayRelaxedPlanningGraph#UpdateTrials} 
+		 * incremental updates needed a full expansion, in which case the problem is one where a change to a few 
+		 * facts changes most of the graph, and so the work of updating, and of expanding the parent graph in 
+		 * full, is wasted.
+		 */
+		protected boolean isUpdateWorthwhile()
+		{
+			int n = this.updates.get();
+			return n < UpdateTrials || this.fallbacks.get() * 4 < UpdateTrials * 3;
+		}
+		
+		/**
+		 * Records the outcome of an incremental update. Only the first {@link ArrayRelaxedPlanningGraph#UpdateTrials}
+		 * are counted, and the count itself stops growing soon after, once every thread has seen it reached.
+		 */
+		protected void recordUpdate(boolean updated)
+		{
+			if (this.updates.get() >= UpdateTrials)
+				return;
+			
+			if (this.updates.getAndIncrement() < UpdateTrials && updated == false)
+				this.fallbacks.incrementAndGet();
+		}
+		
+		/**
+		 * Returns the facts of the specified state as a bitset. The first {@link #propWords} words hold the 
+		 * propositions which are true, and the remainder the propositions whose negation is true.
+		 */
+		protected long[] getLayerZero(STRIPSState s)
+		{
+			int words = this.propWords;
+			if (s instanceof BitSetSTRIPSState && ((BitSetSTRIPSState) s).getFactIndex() == this.index)
+			{
+				long[] trueWords = ((BitSetSTRIPSState) s).trueWords;
+				long[] negatedWords = ((BitSetSTRIPSState) s).negatedWords;
+				long[] layerZero = new long[words * 2];
+				System.arraycopy(trueWords, 0, layerZero, 0, Math.min(words, trueWords.length));
+				System.arraycopy(negatedWords, 0, layerZero, words, Math.min(words, negatedWords.length));
+				return layerZero;
+			}
+			
+			long[] layerZero = new long[words * 2];
+			for (Fact f : s.getTrueFacts())
+			{
+				int id = this.getId(f);
+				if (id >= 0)
+					layerZero[id >>> 6] |= 1L << id;
+			}
+			for (Not f : s.getFalseFacts())
+			{
+				int id = this.getId(f);
+				if (id >= 0)
+				{
+					id -= this.propCount;
+					layerZero[words + (id >>> 6)] |= 1L << id;
+				}
+			}
+			
+			return layerZero;
+		}
+		
+		/**
+		 * Returns the fact ID of the specified bit of a bitset returned by {@link #getLayerZero(STRIPSState)}.
+		 */
+		protected int getFactId(int word, int bit)
+		{
+			if (word < this.propWords)
+				return (word << 6) + bit;
+			
+			return this.propCount + ((word - this.propWords) << 6) + bit;
+		}
+		
+		/**
+		 * Returns whether the specified fact is set in a bitset returned by {@link #getLayerZero(STRIPSState)}.
+		 */
+		protected boolean isInLayerZero(long[] layerZero, int f)
+		{
+			if (f >= this.propCount)
+				return BitSetSTRIPSState.isSet(layerZero, (this.propWords << 6) + f - this.propCount);
+			
+			return BitSetSTRIPSState.isSet(layerZero, f);
+		}
+		
+		/**
+		 * Returns the fact with the specified ID.
+		 */
+		protected Fact getFact(int id)
+		{
+			if (id >= this.propCount)
+				return FactTable.getInstance().negate(this.index.getFact(id - this.propCount));
+			
+			return this.index.getFact(id);
+		}
+		
+		/**
+		 * Returns the ID of the specified fact, {@link #TRUE} if it is always true, or -1 if it is not indexed.
+		 */
+		protected int getId(Fact f)
+		{
+			if (f instanceof TrueCondition)
+				return TRUE;
+			
+			if (f instanceof Not)
+			{
+				Fact literal = ((Not) f).getLiteral();
+				if (literal instanceof Proposition == false)
+					return -1;
+				
+				int id = this.index.getId(literal);
+				return id < 0 ? -1 : this.propCount + id;
+			}
+			
+			if (f instanceof Proposition)
+				return this.index.getId(f);
+			
+			return -1;
+		}
+		
+		private int[] getIds(Set<? extends Fact> facts, Action a)
+		{
+			int[] ids = new int[facts.size()];
+			int count = 0;
+			for (Fact f : facts)
+			{
+				int id = this.getId(f);
+				if (id == TRUE)
+					continue;
+				if (id < 0)
+					throw new IllegalArgumentException("Action "+a+" contains fact "+f+" which cannot be indexed");
+				
+				ids[count++] = id;
+			}
+			
+			return Arrays.copyOf(ids, count);
+		}
+		
+		private static int[][] invert(int[][] relation, int size)
+		{
+			int[] counts = new int[size];
+			for (int[] targets : relation)
+			{
+				for (int t : targets)
+					counts[t]++;
+			}
+			
+			int[][] inverse = new int[size][];
+			for (int t = 0; t < size; t++)
+			{
+				inverse[t] = new int[counts[t]];
+				counts[t] = 0;
+			}
+			
+			for (int s = 0; s < relation.length; s++)
+			{
+				for (int t : relation[s])
+					inverse[t][counts[t]++] = s;
+			}
+			
+			return inverse;
+		}
+		
+		/**
+		 * Returns the working memory used to evaluate a state. Each thread has its own, so different
+		 * branches of the graph can be evaluated concurrently.
+		 */
+		protected Scratch getScratch()
+		{
+			Scratch s = this.scratch.get();
+			if (s == null)
+			{
+				s = new Scratch(this.propCount * 2, this.actions.length);
+				this.scratch.set(s);
+			}
+			
+			return s;
+		}
+	}
+	
+	/**
+	 * The facts in layer 0 of a graph, from which its branches are updated. The graph expanded from them is
+	 * only computed when the first branch is evaluated, and is softly held so that it can be discarded if 
+	 * memory is short, in which case it is computed again.
+	 */
+	protected static class Baseline
+	{
+		protected final long[] layerZero;
+		private SoftReference<Levels> levels;
+		
+		protected Baseline(long[] layerZero)
+		{
+			this.layerZero = layerZero;
+			this.levels = null;
+		}
+		
+		protected synchronized Levels getLevels(ArrayRelaxedPlanningGraph graph, Scratch sc)
+		{
+			Levels l = this.levels == null ? null : this.levels.get();
+			if (l == null)
+			{
+				l = graph.getFixpoint(this.layerZero, sc);
+				this.levels = new SoftReference<Levels>(l);
+			}
+			
+			return l;
+		}
+	}
+	
+	/**
+	 * The layer of every fact and action, and the difficulty of every action, in a graph which has been
+	 * expanded until it levels off. 
+	 */
+	protected static class Levels
+	{
+		protected final int[] factLayer, actionLayer, difficulty;
+		
+		protected Levels(int[] factLayer, int[] actionLayer, int[] difficulty)
+		{
+			this.factLayer = factLayer;
+			this.actionLayer = actionLayer;
+			this.difficulty = difficulty;
+		}
+	}
+	
+	/**
+	 * The working memory used to expand the graph and extract a plan. This is reused for every evaluation, 
+	 * and only the entries which were modified by the last evaluation are reset.
+	 */
+	protected static class Scratch
+	{
+		protected final int[] factLayer, actionLayer, counter, difficulty;
+		protected final int[] reached, touchedActions, newActions;
+		protected int reachedCount, touchedActionCount, newActionCount, layer;
+		/** The facts added at the current layer are marked with addedStamp, if they are needed. */
+		protected final int[] addedMark;
+		protected int addedStamp;
+		
+		protected final int[] goalMarkA, goalMarkB, chosenMark, goalsA, goalsB, chosenStart;
+		protected final int[] chosen;
+		protected int stamp;
+		
+		/** Used only when updating a graph incrementally. */
+		protected final int[] factMark, changedMark, affected, changed, actionMark, watchMark, watched, recompute;
+		protected int[] heapFact, heapLayer;
+		protected int heapSize;
+		/** Whether the layer arrays were filled by an incremental update, so must be cleared in full. */
+		protected boolean overwritten;
+		
+		protected Scratch(int factCount, int actionCount)
+		{
+			this.factLayer = new int[factCount];
+			this.actionLayer = new int[actionCount];
+			this.counter = new int[actionCount];
+			this.difficulty = new int[actionCount];
+			Arrays.fill(this.factLayer, -1);
+			Arrays.fill(this.actionLayer, -1);
+			
+			this.reached = new int[factCount];
+			this.touchedActions = new int[actionCount];
+			this.newActions = new int[actionCount];
+			this.addedMark = new int[factCount];
+			this.addedStamp = 0;
+			
+			this.goalMarkA = new int[factCount];
+			this.goalMarkB = new int[factCount];
+			this.chosenMark = new int[actionCount];
+			this.goalsA = new int[factCount];
+			this.goalsB = new int[factCount];
+			this.chosen = new int[factCount + 1];
+			this.chosenStart = new int[factCount + 2];
+			this.stamp = 0;
+			
+			this.factMark = new int[factCount];
+			this.changedMark = new int[factCount];
+			this.affected = new int[factCount];
+			this.changed = new int[factCount];
+			this.actionMark = new int[actionCount];
+			this.watchMark = new int[actionCount];
+			this.watched = new int[actionCount];
+			this.recompute = new int[actionCount];
+			this.heapFact = new int[16];
+			this.heapLayer = new int[16];
+			this.heapSize = 0;
+			this.overwritten = false;
+		}
+		
+		protected void reset()
+		{
+			if (this.overwritten)
+			{
+				Arrays.fill(this.factLayer, -1);
+				Arrays.fill(this.actionLayer, -1);
+				Arrays.fill(this.difficulty, 0);
+				this.overwritten = false;
+			}
+			
+			for (int i = 0; i < this.reachedCount; i++)
+				this.factLayer[this.reached[i]] = -1;
+			
+			for (int i = 0; i < this.touchedActionCount; i++)
+			{
+				int a = this.touchedActions[i];
+				this.actionLayer[a] = -1;
+				this.counter[a] = 0;
+				this.difficulty[a] = 0;
+			}
+			
+			this.reachedCount = 0;
+			this.touchedActionCount = 0;
+			this.newActionCount = 0;
+			this.layer = 0;
+		}
+		
+		/**
+		 * Adds a fact to the queue of facts to be placed at a layer, ordered by layer.
+		 */
+		protected void push(int f, int layer)
+		{
+			if (this.heapSize == this.heapFact.length)
+			{
+				this.heapFact = Arrays.copyOf(this.heapFact, this.heapSize * 2);
+				this.heapLayer = Arrays.copyOf(this.heapLayer, this.heapSize * 2);
+			}
+			
+			int i = this.heapSize++;
+			while (i > 0)
+			{
+				int parent = (i - 1) >>> 1;
+				if (this.heapLayer[parent] <= layer)
+					break;
+				
+				this.heapFact[i] = this.heapFact[parent];
+				this.heapLayer[i] = this.heapLayer[parent];
+				i = parent;
+			}
+			this.heapFact[i] = f;
+			this.heapLayer[i] = layer;
+		}
+		
+		/**
+		 * Removes the fact with the lowest layer from the queue and returns it. 
+		 */
+		protected int pop()
+		{
+			int top = this.heapFact[0];
+			int n = --this.heapSize;
+			int f = this.heapFact[n], layer = this.heapLayer[n];
+			int i = 0;
+			while (true)
+			{
+				int c = 2 * i + 1;
+				if (c >= n)
+					break;
+				if (c + 1 < n && this.heapLayer[c + 1] < this.heapLayer[c])
+					++c;
+				if (this.heapLayer[c] >= layer)
+					break;
+				
+				this.heapFact[i] = this.heapFact[c];
+				this.heapLayer[i] = this.heapLayer[c];
+				i = c;
+			}
+			this.heapFact[i] = f;
+			this.heapLayer[i] = layer;
+			
+			return top;
+		}
+	}}
@@ -0,0 +1,450 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.planning;
+
+import javaff.data.Action;
+import javaff.data.Fact;
+import javaff.data.GroundFact;
+import javaff.data.TotalOrderPlan;
+import javaff.data.strips.FactTable;
+import javaff.data.strips.Not;
+import javaff.data.strips.Proposition;
+import javaff.data.strips.TrueCondition;
+
+import java.math.BigDecimal;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link STRIPSState} which stores its true and negated facts as bitsets over the dense fact IDs
+ * of a {@link FactIndex}, rather than as sets of {@link Fact} objects. Applying an action therefore only copies
+ * two long arrays, and equality and hashing are performed on whole words.
+ * <p>
+ * The fact sets returned by {@link #getTrueFacts()} and {@link #getFalseFacts()} are read-only views
+ * over the bitsets, so code written against STRIPSState works unchanged. Facts must be added and removed 
+ * through {@link #addFact(Fact)} and {@link #removeFact(Fact)}.
+ * <p>
+ * Note that a BitSetSTRIPSState is only ever equal to another BitSetSTRIPSState -- a search should not
+ * mix the two representations.
+ * 
+ * @see FactIndex
+ * @see javaff.data.GroundProblem#recomputeBitSetSTRIPSInitialState()
+ */
+public class BitSetSTRIPSState extends STRIPSState
+{
+	protected FactIndex index;
+	protected long[] trueWords;
+	protected long[] negatedWords;
+
+	/**
+	 * Create a new state with the specified true facts.
+	 * @param index The index which all facts in this state (and its successors) are part of.
+	 * @param actions The actions which can be applied.
+	 * @param trueFacts The facts which are true in this state. Any Nots will be added as negated facts.
+	 * @param goal The goal.
+	 * @throws IllegalArgumentException Thrown if any of the facts are not part of the index.
+	 */
+	public BitSetSTRIPSState(FactIndex index, Set<Action> actions, Collection<? extends Fact> trueFacts, GroundFact goal)
+	{
+		this(index, actions, new long[index.getWordCount()], new long[index.getWordCount()], goal);
+		
+		for (Fact f : trueFacts)
+			this.addFact(f);
+	}
+	
+	protected BitSetSTRIPSState(FactIndex index, Set<Action> actions, long[] trueWords, long[] negatedWords, GroundFact goal)
+	{
+		super();
+		
+		this.index = index;
+		this.actions = actions;
+		this.goal = goal;
+		this.trueWords = trueWords;
+		this.negatedWords = negatedWords;
+		
+		this.factsTrue = new TrueFactSet();
+		this.factsNegated = new NegatedFactSet();
+	}
+	
+	/**
+	 * Returns the fact index which this state's bitsets are defined over.
+	 * @return
+	 */
+	public FactIndex getFactIndex()
+	{
+		return index;
+	}
+
+	@Override
+	protected STRIPSState createSuccessorState()
+	{
+		return new BitSetSTRIPSState(this.index, this.actions, this.trueWords.clone(), this.negatedWords.clone(), this.goal);
+	}
+	
+	@Override
+	public void addFact(Fact f)
+	{
+		if (f instanceof Proposition)
+		{
+			int id = this.getIndexedId(f);
+			long mask = 1L << id;
+			if ((this.trueWords[id >>> 6] & mask) == 0)
+			{
+				if (this.factsHashValid)
+					this.factsHash ^= FactTable.getKey(id);
+				this.factIdsValid = false;
+			}
+			this.trueWords[id >>> 6] |= mask;
+		}
+		else if (TrueCondition.isSimpleTrue(f) == 1)
+		{
+			return; //always true, so no need to store it
+		}
+		else if (f instanceof Not)
+		{
+			Fact literal = ((Not) f).getLiteral();
+			if (literal instanceof Not)
+				this.addFact(((Not) literal).getLiteral()); //recurse
+			else if (literal instanceof Proposition == false)
+				throw new IllegalArgumentException("STRIPSState only supports Propositions and Nots whose literal is also a Proposition");
+			else
+			{
+				int id = this.getIndexedId(literal);
+				this.negatedWords[id >>> 6] |= 1L << id;
+			}
+		}
+		else
+			throw new IllegalArgumentException("Invalid fact type. Must be of type Proposition or Not.");
+	}
+	
+	@Override
+	public boolean removeFact(Fact f)
+	{
+		if (f instanceof Proposition)
+		{
+			int id = this.index.getId(f);
+			boolean removed = this.clearBit(this.trueWords, id);
+			if (removed && this.factsHashValid)
+				this.factsHash ^= FactTable.getKey(id);
+			if (removed)
+				this.factIdsValid = false;
+			
+			return removed;
+		}
+		else if (f instanceof Not)
+		{
+			Fact literal = ((Not) f).getLiteral();
+			if (literal instanceof Not)
+				return this.removeFact(((Not) literal).getLiteral()); //recurse
+			else if (literal instanceof Proposition == false)
+				throw new IllegalArgumentException("STRIPSState only supports Propositions and Nots whose literal is also a Proposition");
+			else
+				return this.clearBit(this.negatedWords, this.index.getId(literal));
+		}
+		else
+			throw new IllegalArgumentException("STRIPSState only supports Propositions and Nots");
+	}
+	
+	private int getIndexedId(Fact f)
+	{
+		int id = this.index.getId(f);
+		if (id < 0)
+			throw new IllegalArgumentException("Fact "+f+" is not part of this state's fact index");
+		
+		return id;
+	}
+	
+	private boolean clearBit(long[] words, int id)
+	{
+		if (id < 0)
+			return false;
+		
+		long mask = 1L << id;
+		boolean wasSet = (words[id >>> 6] & mask) != 0;
+		words[id >>> 6] &= ~mask;
+		return wasSet;
+	}
+	
+	static boolean isSet(long[] words, int id)
+	{
+		return id >= 0 && (words[id >>> 6] & (1L << id)) != 0;
+	}
+	
+	@Override
+	public boolean isTrue(Fact p)
+	{
+		//fast path for the common case -- anything else is handled by the STRIPSState implementation, which
+		//will in turn query the fact views
+		if (p instanceof Proposition && p.isStatic() == false)
+			return isSet(this.trueWords, this.index.getId(p));
+		
+		return super.isTrue(p);
+	}
+	
+	@Override
+	public Object clone()
+	{
+		BitSetSTRIPSState SS = new BitSetSTRIPSState(this.index, new HashSet<Action>(this.actions), 
+				this.trueWords.clone(), this.negatedWords.clone(), (GroundFact) this.goal.clone());
+		SS.plan = (TotalOrderPlan) this.getPlan().clone();
+		
+		if (this.RPG != null)
+		{
+			SS.RPG = (RelaxedPlanningGraph) this.RPG.clone();
+			SS.RPCalculated = this.RPCalculated;
+		}
+		
+		if (this.HValue != null)
+		{
+			SS.HValue = new BigDecimal(this.HValue.toString());
+			SS.HValueLong = this.HValueLong;
+		}
+		
+		SS.heuristicCache = this.heuristicCache;
+		SS.metrics = this.metrics;
+		SS.helpfulActions = this.helpfulActions;
+		SS.factsHash = this.factsHash;
+		SS.factsHashValid = this.factsHashValid;
+		SS.factIds = this.factIds;
+		SS.factIdsValid = this.factIdsValid;
+		
+		return SS;
+	}
+	
+	/**
+	 * Computes the Zobrist hash of the true facts in this state from their IDs in the fact index, rather 
+	 * than in the {@link FactTable}, so it is only comparable with that of other states with the same index.
+	 */
+	@Override
+	protected long computeFactsHash()
+	{
+		long hash = 0;
+		for (int w = 0; w < this.trueWords.length; w++)
+		{
+			for (long word = this.trueWords[w]; word != 0; word &= word - 1)
+				hash ^= FactTable.getKey((w << 6) + Long.numberOfTrailingZeros(word));
+		}
+		
+		return hash;
+	}
+	
+	/**
+	 * Decodes the IDs of the true facts from the words of this state. These are the IDs of the fact index 
+	 * rather than of the {@link FactTable}, so are only comparable with those of other states with the same 
+	 * index, as with {@link #computeFactsHash()}.
+	 */
+	@Override
+	protected int[] computeFactIds()
+	{
+		int[] ids = new int[this.factsTrue.size()];
+		int count = 0;
+		for (int w = 0; w < this.trueWords.length; w++)
+		{
+			for (long word = this.trueWords[w]; word != 0; word &= word - 1)
+				ids[count++] = (w << 6) + Long.numberOfTrailingZeros(word);
+		}
+		
+		return ids;
+	}
+	
+	/**
+	 * Returns the number of words used to store the true facts of this state.
+	 * @return
+	 */
+	public int getWordCount()
+	{
+		return this.trueWords.length;
+	}
+	
+	/**
+	 * Copies the words which store the true facts of this state into the specified array.
+	 * @param dest The array to copy into.
+	 * @param offset The index of dest at which to start.
+	 */
+	public void copyWords(long[] dest, int offset)
+	{
+		System.arraycopy(this.trueWords, 0, dest, offset, this.trueWords.length);
+	}
+	
+	/**
+	 * Tests whether the true facts of this state are those stored in the specified array, as written by 
+	 * {@link #copyWords(long[], int)}.
+	 * @param src The array to compare against.
+	 * @param offset The index of src at which this state's words start.
+	 * @return
+	 */
+	public boolean wordsEqual(long[] src, int offset)
+	{
+		for (int i = 0; i < this.trueWords.length; i++)
+		{
+			if (src[offset + i] != this.trueWords[i])
+				return false;
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj instanceof BitSetSTRIPSState)
+		{
+			BitSetSTRIPSState s = (BitSetSTRIPSState) obj;
+			return Arrays.equals(s.trueWords, this.trueWords);
+		}
+		else
+			return false;
+	}
+	
+	/**
+	 * Base class for the read-only fact views returned by {@link BitSetSTRIPSState#getTrueFacts()} and
+	 * {@link BitSetSTRIPSState#getFalseFacts()}.
+	 */
+	private abstract class FactWordSet<F extends Fact> extends AbstractSet<F>
+	{
+		protected abstract long[] words();
+		
+		protected abstract F toFact(Proposition p);
+		
+		@Override
+		public int size()
+		{
+			int size = 0;
+			for (long w : this.words())
+				size += Long.bitCount(w);
+			
+			return size;
+		}
+		
+		@Override
+		public boolean isEmpty()
+		{
+			for (long w : this.words())
+			{
+				if (w != 0)
+					return false;
+			}
+			
+			return true;
+		}
+		
+		@Override
+		public Iterator<F> iterator()
+		{
+			final long[] words = this.words();
+			return new Iterator<F>()
+			{
+				private int next = this.find(0);
+				
+				private int find(int from)
+				{
+					int w = from >>> 6;
+					if (w >= words.length)
+						return -1;
+					
+					long word = words[w] & (-1L << from);
+					while (true)
+					{
+						if (word != 0)
+							return (w << 6) + Long.numberOfTrailingZeros(word);
+						if (++w == words.length)
+							return -1;
+						
+						word = words[w];
+					}
+				}
+				
+				@Override
+				public boolean hasNext()
+				{
+					return next >= 0;
+				}
+				
+				@Override
+				public F next()
+				{
+					if (next < 0)
+						throw new NoSuchElementException();
+					
+					F f = toFact(index.getFact(next));
+					next = this.find(next + 1);
+					return f;
+				}
+			};
+		}
+	}
+	
+	private class TrueFactSet extends FactWordSet<Fact>
+	{
+		@Override
+		protected long[] words()
+		{
+			return trueWords;
+		}
+		
+		@Override
+		protected Fact toFact(Proposition p)
+		{
+			return p;
+		}
+		
+		@Override
+		public boolean contains(Object o)
+		{
+			return o instanceof Proposition && isSet(trueWords, index.getId((Proposition) o));
+		}
+	}
+	
+	private class NegatedFactSet extends FactWordSet<Not>
+	{
+		@Override
+		protected long[] words()
+		{
+			return negatedWords;
+		}
+		
+		@Override
+		protected Not toFact(Proposition p)
+		{
+			return FactTable.getInstance().negate(p);
+		}
+		
+		@Override
+		public boolean contains(Object o)
+		{
+			return o instanceof Not && ((Not) o).getLiteral() instanceof Proposition 
+					&& isSet(negatedWords, index.getId(((Not) o).getLiteral()));
+		}
+	}
+}
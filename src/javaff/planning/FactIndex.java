@@ -0,0 +1,161 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.planning;
+
+import javaff.data.Action;
+import javaff.data.Fact;
+import javaff.data.GroundProblem;
+import javaff.data.strips.Not;
+import javaff.data.strips.Proposition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns a dense integer ID to every {@link Proposition} which can appear in a state of a
+ * {@link GroundProblem}. IDs start at 0 and are contiguous, so they can be used directly as
+ * indices into arrays and bitsets. A negated fact shares the ID of the proposition it wraps --
+ * it is up to the user of the index to store the two separately (see {@link BitSetSTRIPSState}).
+ * <p>
+ * An index is immutable once constructed, and can therefore be shared between any number of states.
+ * 
+ * @see BitSetSTRIPSState
+ */
+public class FactIndex
+{
+	private Map<Fact, Integer> ids;
+	private List<Proposition> facts;
+	
+	/**
+	 * Create an index over all propositions in the problem's reachable facts, initial state,
+	 * goal and action preconditions and effects.
+	 * @param gp The problem to index. This should have had {@link GroundProblem#filterReachableFacts()} called
+	 * on it first, otherwise the index will contain unreachable facts.
+	 */
+	public FactIndex(GroundProblem gp)
+	{
+		this();
+		
+		this.addAll(gp.getReachableFacts());
+		this.addAll(gp.getInitial());
+		this.addAll(gp.getGoal().getFacts());
+		for (Action a : gp.getActions())
+		{
+			this.addAll(a.getPreconditions());
+			this.addAll(a.getAddPropositions());
+			this.addAll(a.getDeletePropositions());
+		}
+	}
+	
+	/**
+	 * Create an index over the specified facts. Any {@link Not}s will have their literal indexed, all
+	 * other non-proposition facts are ignored.
+	 * @param facts
+	 */
+	public FactIndex(Collection<? extends Fact> facts)
+	{
+		this();
+		
+		this.addAll(facts);
+	}
+	
+	protected FactIndex()
+	{
+		this.ids = new HashMap<Fact, Integer>();
+		this.facts = new ArrayList<Proposition>();
+	}
+	
+	protected void addAll(Collection<? extends Fact> facts)
+	{
+		for (Fact f : facts)
+			this.add(f);
+	}
+	
+	protected void add(Fact f)
+	{
+		if (f instanceof Not)
+		{
+			this.add(((Not) f).getLiteral());
+		}
+		else if (f instanceof Proposition && this.ids.containsKey(f) == false)
+		{
+			this.ids.put(f, this.facts.size());
+			this.facts.add((Proposition) f);
+		}
+	}
+	
+	/**
+	 * Returns the ID of the specified fact. If the fact is a {@link Not}, the ID of its literal is returned. 
+	 * @param f
+	 * @return The ID of the fact, or -1 if it is not part of this index.
+	 */
+	public int getId(Fact f)
+	{
+		if (f instanceof Not)
+			return this.getId(((Not) f).getLiteral());
+		
+		Integer id = this.ids.get(f);
+		if (id == null)
+			return -1;
+		
+		return id;
+	}
+	
+	/**
+	 * Returns the proposition associated with the specified ID.
+	 * @param id
+	 * @return
+	 * @throws IndexOutOfBoundsException If the ID is not in this index.
+	 */
+	public Proposition getFact(int id)
+	{
+		return this.facts.get(id);
+	}
+	
+	/**
+	 * Returns the number of propositions in this index.
+	 * @return
+	 */
+	public int size()
+	{
+		return this.facts.size();
+	}
+	
+	/**
+	 * Returns the number of 64-bit words needed to store a bitset with one bit per fact in this index.
+	 * @return
+	 */
+	public int getWordCount()
+	{
+		return (this.facts.size() + 63) >>> 6;
+	}
+}
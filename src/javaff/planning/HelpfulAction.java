@@ -160,11 +160,21 @@ public class HelpfulAction extends STRIPSInstantAction
 		getHelpfulAction().setName(name);
 	}
 	
+	public long getOrdinal()
+	{
+		return getHelpfulAction().getOrdinal();
+	}
+	
+	public void setOrdinal(long ordinal)
+	{
+		getHelpfulAction().setOrdinal(ordinal);
+	}
+	
 	/**
 	 * Compares 2 helpful actions. If this helpful action achieves a higher number of goals than the other, -1 is
 	 * returned, or +1 if the opposite is true. If both achieve the same number of goals, the result is
 	 * dictated by {@link String#compareTo(String)}, where the strings compared are the result of calling toString() on 
-	 * both actions. In practice, it is assumed that both actions will never have the same result of calling
+	 * both actions, or by the ordinals of the wrapped actions if they have them. In practice, it is assumed that both actions will never have the same result of calling
 	 * toString(), i.e. that 0 is returned. 
 	 * @see #getGoalsAchieved()
 	 * @see String#compareTo(String)
@@ -178,7 +188,7 @@ public class HelpfulAction extends STRIPSInstantAction
 				return -1;
 			else if (this.getGoalsAchieved() == ((HelpfulAction) o).getGoalsAchieved())
 			{
-				int res = this.toString().compareTo(o.toString());
+				int res = this.compareSignature(o);
 				
 				//in an ADL-world, we may have a single ADL action which was decompiled
 				//into multiple STRIPS actions -- which would probably have the same action signature
@@ -220,6 +230,12 @@ public class HelpfulAction extends STRIPSInstantAction
 	{
 		return action.getCost();
 	}
+	
+	@Override
+	public long getCostLong()
+	{
+		return action.getCostLong();
+	}
 
 	public void setCost(BigDecimal cost)
 	{
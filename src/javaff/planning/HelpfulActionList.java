@@ -0,0 +1,187 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+package javaff.planning;
+
+import javaff.data.Action;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The helpful actions found while extracting a relaxed plan, held as parallel arrays of actions and the number 
+ * of layer 1 goals each achieves rather than as {@link HelpfulAction} wrappers in a sorted set. Actions are 
+ * ranked -- those which achieve the most goals come first, with ties broken by {@link Action#compareTo(Action)} 
+ * -- so this is the same order as the set of wrappers would have given.
+ * <p>
+ * A list is built by a {@link Builder} during a single relaxed plan extraction, and cannot be modified once it 
+ * has been built, so it can be shared between states, graph clones and the heuristic cache without copying.
+ * Every action in it was applicable in the state the relaxed plan was extracted from, so searches need not 
+ * check this again for that state.
+ */
+public class HelpfulActionList extends AbstractList<Action> implements RandomAccess
+{
+	/**
+	 * A list with no actions.
+	 */
+	public static final HelpfulActionList Empty = new HelpfulActionList(new Action[0], new int[0]);
+	
+	private final Action[] actions;
+	private final int[] goalsAchieved;
+	
+	private HelpfulActionList(Action[] actions, int[] goalsAchieved)
+	{
+		this.actions = actions;
+		this.goalsAchieved = goalsAchieved;
+	}
+	
+	@Override
+	public Action get(int rank)
+	{
+		if (rank >= this.actions.length)
+			throw new IndexOutOfBoundsException(rank + " >= " + this.actions.length);
+		
+		return this.actions[rank];
+	}
+	
+	/**
+	 * Gets the number of layer 1 goals achieved by the action at the specified rank.
+	 * @param rank
+	 * @return
+	 */
+	public int getGoalsAchieved(int rank)
+	{
+		if (rank >= this.actions.length)
+			throw new IndexOutOfBoundsException(rank + " >= " + this.actions.length);
+		
+		return this.goalsAchieved[rank];
+	}
+	
+	@Override
+	public int size()
+	{
+		return this.actions.length;
+	}
+	
+	/**
+	 * Collects the helpful actions of a single relaxed plan extraction in ranked order.
+	 */
+	public static class Builder
+	{
+		private Action[] actions;
+		private int[] goalsAchieved;
+		private int size;
+		
+		public Builder()
+		{
+			this(8);
+		}
+		
+		public Builder(int capacity)
+		{
+			this.actions = new Action[Math.max(1, capacity)];
+			this.goalsAchieved = new int[this.actions.length];
+			this.size = 0;
+		}
+		
+		/**
+		 * Adds an action in ranked order. An action which is already present with the same number of goals 
+		 * achieved is ignored.
+		 * @param a The action, which must be applicable in the state being evaluated.
+		 * @param goalsAchieved The number of layer 1 goals it achieves.
+		 * @return True if the action was added.
+		 */
+		public boolean add(Action a, int goalsAchieved)
+		{
+			int low = 0;
+			int high = this.size - 1;
+			while (low <= high)
+			{
+				int mid = (low + high) >>> 1;
+				int cmp = this.compare(a, goalsAchieved, mid);
+				if (cmp > 0)
+					low = mid + 1;
+				else if (cmp < 0)
+					high = mid - 1;
+				else
+					return false;
+			}
+			
+			if (this.size == this.actions.length)
+			{
+				this.actions = Arrays.copyOf(this.actions, this.size * 2);
+				this.goalsAchieved = Arrays.copyOf(this.goalsAchieved, this.size * 2);
+			}
+			
+			System.arraycopy(this.actions, low, this.actions, low + 1, this.size - low);
+			System.arraycopy(this.goalsAchieved, low, this.goalsAchieved, low + 1, this.size - low);
+			this.actions[low] = a;
+			this.goalsAchieved[low] = goalsAchieved;
+			++this.size;
+			
+			return true;
+		}
+		
+		/**
+		 * Compares an action to the one at the specified rank, in the same way as 
+		 * {@link HelpfulAction#compareTo(Action)}.
+		 */
+		protected int compare(Action a, int goalsAchieved, int rank)
+		{
+			int other = this.goalsAchieved[rank];
+			if (goalsAchieved != other)
+				return goalsAchieved > other ? -1 : +1;
+			
+			Action b = this.actions[rank];
+			int res = a.compareTo(b);
+			if (res == 0)
+				res = Integer.compare(a.hashCode(), b.hashCode());
+			
+			return res;
+		}
+		
+		public int size()
+		{
+			return this.size;
+		}
+		
+		/**
+		 * Returns a list of the actions added so far. The builder can still be used afterwards, and does not 
+		 * affect the list returned.
+		 * @return
+		 */
+		public HelpfulActionList build()
+		{
+			if (this.size == 0)
+				return HelpfulActionList.Empty;
+			
+			return new HelpfulActionList(Arrays.copyOf(this.actions, this.size), 
+					Arrays.copyOf(this.goalsAchieved, this.size));
+		}
+	}
+}
@@ -45,7 +45,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.SortedSet;
 import java.util.TreeSet;
 
 public class HelpfulFilter implements Filter
@@ -66,19 +65,22 @@ public class HelpfulFilter implements Filter
 	public List<Action> getActions(State S)
 	{
 		STRIPSState SS = (STRIPSState) S;
-		SS.calculateRP(); // get the relaxed plan to the goal, to make sure
-							// helpful actions exist for S
-
-		SortedSet<HelpfulAction> allHelpful = SS.getRPG().getHelpfulActions(); //returned in sorted order!
-		ArrayList<Action> allHelpfulApplicable = new ArrayList<Action>();
+		// get the relaxed plan to the goal, to make sure helpful actions exist for S
+		HelpfulActionList allHelpful = SS.getHelpfulActions(); //returned in sorted order!
+		
+		//most helpful are at the start of the list, and all are known to be applicable in S if it was extracted 
+		//from S. A list found in the heuristic cache is only known to come from a state with the same true facts, 
+		//whose negated facts may differ
+		if (SS.isHelpfulActionsExtracted())
+			return new ArrayList<Action>(allHelpful);
 		
-		//most helpful are at the start of the iterator
+		ArrayList<Action> allHelpfulApplicable = new ArrayList<Action>();
 		for (Action a : allHelpful)
 		{
 			if (a.isApplicable(SS))
 				allHelpfulApplicable.add(a);
 		}
-
+		
 		return allHelpfulApplicable;
 	}
 	
@@ -0,0 +1,346 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.planning;
+
+import javaff.data.Plan;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * A bounded cache of the heuristic values of states which have already been evaluated, keyed by the 64-bit
+ * fingerprint of each state. Searches regularly reach states which they have evaluated before -- EHC after
+ * it restarts from a new best state, and best-first search before it rejects duplicates -- and the cache 
+ * allows their relaxed plans to be reused rather than extracted again.
+ * <p>
+ * When the cache is full, entries are evicted using the CLOCK algorithm, so an entry which has been hit 
+ * since the clock hand last passed it is kept for another cycle. Each entry also holds the IDs of the true
+ * facts of its state, and a lookup only hits if these are the same as those of the state being looked up. 
+ * A fingerprint collision is therefore a miss, and never gives a state the relaxed plan or helpful actions
+ * of another.
+ * <p>
+ * A cache is shared by every successor of the state it is given to, and can be used by several threads
+ * at once.
+ */
+public class HeuristicCache
+{
+	public static final int DefaultCapacity = 1 << 16;
+	
+	/**
+	 * The heuristic value of a state, along with the relaxed plan which gave it, and optionally its helpful
+	 * actions.
+	 */
+	public static class Entry
+	{
+		private final int[] factIds;
+		private final BigDecimal hValue;
+		private final Plan relaxedPlan;
+		private final HelpfulActionList helpfulActions;
+		
+		/**
+		 * Create an entry for a state.
+		 * @param factIds The IDs of the true facts of the state, as returned by {@link STRIPSState#getFactIds()}.
+		 * @param hValue
+		 * @param relaxedPlan
+		 * @param helpfulActions
+		 */
+		public Entry(int[] factIds, BigDecimal hValue, Plan relaxedPlan, HelpfulActionList helpfulActions)
+		{
+			this.factIds = factIds;
+			this.hValue = hValue;
+			this.relaxedPlan = relaxedPlan;
+			this.helpfulActions = helpfulActions;
+		}
+		
+		/**
+		 * Returns the IDs of the true facts of the state this entry was stored for.
+		 * @return
+		 */
+		public int[] getFactIds()
+		{
+			return factIds;
+		}
+		
+		public BigDecimal getHValue()
+		{
+			return hValue;
+		}
+		
+		/**
+		 * Returns the relaxed plan, or null if the goal was unreachable.
+		 * @return
+		 */
+		public Plan getRelaxedPlan()
+		{
+			return relaxedPlan;
+		}
+		
+		/**
+		 * Returns the helpful actions, or null if they were not stored.
+		 * @return
+		 */
+		public HelpfulActionList getHelpfulActions()
+		{
+			return helpfulActions;
+		}
+	}
+	
+	private final int capacity;
+	private final boolean storeHelpfulActions;
+	
+	/** Fingerprint of the entry in each slot of the table, 0 if the slot is empty. */
+	private final long[] keys;
+	/** Index of the entry stored in each slot of the table. */
+	private final int[] slots;
+	private final int mask;
+	
+	/** The value, slot and referenced bit of each entry, in the order the clock hand visits them. */
+	private final Entry[] entries;
+	private final int[] entrySlots;
+	private final boolean[] referenced;
+	private int size;
+	private int hand;
+	
+	private long hits, misses, evictions;
+	
+	public HeuristicCache()
+	{
+		this(DefaultCapacity, true);
+	}
+	
+	/**
+	 * Create a cache which holds at most the specified number of entries.
+	 * @param capacity The maximum number of entries.
+	 * @param storeHelpfulActions Whether the helpful actions of each state are stored along with its relaxed
+	 * plan. If not, they are found by evaluating the state again when they are needed.
+	 */
+	public HeuristicCache(int capacity, boolean storeHelpfulActions)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("Heuristic cache capacity must be positive");
+		
+		int tableSize = Integer.highestOneBit(Math.max(16, capacity * 2) - 1) << 1;
+		
+		this.capacity = capacity;
+		this.storeHelpfulActions = storeHelpfulActions;
+		this.keys = new long[tableSize];
+		this.slots = new int[tableSize];
+		this.mask = tableSize - 1;
+		this.entries = new Entry[capacity];
+		this.entrySlots = new int[capacity];
+		this.referenced = new boolean[capacity];
+		this.size = 0;
+		this.hand = 0;
+		
+		this.hits = 0;
+		this.misses = 0;
+		this.evictions = 0;
+	}
+	
+	/**
+	 * Returns the entry stored for the state with the fingerprint and facts, or null if there is none.
+	 * @param fingerprint
+	 * @param factIds The IDs of the true facts of the state, as returned by {@link STRIPSState#getFactIds()}.
+	 * @return
+	 */
+	public synchronized Entry get(long fingerprint, int[] factIds)
+	{
+		long key = nonZero(fingerprint);
+		int slot = this.find(key);
+		if (this.keys[slot] == 0 || Arrays.equals(this.entries[this.slots[slot]].getFactIds(), factIds) == false)
+		{
+			++this.misses;
+			return null;
+		}
+		
+		++this.hits;
+		int entry = this.slots[slot];
+		this.referenced[entry] = true;
+		return this.entries[entry];
+	}
+	
+	/**
+	 * Stores the entry for the fingerprint, replacing any existing entry. If the cache is full, the entry 
+	 * chosen by the clock hand is evicted to make room.
+	 * @param fingerprint
+	 * @param entry
+	 */
+	public synchronized void put(long fingerprint, Entry entry)
+	{
+		long key = nonZero(fingerprint);
+		int slot = this.find(key);
+		if (this.keys[slot] != 0)
+		{
+			this.entries[this.slots[slot]] = entry;
+			return;
+		}
+		
+		int index;
+		if (this.size < this.capacity)
+		{
+			index = this.size++;
+		}
+		else
+		{
+			//advance the hand past recently used entries, giving each a second chance
+			while (this.referenced[this.hand])
+			{
+				this.referenced[this.hand] = false;
+				this.hand = (this.hand + 1) % this.capacity;
+			}
+			
+			index = this.hand;
+			this.hand = (this.hand + 1) % this.capacity;
+			this.removeSlot(this.entrySlots[index]);
+			++this.evictions;
+			
+			//removing the evicted key may have moved the slot the new key belongs in
+			slot = this.find(key);
+		}
+		
+		this.keys[slot] = key;
+		this.slots[slot] = index;
+		this.entries[index] = entry;
+		this.entrySlots[index] = slot;
+		this.referenced[index] = false;
+	}
+	
+	/**
+	 * Returns whether the helpful actions of each state are stored along with its relaxed plan.
+	 * @return
+	 */
+	public boolean isStoreHelpfulActions()
+	{
+		return storeHelpfulActions;
+	}
+	
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	public synchronized int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Returns the number of lookups which found an entry.
+	 * @return
+	 */
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of lookups which did not find an entry.
+	 * @return
+	 */
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+	
+	/**
+	 * Returns the number of entries which have been evicted to make room for others.
+	 * @return
+	 */
+	public synchronized long getEvictions()
+	{
+		return evictions;
+	}
+	
+	/**
+	 * Removes all entries from this cache and resets its counters.
+	 */
+	public synchronized void clear()
+	{
+		Arrays.fill(this.keys, 0);
+		Arrays.fill(this.entries, 0, this.size, null);
+		Arrays.fill(this.referenced, false);
+		this.size = 0;
+		this.hand = 0;
+		this.hits = 0;
+		this.misses = 0;
+		this.evictions = 0;
+	}
+	
+	@Override
+	public synchronized String toString()
+	{
+		return this.hits + " hits, " + this.misses + " misses, " + this.evictions + " evictions, " + 
+				this.size + "/" + this.capacity + " entries";
+	}
+	
+	/**
+	 * Returns the slot containing the key, or the empty slot at which it would be stored.
+	 */
+	private int find(long key)
+	{
+		int slot = (int) (key ^ (key >>> 32)) & this.mask;
+		while (this.keys[slot] != 0 && this.keys[slot] != key)
+			slot = (slot + 1) & this.mask;
+		
+		return slot;
+	}
+	
+	/**
+	 * Empties a slot of the table, moving back any later keys in the same run which would no longer be 
+	 * found past the gap.
+	 */
+	private void removeSlot(int gap)
+	{
+		int slot = gap;
+		while (true)
+		{
+			slot = (slot + 1) & this.mask;
+			long key = this.keys[slot];
+			if (key == 0)
+				break;
+			
+			//a key can fill the gap if its home slot is not cyclically between the gap and its slot
+			int home = (int) (key ^ (key >>> 32)) & this.mask;
+			if (((slot - home) & this.mask) >= ((slot - gap) & this.mask))
+			{
+				this.keys[gap] = key;
+				this.slots[gap] = this.slots[slot];
+				this.entrySlots[this.slots[slot]] = gap;
+				gap = slot;
+			}
+		}
+		
+		this.keys[gap] = 0;
+	}
+	
+	private static long nonZero(long fingerprint)
+	{
+		return fingerprint == 0 ? 1 : fingerprint;
+	}
+}
@@ -32,6 +32,7 @@ import javaff.data.TotalOrderPlan;
 import javaff.data.metric.Metric;
 import javaff.data.metric.MetricType;
 import javaff.data.metric.NamedFunction;
+import javaff.data.strips.FactTable;
 
 import java.util.HashMap;
 import java.util.Set;
@@ -72,7 +73,7 @@ public class MetricState extends STRIPSState
 		
 		//FIXME this needs to clone the supertype
 		Set nf = (Set) ((HashSet) factsTrue).clone();
-		TotalOrderPlan p = (TotalOrderPlan) plan.clone();
+		TotalOrderPlan p = (TotalOrderPlan) this.getPlan().clone();
 		Map nfuncs = (Map) ((Hashtable) funcValues).clone();
 		MetricState ms = new MetricState(actions, nf, goal, nfuncs, p, metric);
 		ms.setRPG(RPG);
@@ -117,9 +118,27 @@ public class MetricState extends STRIPSState
 	public int hashCode()
 	{
 		int hash = 8;
-		hash = 31 * hash ^ factsTrue.hashCode();
+		hash = 31 * hash ^ super.hashCode();
 		hash = 31 * hash ^ funcValues.hashCode();
 		return hash;
 	}
+	
+	/**
+	 * Returns a 64-bit hash of the true facts and function values of this state.
+	 */
+	@Override
+	public long getFingerprint()
+	{
+		return super.getFingerprint() ^ FactTable.getKey(funcValues.hashCode() & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Returns null, as the equality of metric states also depends on their function values.
+	 */
+	@Override
+	public int[] getFactIds()
+	{
+		return null;
+	}
 
 }
@@ -253,6 +253,17 @@ public class PlanningGraph
 		return branch;
 	}
 	
+	/**
+	 * Returns whether {@link #getPlan(State)} can be called on different branches of this graph (see {@link #branch()})
+	 * from different threads at the same time. This is false for PlanningGraph, as all branches share the same
+	 * {@link PGFact}s and {@link PGAction}s, whose layers and counters are modified during construction.
+	 * @return
+	 */
+	public boolean supportsConcurrentBranches()
+	{
+		return false;
+	}
+	
 	/**
 	 * Returns the number of fact layers in the graph, including the initial state.
 	 * @return
@@ -27,11 +27,12 @@
 
 package javaff.planning;
 
-import javaff.JavaFF;
+import javaff.PlannerContext;
 import javaff.data.Action;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.HashSet;
 
@@ -40,10 +41,21 @@ public class RandomThreeFilter implements Filter
 	private static RandomThreeFilter rf = null;
 	
 	protected HelpfulFilter hf;
+	protected Random random;
 
 	private RandomThreeFilter()
+	{
+		this(PlannerContext.getDefault().getRandom());
+	}
+
+	/**
+	 * Create a filter which uses the specified random number generator to pick its subset of the helpful actions.
+	 * @param random
+	 */
+	public RandomThreeFilter(Random random)
 	{
 		hf = HelpfulFilter.getInstance();
+		this.random = random;
 	}
 
 	public static RandomThreeFilter getInstance()
@@ -74,7 +86,7 @@ public class RandomThreeFilter implements Filter
 			do
 			{
 				done = true;
-				rand = JavaFF.generator.nextInt(helpfulFiltered.size());
+				rand = random.nextInt(helpfulFiltered.size());
 				//System.out.println("generated "+rand);
 				
 				
@@ -35,7 +35,6 @@ import javaff.data.Plan;
 import javaff.data.RelaxedPlan;
 import javaff.data.TotalOrderPlan;
 import javaff.data.strips.And;
-import javaff.data.strips.InstantAction;
 import javaff.data.strips.Not;
 import javaff.data.strips.Proposition;
 import javaff.data.strips.RelaxedFFPlan;
@@ -53,8 +52,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Implementation of a Relaxed Planning Graph (RPG), where negative effects of actions are ignored along with
@@ -64,14 +61,14 @@ import java.util.TreeSet;
  */
 public class RelaxedPlanningGraph extends PlanningGraph
 {
-	private TreeSet<HelpfulAction> helpfulActions;
+	private HelpfulActionList helpfulActions;
 	
 	//needed for clone()
 	protected RelaxedPlanningGraph()
 	{
 		super();
 		
-		this.helpfulActions = new TreeSet<HelpfulAction>();
+		this.helpfulActions = HelpfulActionList.Empty;
 	}
 	
 	protected RelaxedPlanningGraph(RelaxedPlanningGraph existingRpg)
@@ -85,7 +82,7 @@ public class RelaxedPlanningGraph extends PlanningGraph
 	{
 		super(pg);
 		
-		this.helpfulActions = new TreeSet<HelpfulAction>();
+		this.helpfulActions = HelpfulActionList.Empty;
 	}
 	
 	
@@ -93,7 +90,7 @@ public class RelaxedPlanningGraph extends PlanningGraph
 	{
 		super(gp);
 		
-		this.helpfulActions = new TreeSet<HelpfulAction>();
+		this.helpfulActions = HelpfulActionList.Empty;
 	}
 	
 	/**
@@ -105,7 +102,7 @@ public class RelaxedPlanningGraph extends PlanningGraph
 	public RelaxedPlanningGraph(GroundProblem gp, GroundFact goal)
 	{
 		super(gp);
-		this.helpfulActions = new TreeSet<HelpfulAction>();
+		this.helpfulActions = HelpfulActionList.Empty;
 		
 		this.setGoal(goal);
 	}
@@ -114,7 +111,7 @@ public class RelaxedPlanningGraph extends PlanningGraph
 	{
 		super(actions, goal);
 		
-		this.helpfulActions = new TreeSet<HelpfulAction>();
+		this.helpfulActions = HelpfulActionList.Empty;
 	}
 	
 	@Override
@@ -180,11 +177,7 @@ public class RelaxedPlanningGraph extends PlanningGraph
 		PlanningGraph pg = (PlanningGraph) super.clone();
 		RelaxedPlanningGraph clone = new RelaxedPlanningGraph(pg);
 //		clone.helpfulActions = new TreeSet<HelpfulAction>(this.helpfulActions.c);
-		clone.helpfulActions = new TreeSet<HelpfulAction>();
-		for (HelpfulAction ha : this.helpfulActions)
-		{
-			clone.helpfulActions.add((HelpfulAction) ha.clone());
-		}
+		clone.helpfulActions = this.helpfulActions; //lists cannot be modified
 		
 		return clone;
 	}
@@ -415,6 +408,7 @@ public class RelaxedPlanningGraph extends PlanningGraph
 				initialState.addFact(f.getFact());
 			}
 						
+			HelpfulActionList.Builder helpful = new HelpfulActionList.Builder();
 			for (PGAction a : chosenActions)
 			{
 				if (a instanceof PGNoOp)
@@ -423,9 +417,10 @@ public class RelaxedPlanningGraph extends PlanningGraph
 				int helpfulness = this.isHelpful(a, goalSet, initialState);
 				if (helpfulness >= 0)
 				{
-					this.helpfulActions.add(new HelpfulAction((InstantAction) a.getAction(), helpfulness));
+					helpful.add(a.getAction(), helpfulness);
 				}
 			}
+			this.helpfulActions = helpful.build();
 		}
 		
 		List<Collection<PGAction>> rplan = this.searchRelaxedPlan(newGoalSet, l - 1);
@@ -439,7 +434,8 @@ public class RelaxedPlanningGraph extends PlanningGraph
 	{
 		super.resetAll(s);
 		
-		this.helpfulActions.clear();
+		//lists are never modified, so the helpful actions of previous states are kept without copying them
+		this.helpfulActions = HelpfulActionList.Empty;
 	}
 
 	/**
@@ -473,7 +469,12 @@ public class RelaxedPlanningGraph extends PlanningGraph
 		return achieved;
 	}
 
-	public SortedSet<HelpfulAction> getHelpfulActions()
+	/**
+	 * Returns the helpful actions found in the last relaxed plan extracted, most helpful first. The list
+	 * cannot be modified, so it is not affected by later calls to {@link #getPlan(State)}.
+	 * @return
+	 */
+	public HelpfulActionList getHelpfulActions()
 	{
 		return helpfulActions;
 	}
@@ -27,13 +27,16 @@
 
 package javaff.planning;
 
+import javaff.PlannerMetrics;
 import javaff.data.Action;
 import javaff.data.CompoundLiteral;
 import javaff.data.Fact;
 import javaff.data.Parameter;
+import javaff.data.PlanChain;
 import javaff.data.TotalOrderPlan;
 import javaff.data.GroundFact;
 import javaff.data.metric.NamedFunction;
+import javaff.data.strips.FactTable;
 import javaff.data.strips.InstantAction;
 import javaff.data.strips.Not;
 import javaff.data.strips.NullFact;
@@ -43,14 +46,13 @@ import javaff.data.strips.STRIPSInstantAction;
 import javaff.data.strips.TrueCondition;
 import javaff.data.Plan;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 public class STRIPSState extends State implements Cloneable
 {
@@ -59,10 +61,53 @@ public class STRIPSState extends State implements Cloneable
 	protected Set<Action> actions;
 	
 	protected Plan RelaxedPlan;
+	
+	/**
+	 * The actions which have been applied since {@link #plan} was last brought up to date, or null if
+	 * it is current. Successors share the plan of their parent and only extend this chain, so the
+	 * full plan is only constructed when it is requested.
+	 */
+	protected PlanChain planChain;
 
 	protected RelaxedPlanningGraph RPG;
 	protected boolean RPCalculated;
 	protected BigDecimal HValue;
+	/** The heuristic value as a primitive, which is set along with HValue. */
+	protected long HValueLong;
+	
+	/**
+	 * The cache which heuristic values are looked up in before the RPG is used, shared by every successor of
+	 * this state. May be null.
+	 */
+	protected HeuristicCache heuristicCache;
+	/**
+	 * The metrics which evaluation of the heuristic is recorded in, shared by every successor of this state. 
+	 * May be null.
+	 */
+	protected PlannerMetrics metrics;
+	/**
+	 * The helpful actions of this state, or null if the relaxed plan has not been extracted from it.
+	 */
+	protected HelpfulActionList helpfulActions;
+	/**
+	 * Whether {@link #helpfulActions} was extracted from this state, rather than shared by the state it was 
+	 * cloned from or found in the heuristic cache. Only then are all of the actions known to be applicable, 
+	 * as states with the same true facts can have different negated facts.
+	 */
+	protected boolean helpfulActionsExtracted;
+	
+	/**
+	 * The Zobrist hash of the true facts, which is updated as facts are added and removed. This is only 
+	 * valid if factsHashValid is true, and is otherwise computed from the facts when it is first needed.
+	 */
+	protected long factsHash;
+	protected boolean factsHashValid;
+	/**
+	 * The IDs returned by {@link #getFactIds()}, which are only valid if factIdsValid is true. They are 
+	 * computed when first needed, and invalidated whenever a true fact is added or removed.
+	 */
+	protected int[] factIds;
+	protected boolean factIdsValid;
 
 	protected STRIPSState()
 	{
@@ -73,12 +118,24 @@ public class STRIPSState extends State implements Cloneable
 		this.actions = new HashSet<Action>();
 		
 		this.RelaxedPlan = null;
+		this.planChain = null;
 		
 		this.HValue = new BigDecimal(-1);
 		
 		this.RPG = null;
 		this.RPCalculated = false;
 		this.HValue = null;
+		this.HValueLong = -1;
+		
+		this.heuristicCache = null;
+		this.metrics = null;
+		this.helpfulActions = null;
+		this.helpfulActionsExtracted = false;
+		
+		this.factsHash = 0;
+		this.factsHashValid = false;
+		this.factIds = null;
+		this.factIdsValid = false;
 				
 	}
 
@@ -130,7 +187,12 @@ public class STRIPSState extends State implements Cloneable
 	{
 		if (f instanceof Proposition || TrueCondition.isSimpleTrue(f) == 1)
 		{
-			this.factsTrue.add(f);
+			if (this.factsTrue.add(f))
+			{
+				if (this.factsHashValid)
+					this.factsHash ^= FactTable.getInstance().getKey(f);
+				this.factIdsValid = false;
+			}
 		}
 		else if (f instanceof Not)
 		{
@@ -153,7 +215,13 @@ public class STRIPSState extends State implements Cloneable
 	{
 		if (f instanceof Proposition)
 		{
-			return this.factsTrue.remove((Proposition) f);
+			boolean removed = this.factsTrue.remove((Proposition) f);
+			if (removed && this.factsHashValid)
+				this.factsHash ^= FactTable.getInstance().getKey(f);
+			if (removed)
+				this.factIdsValid = false;
+			
+			return removed;
 		}
 		else if (f instanceof Not)
 		{
@@ -161,24 +229,61 @@ public class STRIPSState extends State implements Cloneable
 			{
 				Not notf = (Not)f;
 				Not internalLiteral = (Not)notf.getLiteral();
-				this.removeFact(internalLiteral.getLiteral()); //recurse
+				return this.removeFact(internalLiteral.getLiteral()); //recurse
 			}
 			if (((Not)f).getLiteral() instanceof Proposition == false)
 				throw new IllegalArgumentException("STRIPSState only supports Propositions and Nots whose literal is also a Proposition");
 			else
-//				return this.factsNegated.remove((Not)f);
-				return this.factsNegated.remove(((Not)f).getLiteral());
+				return this.factsNegated.remove((Not)f);
 		}
 		else	
 			throw new IllegalArgumentException("STRIPSState only supports Propositions and Nots");
 		
 	}
 
+	/**
+	 * Returns the plan which led to this state. If actions have been applied since the plan was last
+	 * requested, a new plan is constructed from them.
+	 */
 	public TotalOrderPlan getPlan()
 	{
+		if (this.planChain != null)
+		{
+			this.plan = this.planChain.toTotalOrderPlan(this.plan);
+			this.planChain = null;
+		}
+		
 		return (TotalOrderPlan) plan;
 	}
 	
+	/**
+	 * Returns the cost of the plan which achieved this state.
+	 */
+	@Override
+	public BigDecimal getCost()
+	{
+		if (this.plan == null)
+			return new BigDecimal(-1);
+		
+		return this.getPlan().getCost();
+	}
+	
+	/**
+	 * Returns the cost of the plan which achieved this state, without constructing the plan.
+	 */
+	@Override
+	public long getCostLong()
+	{
+		if (this.plan == null)
+			return -1;
+		
+		long cost = this.plan.getCostLong();
+		if (this.planChain != null)
+			cost += this.planChain.getCost();
+		
+		return cost;
+	}
+	
 //	public State cloneShallow()
 //	{
 //		
@@ -188,7 +293,7 @@ public class STRIPSState extends State implements Cloneable
 	{
 		Set<Proposition> trueFacts = (Set<Proposition>) ((HashSet) factsTrue).clone();
 		Set<Not> falseFacts = (Set<Not>) ((HashSet) factsNegated).clone();
-		TotalOrderPlan p = (TotalOrderPlan) plan.clone();
+		TotalOrderPlan p = (TotalOrderPlan) this.getPlan().clone();
 		STRIPSState SS = new STRIPSState(new HashSet<Action>(actions), trueFacts, (GroundFact) goal.clone(), p);
 		SS.factsNegated = falseFacts;
 		
@@ -203,12 +308,16 @@ public class STRIPSState extends State implements Cloneable
 		if (this.HValue != null)
 		{
 			SS.HValue = new BigDecimal(this.HValue.toString());
+			SS.HValueLong = this.HValueLong;
 		}
 		
-		if (SS.plan != null)
-		{
-			SS.plan = (TotalOrderPlan) this.plan.clone();
-		}
+		SS.heuristicCache = this.heuristicCache;
+		SS.metrics = this.metrics;
+		SS.helpfulActions = this.helpfulActions;
+		SS.factsHash = this.factsHash;
+		SS.factsHashValid = this.factsHashValid;
+		SS.factIds = this.factIds; //never modified once computed
+		SS.factIdsValid = this.factIdsValid;
 		
 		// SS.setFilter(filter);
 		return SS;
@@ -223,16 +332,56 @@ public class STRIPSState extends State implements Cloneable
 	{
 		return RPG;
 	}
+	
+	/**
+	 * Sets the cache which the heuristic value of this state, and of all of its successors, is looked up in
+	 * before the RPG is evaluated.
+	 * @param heuristicCache The cache, or null if none should be used.
+	 */
+	public void setHeuristicCache(HeuristicCache heuristicCache)
+	{
+		this.heuristicCache = heuristicCache;
+	}
+	
+	public HeuristicCache getHeuristicCache()
+	{
+		return heuristicCache;
+	}
+	
+	/**
+	 * Sets the metrics which each evaluation of the heuristic of this state, and of all of its successors, is 
+	 * recorded in.
+	 * @param metrics The metrics, or null if evaluation should not be recorded.
+	 */
+	public void setMetrics(PlannerMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+	
+	public PlannerMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Creates the state which an action is applied to in {@link #apply(Action)}. This has the same facts as 
+	 * this state, but no RPG or plan. Subclasses which store facts differently should override this.
+	 * @return
+	 */
+	protected STRIPSState createSuccessorState()
+	{
+		//create a successor state, which is the same as this one, but has no RPG. The positive and negative facts must be 
+		//copied to new Sets because application of actions will add/remove facts from these. If a new set is not constructed
+		//for each, then plans will be invalid.
+		return new STRIPSState(this.actions, new HashSet<Fact>(this.factsTrue), new HashSet<Not>(this.factsNegated), this.goal);
+	}
 
 	public State apply(Action a)
 	{
 		//old code -- works but is inefficient as RPg is cloned then immediately destroyed and recomputed by successor state
 //		STRIPSState succ = (STRIPSState) this.clone(); //VERY slow because RPG is cloned too
 
-		//create a successor state, which is the same as this one, but has no RPG. The positive and negative facts must be 
-		//copied to new Sets because application of actions will add/remove facts from these. If a new set is not constructed
-		//for each, then plans will be invalid.
-		STRIPSState succ = new STRIPSState(this.actions, new HashSet<Fact>(this.factsTrue), new HashSet<Not>(this.factsNegated), this.goal);
+		STRIPSState succ = this.createSuccessorState();
 //		succ.RPG = new RelaxedPlanningGraph(this.actions, this.goal); //MASSIVE memory consumption -- cannot explain why
 		succ.RPG = this.RPG.branch(); //branch the RPG instead of cloning the old one -- retains the mutex info etc
 		
@@ -241,7 +390,14 @@ public class STRIPSState extends State implements Cloneable
 								   //above line only sets up the required parameters.
 		succ.getRPG().setInitial(succ);
 		succ.getRPG().setGoal(this.goal);
-		succ.plan = (TotalOrderPlan) this.plan.clone(); //clone because we may have multiple lead states
+		succ.heuristicCache = this.heuristicCache;
+		succ.metrics = this.metrics;
+		//the successor has the same facts, so its hash only needs to be updated by the effects of the action
+		succ.factsHash = this.getFactsHash();
+		succ.factsHashValid = true;
+		//the plan is shared with this state (and any other successors) and only the chain of applied actions is extended
+		succ.plan = this.plan;
+		succ.planChain = new PlanChain(this.planChain, a);
 		
 //		System.out.print("Applying in state "+succ.hashCode());
 //		if (a.isApplicable(this) == false)
@@ -249,7 +405,6 @@ public class STRIPSState extends State implements Cloneable
 			
 		a.apply(succ);
 		
-		succ.plan.addAction(a);
 		return succ;
 	}
 
@@ -304,18 +459,108 @@ public class STRIPSState extends State implements Cloneable
 	{
 		if (!RPCalculated)
 		{
-			this.RelaxedPlan = RPG.getPlan(this);
+			//states whose facts cannot be confirmed against the cache are always evaluated
+			long fingerprint = 0;
+			int[] factIds = null;
+			if (this.heuristicCache != null)
+				factIds = this.getFactIds();
+			
+			if (factIds != null)
+			{
+				fingerprint = this.getFingerprint();
+				HeuristicCache.Entry cached = this.heuristicCache.get(fingerprint, factIds);
+				if (cached != null)
+				{
+					this.RelaxedPlan = cached.getRelaxedPlan();
+					this.HValue = cached.getHValue();
+					this.HValueLong = this.HValue.longValue();
+					this.helpfulActions = cached.getHelpfulActions();
+					this.helpfulActionsExtracted = false;
+					this.RPCalculated = true;
+					if (this.metrics != null)
+					{
+						this.metrics.getStatesEvaluated().increment();
+						this.metrics.getHeuristicCacheHits().increment();
+					}
+					return;
+				}
+			}
+			
+			this.RelaxedPlan = this.evaluateRPG();
+			this.helpfulActions = RPG.getHelpfulActions();
+			this.helpfulActionsExtracted = true;
 			if (this.RelaxedPlan != null)
 			{
-				this.HValue = new BigDecimal(this.RelaxedPlan.getPlanLength());
+				this.HValueLong = this.RelaxedPlan.getPlanLength();
+				this.HValue = BigDecimal.valueOf(this.HValueLong);
 
 
 			} 
 			else
+			{
 				this.HValue = javaff.JavaFF.MAX_DURATION;
+				this.HValueLong = this.HValue.longValue();
+			}
 			
 			this.RPCalculated = true;
+			
+			if (factIds != null)
+			{
+				HelpfulActionList helpful = null;
+				if (this.heuristicCache.isStoreHelpfulActions())
+					helpful = this.helpfulActions;
+				
+				this.heuristicCache.put(fingerprint, new HeuristicCache.Entry(factIds, this.HValue, this.RelaxedPlan, helpful));
+			}
+		}
+	}
+	
+	/**
+	 * Returns the helpful actions of this state, most helpful first, calculating the relaxed plan if needed.
+	 * If the heuristic value was found in a cache which does not store helpful actions, the RPG is evaluated
+	 * to find them.
+	 * @return
+	 */
+	public HelpfulActionList getHelpfulActions()
+	{
+		this.calculateRP();
+		if (this.helpfulActions == null)
+		{
+			this.evaluateRPG();
+			this.helpfulActions = RPG.getHelpfulActions();
+			this.helpfulActionsExtracted = true;
 		}
+		
+		return this.helpfulActions;
+	}
+	
+	/**
+	 * Returns whether the helpful actions of this state were extracted from it, in which case every one of 
+	 * them is known to be applicable in it. Helpful actions which were shared by a clone or found in the 
+	 * heuristic cache must be checked.
+	 */
+	public boolean isHelpfulActionsExtracted()
+	{
+		return helpfulActionsExtracted;
+	}
+	
+	/**
+	 * Builds the RPG from this state and extracts a relaxed plan from it, recording the time taken and the 
+	 * number of layers built in the metrics of this state.
+	 * @return The relaxed plan, or null if the goal is unreachable.
+	 */
+	protected Plan evaluateRPG()
+	{
+		if (this.metrics == null)
+			return RPG.getPlan(this);
+		
+		long start = System.nanoTime();
+		Plan plan = RPG.getPlan(this);
+		this.metrics.getRPGTime().stop(start);
+		this.metrics.getStatesEvaluated().increment();
+		this.metrics.getRPGLayers().add(RPG.size());
+		
+		return plan;
 	}
 	
 
@@ -327,12 +572,32 @@ public class STRIPSState extends State implements Cloneable
 
 	public BigDecimal getGValue()
 	{
-		return new BigDecimal(plan.getPlanLength());
+		return BigDecimal.valueOf(this.getGValueLong());
+	}
+	
+	@Override
+	public long getHValueLong()
+	{
+		calculateRP();
+		return HValueLong;
+	}
+	
+	/**
+	 * Returns the number of actions in the plan which achieved this state.
+	 */
+	@Override
+	public long getGValueLong()
+	{
+		int length = this.plan.getPlanLength();
+		if (this.planChain != null)
+			length += this.planChain.getLength();
+		
+		return length;
 	}
 
 	public Plan getSolution()
 	{
-		return plan;
+		return this.getPlan();
 	}
 
 	public boolean equals(Object obj)
@@ -347,8 +612,86 @@ public class STRIPSState extends State implements Cloneable
 
 	public int hashCode()
 	{
-		int hash = 7;
-		hash = 31 * hash ^ factsTrue.hashCode();
+		long hash = this.getFactsHash();
+		return (int) (hash ^ (hash >>> 32));
+	}
+	
+	/**
+	 * Returns a 64-bit hash of this state. Unlike {@link #hashCode()}, this is intended to be used as a 
+	 * near-unique key for the state in large tables, such as closed lists and heuristic caches. 
+	 * @return
+	 */
+	public long getFingerprint()
+	{
+		return this.getFactsHash();
+	}
+	
+	/**
+	 * Returns the IDs given by the {@link FactTable} to the true facts of this state, in ascending order. 
+	 * Two states of the same class are equal if and only if their IDs are, so these can be stored in place of
+	 * the state itself, for as long as its facts are reachable. The IDs are computed once and then shared 
+	 * until the facts of this state change, so the array must not be modified.
+	 * @return The IDs, or null if a true fact is not a proposition, or if equality depends on more than the 
+	 * true facts.
+	 */
+	public int[] getFactIds()
+	{
+		if (this.factIdsValid == false)
+		{
+			this.factIds = this.computeFactIds();
+			this.factIdsValid = true;
+		}
+		
+		return this.factIds;
+	}
+	
+	/**
+	 * Computes the IDs returned by {@link #getFactIds()} from the true facts. Subclasses which store facts 
+	 * differently should override this along with {@link #addFact(Fact)} and {@link #removeFact(Fact)}.
+	 */
+	protected int[] computeFactIds()
+	{
+		FactTable table = FactTable.getInstance();
+		int[] ids = new int[this.factsTrue.size()];
+		int count = 0;
+		for (Fact f : this.factsTrue)
+		{
+			if (f instanceof Proposition == false)
+				return null;
+			
+			ids[count++] = table.intern((Proposition) f).getId();
+		}
+		
+		Arrays.sort(ids);
+		return ids;
+	}
+	
+	/**
+	 * Returns the Zobrist hash of the true facts in this state, computing it if it is not already known.
+	 * @see FactTable#getKey(Fact)
+	 */
+	protected long getFactsHash()
+	{
+		if (this.factsHashValid == false)
+		{
+			this.factsHash = this.computeFactsHash();
+			this.factsHashValid = true;
+		}
+		
+		return this.factsHash;
+	}
+	
+	/**
+	 * Computes the Zobrist hash of the true facts in this state from scratch. Subclasses which store facts 
+	 * differently should override this along with {@link #addFact(Fact)} and {@link #removeFact(Fact)}.
+	 */
+	protected long computeFactsHash()
+	{
+		FactTable table = FactTable.getInstance();
+		long hash = 0;
+		for (Fact f : this.factsTrue)
+			hash ^= table.getKey(f);
+		
 		return hash;
 	}
 	
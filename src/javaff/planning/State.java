@@ -91,6 +91,39 @@ public abstract class State implements Cloneable
 	public abstract BigDecimal getHValue();
 
 	public abstract BigDecimal getGValue();
+	
+	/**
+	 * Returns the cost of the plan which achieved this state as a primitive, or -1 if there is no plan 
+	 * associated with this state. Search should prefer this to {@link #getCost()}. Subclasses whose cost 
+	 * is an integer should override it so that no BigDecimal is created.
+	 * @return
+	 */
+	public long getCostLong()
+	{
+		return this.getCost().longValue();
+	}
+	
+	/**
+	 * Returns the heuristic value of this state as a primitive, rounded towards zero. Search and comparators 
+	 * should prefer this to {@link #getHValue()}. Subclasses whose heuristic is an integer should override 
+	 * it so that no BigDecimal is created.
+	 * @return
+	 */
+	public long getHValueLong()
+	{
+		return this.getHValue().longValue();
+	}
+	
+	/**
+	 * Returns the g value of this state as a primitive, rounded towards zero. Search and comparators 
+	 * should prefer this to {@link #getGValue()}. Subclasses whose g value is an integer should override
+	 * it so that no BigDecimal is created.
+	 * @return
+	 */
+	public long getGValueLong()
+	{
+		return this.getGValue().longValue();
+	}
 
 	public boolean goalReached()
 	{
@@ -0,0 +1,301 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.planning;
+
+import javaff.data.Action;
+import javaff.data.Fact;
+import javaff.data.GroundFact;
+import javaff.data.strips.And;
+import javaff.data.strips.InstantAction;
+import javaff.data.strips.Not;
+import javaff.data.strips.Proposition;
+import javaff.data.strips.TrueCondition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A filter which returns every applicable action of a STRIPS state, found using a precomputed decision tree
+ * over the preconditions of the ground actions rather than by testing each action in turn. 
+ * <p>
+ * Each action's preconditions are encoded as a sorted list of literals over the IDs of a {@link FactIndex}. 
+ * Each node of the tree tests a single literal, and has a child for the actions which require the literal
+ * and a "don't care" child for those which do not, so an action is reached only if all of its preconditions
+ * hold. Actions whose preconditions are not a conjunction of indexed literals are kept in a separate list and
+ * tested with {@link Action#isApplicable(State)}. The actions returned are in the same order as the 
+ * collection the filter was constructed from, so it is a drop-in replacement for {@link NullFilter}.
+ * <p>
+ * The filter assumes that every state it is given has the actions it was constructed from. Any state
+ * which is not a (non-metric) {@link STRIPSState} is handled in the same way as by {@link NullFilter}.
+ */
+public class SuccessorGeneratorFilter implements Filter
+{
+	private final FactIndex index;
+	private final Action[] actions;
+	
+	/** IDs of the actions which are not in the tree, and which must be tested explicitly. */
+	private final int[] complexActions;
+	
+	/** The literal tested by each node, or -1 if it only has immediate actions. Literal 2i is 
+	 * fact i being true, 2i+1 is fact i being false. */
+	private int[] nodeLiteral;
+	/** The node to visit if the literal of each node holds, or -1. */
+	private int[] nodeTrue;
+	/** The node to visit whether or not the literal of each node holds, or -1. */
+	private int[] nodeDontCare;
+	/** The actions whose preconditions have all been tested on reaching each node. */
+	private int[][] nodeActions;
+	private int nodeCount;
+	private final int root;
+	
+	/**
+	 * Build a filter over the specified actions.
+	 * @param groundActions
+	 * @param index An index containing the facts of the actions' preconditions. Any action with a
+	 * precondition which is not in the index will be tested explicitly. 
+	 */
+	public SuccessorGeneratorFilter(Collection<Action> groundActions, FactIndex index)
+	{
+		this.index = index;
+		this.actions = groundActions.toArray(new Action[groundActions.size()]);
+		
+		int[][] literals = new int[this.actions.length][];
+		int[] simple = new int[this.actions.length];
+		int[] complex = new int[this.actions.length];
+		int simpleCount = 0, complexCount = 0;
+		for (int a = 0; a < this.actions.length; a++)
+		{
+			literals[a] = this.getLiterals(this.actions[a]);
+			if (literals[a] == null)
+				complex[complexCount++] = a;
+			else
+				simple[simpleCount++] = a;
+		}
+		this.complexActions = Arrays.copyOf(complex, complexCount);
+		
+		int capacity = Math.max(16, simpleCount);
+		this.nodeLiteral = new int[capacity];
+		this.nodeTrue = new int[capacity];
+		this.nodeDontCare = new int[capacity];
+		this.nodeActions = new int[capacity][];
+		this.nodeCount = 0;
+		
+		this.root = this.build(Arrays.copyOf(simple, simpleCount), literals, new int[this.actions.length]);
+	}
+	
+	/**
+	 * Returns the sorted literals of an action's preconditions, or null if they cannot all be represented.
+	 */
+	private int[] getLiterals(Action a)
+	{
+		if (a instanceof InstantAction == false)
+			return null;
+		
+		GroundFact condition = ((InstantAction) a).getCondition();
+		if (condition instanceof And == false && condition instanceof Proposition == false && 
+				condition instanceof Not == false && condition instanceof TrueCondition == false)
+			return null;
+		
+		Collection<Fact> pcs = a.getPreconditions();
+		int[] literals = new int[pcs.size()];
+		int count = 0;
+		for (Fact f : pcs)
+		{
+			if (f instanceof TrueCondition)
+				continue;
+			
+			boolean negated = f instanceof Not;
+			Fact literal = negated ? ((Not) f).getLiteral() : f;
+			if (literal instanceof Proposition == false || literal.isStatic())
+				return null;
+			
+			int id = this.index.getId(literal);
+			if (id < 0)
+				return null;
+			
+			literals[count++] = 2 * id + (negated ? 1 : 0);
+		}
+		
+		literals = Arrays.copyOf(literals, count);
+		Arrays.sort(literals);
+		return literals;
+	}
+	
+	/**
+	 * Builds the subtree for the specified actions, all of which have had the literals before their cursor
+	 * tested on the path to this subtree. The "don't care" chain of the subtree is built iteratively so 
+	 * that the recursion depth is bounded by the number of preconditions of an action.
+	 * @return The root node of the subtree, or -1 if there are no actions.
+	 */
+	private int build(int[] acts, int[][] literals, int[] cursor)
+	{
+		int first = -1, previous = -1;
+		while (acts.length > 0)
+		{
+			int[] immediate = new int[acts.length];
+			int immediateCount = 0;
+			int literal = Integer.MAX_VALUE;
+			for (int a : acts)
+			{
+				if (cursor[a] == literals[a].length)
+					immediate[immediateCount++] = a;
+				else
+					literal = Math.min(literal, literals[a][cursor[a]]);
+			}
+			
+			int node = this.newNode();
+			if (first < 0)
+				first = node;
+			else
+				this.nodeDontCare[previous] = node;
+			previous = node;
+			
+			this.nodeActions[node] = Arrays.copyOf(immediate, immediateCount);
+			if (immediateCount == acts.length)
+				break;
+			
+			int[] yes = new int[acts.length - immediateCount];
+			int[] no = new int[acts.length - immediateCount];
+			int yesCount = 0, noCount = 0;
+			for (int a : acts)
+			{
+				if (cursor[a] == literals[a].length)
+					continue;
+				
+				if (literals[a][cursor[a]] == literal)
+				{
+					++cursor[a];
+					yes[yesCount++] = a;
+				}
+				else
+					no[noCount++] = a;
+			}
+			
+			this.nodeLiteral[node] = literal;
+			int child = this.build(Arrays.copyOf(yes, yesCount), literals, cursor);
+			this.nodeTrue[node] = child;
+			acts = Arrays.copyOf(no, noCount);
+		}
+		
+		return first;
+	}
+	
+	private int newNode()
+	{
+		if (this.nodeCount == this.nodeLiteral.length)
+		{
+			int capacity = this.nodeCount * 2;
+			this.nodeLiteral = Arrays.copyOf(this.nodeLiteral, capacity);
+			this.nodeTrue = Arrays.copyOf(this.nodeTrue, capacity);
+			this.nodeDontCare = Arrays.copyOf(this.nodeDontCare, capacity);
+			this.nodeActions = Arrays.copyOf(this.nodeActions, capacity);
+		}
+		
+		int node = this.nodeCount++;
+		this.nodeLiteral[node] = -1;
+		this.nodeTrue[node] = -1;
+		this.nodeDontCare[node] = -1;
+		return node;
+	}
+
+	public List<Action> getActions(State S)
+	{
+		if (S instanceof STRIPSState == false || S instanceof MetricState)
+			return NullFilter.getInstance().getActions(S);
+		
+		long[] words = null;
+		if (S instanceof BitSetSTRIPSState && ((BitSetSTRIPSState) S).getFactIndex() == this.index)
+			words = ((BitSetSTRIPSState) S).trueWords;
+		
+		IdList found = new IdList();
+		if (this.root >= 0)
+			this.collect(this.root, (STRIPSState) S, words, found);
+		
+		for (int a : this.complexActions)
+		{
+			if (this.actions[a].isApplicable(S))
+				found.add(a);
+		}
+		
+		Arrays.sort(found.ids, 0, found.size);
+		List<Action> applicable = new ArrayList<Action>(found.size);
+		for (int i = 0; i < found.size; i++)
+			applicable.add(this.actions[found.ids[i]]);
+		
+		return applicable;
+	}
+	
+	/**
+	 * Adds the actions of the subtree rooted at the specified node whose preconditions hold in the state.
+	 */
+	private void collect(int node, STRIPSState S, long[] words, IdList found)
+	{
+		while (node >= 0)
+		{
+			for (int a : this.nodeActions[node])
+				found.add(a);
+			
+			int literal = this.nodeLiteral[node];
+			if (literal >= 0 && this.nodeTrue[node] >= 0 && this.holds(literal, S, words))
+				this.collect(this.nodeTrue[node], S, words, found);
+			
+			node = this.nodeDontCare[node];
+		}
+	}
+	
+	private boolean holds(int literal, STRIPSState S, long[] words)
+	{
+		int id = literal >>> 1;
+		boolean isTrue;
+		if (words != null)
+			isTrue = BitSetSTRIPSState.isSet(words, id);
+		else
+			isTrue = S.isTrue(this.index.getFact(id));
+		
+		return isTrue != ((literal & 1) != 0);
+	}
+	
+	/**
+	 * A growable list of action IDs.
+	 */
+	private static class IdList
+	{
+		private int[] ids = new int[16];
+		private int size = 0;
+		
+		private void add(int id)
+		{
+			if (this.size == this.ids.length)
+				this.ids = Arrays.copyOf(this.ids, this.size * 2);
+			this.ids[this.size++] = id;
+		}
+	}
+}
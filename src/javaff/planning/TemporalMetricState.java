@@ -122,7 +122,7 @@ public class TemporalMetricState extends MetricState
 	{
 		//FIXME needs updated
 		Set nf = (Set) ((HashSet) factsTrue).clone();
-		TotalOrderPlan p = (TotalOrderPlan) plan.clone();
+		TotalOrderPlan p = (TotalOrderPlan) this.getPlan().clone();
 		Map nfuncs = (Map) ((Hashtable) funcValues).clone();
 		Set oA = (Set) ((HashSet) openActions).clone();
 		List i = (List) ((ArrayList) invariants).clone();
@@ -27,16 +27,18 @@
 
 package javaff.search;
 
+import javaff.PlannerMetrics;
+import javaff.data.Action;
 import javaff.planning.State;
 import javaff.planning.Filter;
 import java.util.Comparator;
+import java.util.List;
 import java.util.TreeSet;
-import java.util.Hashtable;
 
 public class BestFirstSearch extends Search
 {
 
-	protected Hashtable closed;
+	protected ClosedList closed;
 	protected TreeSet open;
 
 	public BestFirstSearch(State s)
@@ -49,13 +51,29 @@ public class BestFirstSearch extends Search
 		super(s);
 		setComparator(c);
 
-		closed = new Hashtable();
+		closed = new ClosedList();
 		open = new TreeSet(comp);
 	}
 
 	public void updateOpen(State S)
 	{
-		open.addAll(S.getNextStates(filter.getActions(S)));
+		PlannerMetrics metrics = this.context.getMetrics();
+		long start = System.nanoTime();
+		List<Action> actions = filter.getActions(S);
+		metrics.getFilterTime().stop(start);
+		
+		for (Action a : actions)
+		{
+			start = System.nanoTime();
+			State succ = S.getNextState(a);
+			metrics.getApplyTime().stop(start);
+			open.add(succ);
+		}
+		metrics.getStatesExpanded().increment();
+		metrics.getStatesGenerated().add(actions.size());
+		
+		metrics.getOpenPeak().update(open.size());
+		metrics.getClosedPeak().update(closed.size());
 	}
 
 	public State removeNext()
@@ -76,14 +94,7 @@ public class BestFirstSearch extends Search
 
 	public boolean needToVisit(State s)
 	{
-		Integer Shash = new Integer(s.hashCode());
-		State D = (State) closed.get(Shash);
-
-		if (closed.containsKey(Shash) && D.equals(s))
-			return false;
-
-		closed.put(Shash, s);
-		return true;
+		return closed.add(s); // only true if it was not already on the list
 	}
 
 	public State search()
@@ -105,6 +116,10 @@ public class BestFirstSearch extends Search
 					updateOpen(s);
 				}
 			}
+			else
+			{
+				this.context.getMetrics().getDuplicatesPruned().increment();
+			}
 
 		}
 		return null;
@@ -7,16 +7,36 @@
 
 package javaff.search;
 
+import javaff.PlannerContext;
 import javaff.planning.State;
 import java.util.Iterator;
+import java.util.Random;
 import java.util.Set;
 import java.util.HashSet;
-import java.math.BigDecimal;
 
 public class BestSuccessorSelector implements SuccessorSelector
 {
 
 	private static BestSuccessorSelector ss = null;
+	
+	protected Random random;
+
+	/**
+	 * Create a selector which uses the random number generator of the default {@link PlannerContext}.
+	 */
+	public BestSuccessorSelector()
+	{
+		this(PlannerContext.getDefault().getRandom());
+	}
+
+	/**
+	 * Create a selector which uses the specified random number generator. 
+	 * @param random
+	 */
+	public BestSuccessorSelector(Random random)
+	{
+		this.random = random;
+	}
 
 	public static BestSuccessorSelector getInstance()
 	{
@@ -33,28 +53,29 @@ public class BestSuccessorSelector implements SuccessorSelector
 
 		HashSet jointBest = new HashSet(); // set to store the joint-best
 											// states
-		BigDecimal bestHeuristic; // best heuristic seen
+		long bestHeuristic; // best heuristic seen
 
 		Iterator itr = toChooseFrom.iterator();
 		State curr = (State) itr.next();
 		jointBest.add(curr); // first successor is the best seen so far
-		bestHeuristic = curr.getHValue(); // and has the best heuristic
+		bestHeuristic = curr.getHValueLong(); // and has the best heuristic
 
 		while (itr.hasNext())
 		{
 			curr = (State) itr.next();
-			if (curr.getHValue().compareTo(bestHeuristic) < 0)
+			long h = curr.getHValueLong();
+			if (h < bestHeuristic)
 			{ // if it has a better heuristic value
 				jointBest = new HashSet();
 				jointBest.add(curr); // it is the joint best, with only
 										// itself
-				bestHeuristic = curr.getHValue();
-			} else if (curr.getHValue().compareTo(bestHeuristic) == 0)
+				bestHeuristic = h;
+			} else if (h == bestHeuristic)
 			{ // if it has an equally good h
 				jointBest.add(curr); // then it is joint best with the others
 			}
 		}
-		int nextChosen = javaff.JavaFF.generator.nextInt(jointBest.size()); 
+		int nextChosen = random.nextInt(jointBest.size()); 
 
 		Iterator skipThrough = jointBest.iterator();
 		while (nextChosen > 0)
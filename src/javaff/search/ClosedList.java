@@ -0,0 +1,332 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.search;
+
+import javaff.planning.BitSetSTRIPSState;
+import javaff.planning.STRIPSState;
+import javaff.planning.State;
+
+import java.util.Arrays;
+
+/**
+ * The set of states which have already been visited by a search. Every state is stored with a 64-bit
+ * fingerprint in an open-addressed hash table made of primitive arrays, and a fingerprint match is always 
+ * confirmed against the full state, so no unvisited state is ever pruned because of a hash collision.
+ * <p>
+ * {@link BitSetSTRIPSState}s are stored compactly as a copy of their words in a single shared array, and
+ * other {@link STRIPSState}s as the sorted IDs of their true facts (see {@link STRIPSState#getFactIds()}) in
+ * another. The states themselves, along with their RPGs, relaxed plans and plans, can therefore be garbage 
+ * collected once they have been expanded. Any other type of state is stored by reference and compared with 
+ * {@link State#equals(Object)}.
+ */
+public class ClosedList implements Cloneable
+{
+	private static final int DefaultCapacity = 1024;
+	
+	/** Fingerprint of each slot in the table, 0 if the slot is empty. */
+	private long[] keys;
+	/** Index of the entry stored in each slot of the table. */
+	private int[] slots;
+	private int mask;
+	private int size;
+	
+	/** Number of words per compact entry, or -1 if no compact entry has been stored. */
+	private int stride;
+	private long[] words;
+	/** The fact IDs of the entries stored as IDs, each preceded by the number of IDs. */
+	private int[] ids;
+	private int idsLength;
+	/** The index in ids at which each entry starts, or -1 if the entry is not stored as IDs. */
+	private int[] idStarts;
+	private Object[] states;
+	
+	public ClosedList()
+	{
+		this(DefaultCapacity);
+	}
+	
+	/**
+	 * Create a closed list which can hold the specified number of states before it needs to grow.
+	 * @param expectedSize
+	 */
+	public ClosedList(int expectedSize)
+	{
+		int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+		
+		this.keys = new long[capacity];
+		this.slots = new int[capacity];
+		this.mask = capacity - 1;
+		this.size = 0;
+		
+		this.stride = -1;
+		this.words = null;
+		this.ids = null;
+		this.idsLength = 0;
+		this.idStarts = null;
+		this.states = null;
+	}
+	
+	/**
+	 * Adds the state to this list, if it is not already present.
+	 * @param s
+	 * @return True if the state was not already in the list, false otherwise.
+	 */
+	public boolean add(State s)
+	{
+		long key = fingerprint(s);
+		int[] factIds = getFactIds(s);
+		int slot = this.find(s, key, factIds);
+		if (this.keys[slot] != 0)
+			return false;
+		
+		this.store(s, this.size, factIds);
+		this.keys[slot] = key;
+		this.slots[slot] = this.size;
+		++this.size;
+		
+		if (this.size * 2 > this.keys.length)
+			this.rehash(this.keys.length * 2);
+		
+		return true;
+	}
+	
+	/**
+	 * Tests whether the state is in this list.
+	 * @param s
+	 * @return
+	 */
+	public boolean contains(State s)
+	{
+		return this.keys[this.find(s, fingerprint(s), getFactIds(s))] != 0;
+	}
+	
+	/**
+	 * Returns the number of states in this list.
+	 * @return
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+	
+	public boolean isEmpty()
+	{
+		return this.size == 0;
+	}
+	
+	/**
+	 * Removes all states from this list.
+	 */
+	public void clear()
+	{
+		Arrays.fill(this.keys, 0);
+		if (this.states != null)
+			Arrays.fill(this.states, 0, this.size, null);
+		if (this.idStarts != null)
+			Arrays.fill(this.idStarts, -1);
+		
+		this.idsLength = 0;
+		this.size = 0;
+	}
+	
+	@Override
+	public Object clone()
+	{
+		ClosedList clone = new ClosedList(0);
+		clone.keys = this.keys.clone();
+		clone.slots = this.slots.clone();
+		clone.mask = this.mask;
+		clone.size = this.size;
+		clone.stride = this.stride;
+		clone.words = this.words == null ? null : this.words.clone();
+		clone.ids = this.ids == null ? null : this.ids.clone();
+		clone.idsLength = this.idsLength;
+		clone.idStarts = this.idStarts == null ? null : this.idStarts.clone();
+		clone.states = this.states == null ? null : this.states.clone();
+		
+		return clone;
+	}
+	
+	/**
+	 * Returns the slot containing the state, or the empty slot at which it would be stored.
+	 * @param factIds The IDs of the state's facts, as returned by {@link #getFactIds(State)}.
+	 */
+	private int find(State s, long key, int[] factIds)
+	{
+		int slot = (int) (key ^ (key >>> 32)) & this.mask;
+		while (this.keys[slot] != 0)
+		{
+			if (this.keys[slot] == key && this.entryEquals(this.slots[slot], s, factIds))
+				return slot;
+			
+			slot = (slot + 1) & this.mask;
+		}
+		
+		return slot;
+	}
+	
+	private boolean entryEquals(int entry, State s, int[] factIds)
+	{
+		Object stored = this.states == null || entry >= this.states.length ? null : this.states[entry];
+		if (stored != null)
+			return stored.equals(s);
+		
+		if (this.idStarts != null && entry < this.idStarts.length && this.idStarts[entry] >= 0)
+		{
+			if (s instanceof STRIPSState == false || s instanceof BitSetSTRIPSState)
+				return false;
+			
+			int start = this.idStarts[entry];
+			if (factIds == null || factIds.length != this.ids[start])
+				return false;
+			
+			for (int i = 0; i < factIds.length; i++)
+			{
+				if (factIds[i] != this.ids[start + 1 + i])
+					return false;
+			}
+			
+			return true;
+		}
+		
+		if (s instanceof BitSetSTRIPSState && ((BitSetSTRIPSState) s).getWordCount() == this.stride)
+			return ((BitSetSTRIPSState) s).wordsEqual(this.words, entry * this.stride);
+		
+		return false;
+	}
+	
+	private void store(State s, int entry, int[] factIds)
+	{
+		if (s instanceof BitSetSTRIPSState && (this.stride < 0 || ((BitSetSTRIPSState) s).getWordCount() == this.stride))
+		{
+			BitSetSTRIPSState bs = (BitSetSTRIPSState) s;
+			if (this.stride < 0)
+			{
+				this.stride = bs.getWordCount();
+				this.words = new long[Math.max(1, this.keys.length / 2) * this.stride];
+			}
+			
+			if ((entry + 1) * this.stride > this.words.length)
+				this.words = Arrays.copyOf(this.words, Math.max(this.words.length * 2, (entry + 1) * this.stride));
+			
+			bs.copyWords(this.words, entry * this.stride);
+		}
+		else if (factIds != null)
+		{
+			if (this.idStarts == null)
+			{
+				this.idStarts = new int[Math.max(entry + 1, this.keys.length / 2)];
+				Arrays.fill(this.idStarts, -1);
+			}
+			else if (entry >= this.idStarts.length)
+			{
+				int oldLength = this.idStarts.length;
+				this.idStarts = Arrays.copyOf(this.idStarts, Math.max(oldLength * 2, entry + 1));
+				Arrays.fill(this.idStarts, oldLength, this.idStarts.length, -1);
+			}
+			
+			int needed = this.idsLength + factIds.length + 1;
+			if (this.ids == null)
+				this.ids = new int[Math.max(needed, 1024)];
+			else if (needed > this.ids.length)
+				this.ids = Arrays.copyOf(this.ids, Math.max(this.ids.length * 2, needed));
+			
+			this.idStarts[entry] = this.idsLength;
+			this.ids[this.idsLength] = factIds.length;
+			System.arraycopy(factIds, 0, this.ids, this.idsLength + 1, factIds.length);
+			this.idsLength = needed;
+		}
+		else
+		{
+			if (this.states == null)
+				this.states = new Object[Math.max(entry + 1, this.keys.length / 2)];
+			else if (entry >= this.states.length)
+				this.states = Arrays.copyOf(this.states, Math.max(this.states.length * 2, entry + 1));
+			
+			this.states[entry] = s;
+		}
+	}
+	
+	private void rehash(int capacity)
+	{
+		long[] oldKeys = this.keys;
+		int[] oldSlots = this.slots;
+		
+		this.keys = new long[capacity];
+		this.slots = new int[capacity];
+		this.mask = capacity - 1;
+		
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			long key = oldKeys[i];
+			if (key == 0)
+				continue;
+			
+			int slot = (int) (key ^ (key >>> 32)) & this.mask;
+			while (this.keys[slot] != 0)
+				slot = (slot + 1) & this.mask;
+			
+			this.keys[slot] = key;
+			this.slots[slot] = oldSlots[i];
+		}
+	}
+	
+	/**
+	 * Returns the IDs which a state is stored as if it is a {@link STRIPSState} other than a 
+	 * {@link BitSetSTRIPSState}, or null otherwise. These are found once for each call to {@link #add(State)} 
+	 * or {@link #contains(State)}, and used for every entry they are compared against.
+	 */
+	protected static int[] getFactIds(State s)
+	{
+		if (s instanceof STRIPSState && s instanceof BitSetSTRIPSState == false)
+			return ((STRIPSState) s).getFactIds();
+		
+		return null;
+	}
+	
+	/**
+	 * Returns the non-zero 64-bit fingerprint of the state.
+	 */
+	protected static long fingerprint(State s)
+	{
+		long h;
+		if (s instanceof STRIPSState)
+		{
+			h = ((STRIPSState) s).getFingerprint();
+		}
+		else
+		{
+			//spread the 32-bit hash code over 64 bits
+			h = s.hashCode() * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 31;
+		}
+		
+		return h == 0 ? 1 : h;
+	}
+}
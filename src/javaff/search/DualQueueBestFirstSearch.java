@@ -0,0 +1,199 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.search;
+
+import javaff.PlannerMetrics;
+import javaff.data.Action;
+import javaff.planning.Filter;
+import javaff.planning.HelpfulFilter;
+import javaff.planning.State;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lazy greedy best-first search which uses helpful actions as preferred operators. Every successor is added
+ * to one open list, and those reached by a helpful action are also added to a second, preferred, open list.
+ * The search alternates between the two lists, taking from whichever has been used least, and each time a
+ * state with a new best heuristic value is expanded the preferred list is boosted so that it is used for the
+ * next {@link #getBoost()} expansions. States are closed on expansion, so a state which is on both lists is
+ * only ever expanded once.
+ * <p>
+ * The helpful actions are found using {@link #getPreferredFilter()}, and all successors using 
+ * {@link #getFilter()}.
+ */
+public class DualQueueBestFirstSearch extends LazyBestFirstSearch
+{
+	/** The default number of expansions the preferred open list is given when progress is made. */
+	public static final int DefaultBoost = 1000;
+	
+	protected StateHeap preferredOpen;
+	protected Filter preferredFilter;
+	
+	/** The number of times each list has been selected, less any boosts given to the preferred list. */
+	protected int preferredPriority, allPriority;
+	protected int boost;
+	protected int bestHValue;
+
+	public DualQueueBestFirstSearch(State s)
+	{
+		super(s);
+		
+		preferredOpen = new StateHeap();
+		preferredFilter = HelpfulFilter.getInstance();
+		boost = DefaultBoost;
+	}
+
+	/**
+	 * Generates the successors of the specified state and adds them to the open lists with the state's
+	 * heuristic value. The successors themselves are not evaluated.
+	 */
+	public void updateOpen(State S, int h)
+	{
+		PlannerMetrics metrics = this.context.getMetrics();
+		int g = (int) S.getGValueLong() + 1;
+		
+		long start = System.nanoTime();
+		Set<Action> preferred = new HashSet<Action>(preferredFilter.getActions(S));
+		List<Action> actions = filter.getActions(S);
+		metrics.getFilterTime().stop(start);
+		int generated = actions.size();
+		for (Action a : actions)
+		{
+			start = System.nanoTime();
+			State succ = S.getNextState(a);
+			metrics.getApplyTime().stop(start);
+			if (closed.contains(succ))
+			{
+				metrics.getDuplicatesPruned().increment();
+				continue;
+			}
+			
+			open.add(succ, h, g);
+			if (preferred.remove(a))
+				preferredOpen.add(succ, h, g);
+		}
+		
+		//helpful actions which the filter does not allow are still preferred
+		generated += preferred.size();
+		for (Action a : preferred)
+		{
+			start = System.nanoTime();
+			State succ = S.getNextState(a);
+			metrics.getApplyTime().stop(start);
+			if (closed.contains(succ) == false)
+				preferredOpen.add(succ, h, g);
+			else
+				metrics.getDuplicatesPruned().increment();
+		}
+		
+		metrics.getStatesExpanded().increment();
+		metrics.getStatesGenerated().add(generated);
+		metrics.getOpenPeak().update(open.size() + preferredOpen.size());
+		metrics.getClosedPeak().update(closed.size());
+	}
+	
+	/**
+	 * Removes the next state from whichever open list is due to be used.
+	 */
+	public State removeNext()
+	{
+		if (preferredOpen.isEmpty() == false && (open.isEmpty() || preferredPriority <= allPriority))
+		{
+			++preferredPriority;
+			return preferredOpen.poll();
+		}
+		
+		++allPriority;
+		return open.poll();
+	}
+
+	public State search()
+	{
+		bestHValue = Integer.MAX_VALUE;
+		preferredPriority = 0;
+		allPriority = 0;
+		
+		open.add(start, 0, 0);
+
+		while (!open.isEmpty() || !preferredOpen.isEmpty())
+		{
+			State s = removeNext();
+			if (needToVisit(s))
+			{
+				++nodeCount;
+				if (s.goalReached())
+					return s;
+				
+				int h = (int) s.getHValueLong();
+				if (h >= deadEndValue)
+					continue;
+				
+				if (h < bestHValue)
+				{
+					bestHValue = h;
+					preferredPriority -= boost;
+				}
+				
+				updateOpen(s, h);
+			}
+			else
+			{
+				this.context.getMetrics().getDuplicatesPruned().increment();
+			}
+		}
+		return null;
+	}
+
+	public Filter getPreferredFilter()
+	{
+		return preferredFilter;
+	}
+
+	public void setPreferredFilter(Filter preferredFilter)
+	{
+		this.preferredFilter = preferredFilter;
+	}
+
+	/**
+	 * Returns the number of expansions which the preferred open list is given priority for each time a 
+	 * state with a new best heuristic value is expanded.
+	 * @return
+	 */
+	public int getBoost()
+	{
+		return boost;
+	}
+
+	public void setBoost(int boost)
+	{
+		this.boost = boost;
+	}
+}
@@ -27,7 +27,7 @@
 
 package javaff.search;
 
-import javaff.JavaFF;
+import javaff.PlannerMetrics;
 import javaff.data.Action;
 import javaff.data.Fact;
 import javaff.data.Plan;
@@ -40,6 +40,7 @@ import javaff.planning.STRIPSState;
 import javaff.planning.State;
 import javaff.planning.Filter;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -47,18 +48,22 @@ import java.util.List;
 import java.util.Set;
 import java.util.LinkedList;
 import java.util.Comparator;
-import java.math.BigDecimal;
 
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class EnforcedHillClimbingSearch extends Search
 {
-	protected BigDecimal bestHValue;
+	protected long bestHValue;
 
-	//cache the hash codes rather than the states for memory efficiency
-	protected HashSet<Integer> closed;
+	protected ClosedList closed;
 	protected LinkedList<State> open;
+	
+	protected ExecutorService executor;
+	protected int batchSize;
 
 	public EnforcedHillClimbingSearch(State s)
 	{
@@ -70,8 +75,36 @@ public class EnforcedHillClimbingSearch extends Search
 		super(s);
 		setComparator(c);
 
-		closed = new HashSet<Integer>();
+		closed = new ClosedList();
 		open = new LinkedList<State>();
+		
+		executor = null;
+		batchSize = 1;
+	}
+
+	/**
+	 * Evaluate the heuristic of successor states on the specified executor, rather than one after another. Successors
+	 * are generated and evaluated in batches of the specified size, but are still considered in helpful-action 
+	 * order, so the state which is chosen is the same as that of the sequential search -- the earliest improving
+	 * successor wins, and any successors evaluated after it in the same batch are discarded. 
+	 * <p>
+	 * This is only used if the RPG of the initial state supports concurrent evaluation of its branches 
+	 * (see {@link javaff.planning.PlanningGraph#supportsConcurrentBranches()}). Otherwise, the search remains sequential.
+	 * 
+	 * @param executor The executor to evaluate successors on, or null to evaluate them sequentially. This is not shut
+	 * down by the search.
+	 * @param batchSize The number of successors to evaluate at once. Normally the number of threads used by the
+	 * executor.
+	 */
+	public void setExecutor(ExecutorService executor, int batchSize)
+	{
+		this.executor = executor;
+		this.batchSize = Math.max(1, batchSize);
+	}
+	
+	public ExecutorService getExecutor()
+	{
+		return executor;
 	}
 
 	public void setFilter(Filter f)
@@ -87,11 +120,7 @@ public class EnforcedHillClimbingSearch extends Search
 
 	public boolean needToVisit(State s)
 	{
-		if (closed.contains(s.hashCode()))
-			return false;
-
-		closed.add(s.hashCode()); // otherwise put it on
-		return true; // and return true
+		return closed.add(s); // only true if it was not already on the list
 	}
 
 	public State search()
@@ -106,42 +135,78 @@ public class EnforcedHillClimbingSearch extends Search
 							// states so we don't visit it again
 
 		open.add(start); // add it to the open list
-		bestHValue = start.getHValue(); // and take its heuristic value as the
+		bestHValue = start.getHValueLong(); // and take its heuristic value as the
 										// best so far
 
-		javaff.JavaFF.infoOutput.print(bestHValue+" into depth ");
-		int statesEvaluated = 1;
+		//evaluation can only be done in parallel if states do not share any RPG working memory
+		boolean parallel = this.executor != null && this.batchSize > 1 && start instanceof STRIPSState 
+				&& ((STRIPSState) start).getRPG().supportsConcurrentBranches();
+		if (this.executor != null && parallel == false)
+			context.getInfoOutput().println("RPG does not support concurrent evaluation, successors will be evaluated sequentially");
+		int batchSize = parallel ? this.batchSize : 1;
+		
+		//progress messages are only built when they will be written, as they are built for every new depth
+		boolean info = context.isInfoEnabled();
+		if (info)
+			context.getInfoOutput().print(bestHValue+" into depth ");
+		this.nodeCount = 1;
 		int maxDepth = 1;
 		HashMap<State, Integer> successorLayers = new HashMap<State, Integer>();
 		successorLayers.put(start, 1);
 		
+		PlannerMetrics metrics = this.context.getMetrics();
 		int currentDepth = 1, prevDepth = 0;
 		out: while (!open.isEmpty()) // whilst still states to consider
 		{
+			metrics.getOpenPeak().update(open.size());
+			metrics.getClosedPeak().update(closed.size());
+			
 			State curr = open.pop();
-			closed.add(curr.hashCode());
+			closed.add(curr);
 			currentDepth = successorLayers.get(curr);
 			if (currentDepth > maxDepth)
 				maxDepth = currentDepth;
 			
 			if (currentDepth > prevDepth)
 			{
-				JavaFF.infoOutput.print("["+(currentDepth)+"]");
+				if (info)
+					context.getInfoOutput().print("["+(currentDepth)+"]");
 				prevDepth = currentDepth;
 			}
 			
+			long start = System.nanoTime();
 			List<Action> applicable = filter.getActions(curr);
-			in: for (Action a : applicable)
+			metrics.getFilterTime().stop(start);
+			metrics.getStatesExpanded().increment();
+			Iterator<Action> actionIter = applicable.iterator();
+			List<State> batch = new ArrayList<State>(batchSize);
+			in: while (batch.isEmpty() == false || actionIter.hasNext())
 			{
-				State succ = curr.getNextState(a);
-				
-				if (this.closed.contains(succ.hashCode()) == true)
+				if (batch.isEmpty())
 				{
+					//generate the next batch of unvisited successors, and compute their heuristics
+					while (batch.size() < batchSize && actionIter.hasNext())
+					{
+						start = System.nanoTime();
+						State succ = curr.getNextState(actionIter.next());
+						metrics.getApplyTime().stop(start);
+						metrics.getStatesGenerated().increment();
+						if (this.closed.contains(succ) == false)
+							batch.add(succ);
+						else
+							metrics.getDuplicatesPruned().increment();
+					}
+					
+					if (parallel)
+						this.evaluate(batch);
+					
 					continue in;
 				}
-				++statesEvaluated;
 				
-				BigDecimal succH = succ.getHValue();
+				State succ = batch.remove(0);
+				++this.nodeCount;
+				
+				long succH = succ.getHValueLong();
 				//check we have no entered a dead-end
 				if (((STRIPSState) succ).getRelaxedPlan() == null)
 					continue;
@@ -159,11 +224,12 @@ public class EnforcedHillClimbingSearch extends Search
 				{ // if we've found a goal state -
 					// return it as the
 					// solution
-					JavaFF.infoOutput.println("\nEvaluated "+statesEvaluated+" states to a max depth of "+maxDepth);
+					if (info)
+						context.getInfoOutput().println("\nEvaluated "+this.nodeCount+" states to a max depth of "+maxDepth);
 					
 					return succ;
 				}
-				else if (succH.compareTo(bestHValue) < 0)
+				else if (succH < bestHValue)
 				{
 					// if we've found a state with a better heuristic
 					// value
@@ -178,7 +244,8 @@ public class EnforcedHillClimbingSearch extends Search
 					prevDepth = 0;
 					currentDepth = 1;
 					
-					JavaFF.infoOutput.print("\n"+bestHValue+" into depth ");
+					if (info)
+						context.getInfoOutput().print("\n"+bestHValue+" into depth ");
 					
 					continue out; // and skip looking at the other successors
 				}
@@ -191,11 +258,49 @@ public class EnforcedHillClimbingSearch extends Search
 			}
 			
 		}
-		JavaFF.infoOutput.println();
+		context.getInfoOutput().println();
 		
 		return null;
 	}
 
+	/**
+	 * Computes the heuristic value of each state on the executor, and waits for them all to finish.
+	 * @param states
+	 */
+	protected void evaluate(List<State> states)
+	{
+		if (states.size() < 2)
+			return;
+		
+		List<Future<?>> results = new ArrayList<Future<?>>(states.size());
+		for (final State s : states)
+		{
+			results.add(this.executor.submit(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					s.getHValueLong();
+				}
+			}));
+		}
+		
+		try
+		{
+			for (Future<?> f : results)
+				f.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while evaluating successors", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException("Failed to evaluate successor", e.getCause());
+		}
+	}
+
 	/**
 	 * Tests whether any of the actions in the RELAXED plan associated with this state
 	 * delete a goal.
@@ -29,7 +29,6 @@ package javaff.search;
 
 import javaff.planning.State;
 import java.util.Comparator;
-import java.math.BigDecimal;
 
 public class HValueComparator implements Comparator
 {
@@ -40,14 +39,10 @@ public class HValueComparator implements Comparator
 		{
 			State s1 = (State) obj1;
 			State s2 = (State) obj2;
-			BigDecimal d1 = s1.getHValue();
-			BigDecimal d2 = s2.getHValue();
-			r = d1.compareTo(d2);
+			r = Long.compare(s1.getHValueLong(), s2.getHValueLong());
 			if (r == 0)
 			{
-				d1 = s1.getGValue();
-				d2 = s2.getGValue();
-				r = d1.compareTo(d2);
+				r = Long.compare(s1.getGValueLong(), s2.getGValueLong());
 				if (r == 0)
 				{
 					if (s1.hashCode() > s2.hashCode())
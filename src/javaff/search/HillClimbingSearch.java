@@ -36,14 +36,13 @@ import java.util.LinkedList;
 import java.util.Comparator;
 import java.math.BigDecimal;
 
-import java.util.Hashtable;
 import java.util.Iterator;
 
 public class HillClimbingSearch extends Search
 {
 	//protected BigDecimal bestHValue;
 
-	protected Hashtable closed;
+	protected ClosedList closed;
 	protected LinkedList open;
 	
 	private int maxDepth;
@@ -58,7 +57,7 @@ public class HillClimbingSearch extends Search
 		super(s);
 		setComparator(c);
 
-		closed = new Hashtable();
+		closed = new ClosedList();
 		open = new LinkedList();
 		this.maxDepth = maxDepth;
 	}
@@ -86,14 +85,7 @@ public class HillClimbingSearch extends Search
 
 	public boolean needToVisit(State s)
 	{
-		Integer Shash = new Integer(s.hashCode()); // compute hash for tmstate
-		State D = (State) closed.get(Shash); // see if its on the closed list
-
-		if (closed.containsKey(Shash) && D.equals(s))
-			return false; // if it is return false
-
-		closed.put(Shash, s); // otherwise put it on
-		return true; // and return true
+		return closed.add(s); // only true if it was not already on the list
 	}
 
 	public State search()
@@ -116,7 +108,7 @@ public class HillClimbingSearch extends Search
 			if (depth >= this.maxDepth)
 				return null;
 			
-			BigDecimal bestHValue = new BigDecimal(Integer.MAX_VALUE); // and take its heuristic value as the
+			long bestHValue = Integer.MAX_VALUE; // and take its heuristic value as the
 															// best so far
 
 			//javaff.JavaFF.infoOutput.println(bestHValue);
@@ -134,7 +126,7 @@ public class HillClimbingSearch extends Search
 
 				if (needToVisit(succ))
 				{
-					int res = succ.getHValue().compareTo(bestHValue);
+					int res = Long.compare(succ.getHValueLong(), bestHValue);
 					if (succ.goalReached())
 					{ // if we've found a goal tmstate - return it as the
 						// solution
@@ -145,9 +137,10 @@ public class HillClimbingSearch extends Search
 						// if we've found a tmstate with a better heuristic value
 						// than the best seen so far
 
-						bestHValue = succ.getHValue(); // note the new best
+						bestHValue = succ.getHValueLong(); // note the new best
 														// avlue
-						javaff.JavaFF.infoOutput.println(bestHValue);
+						if (context.isInfoEnabled())
+							context.getInfoOutput().println(bestHValue);
 						bestSuccessors.clear(); // clear the open list
 						bestSuccessors.add(succ); // put this on it
 					} 
@@ -162,7 +155,7 @@ public class HillClimbingSearch extends Search
 			else
 			{
 				open.clear();
-				open.add(bestSuccessors.get(javaff.JavaFF.generator.nextInt(bestSuccessors.size())));
+				open.add(bestSuccessors.get(context.getRandom().nextInt(bestSuccessors.size())));
 			}
 			
 			depth++;
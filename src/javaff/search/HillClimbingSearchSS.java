@@ -35,14 +35,13 @@ import java.util.LinkedList;
 import java.util.Comparator;
 import java.math.BigDecimal;
 
-import java.util.Hashtable;
 
 public class HillClimbingSearchSS extends Search
 {
 	//protected BigDecimal bestHValue;
 	protected SuccessorSelector successorSelector;
 
-	protected Hashtable closed;
+	protected ClosedList closed;
 	protected LinkedList open;
 	
 	private int maxDepth;
@@ -57,7 +56,7 @@ public class HillClimbingSearchSS extends Search
 		super(s);
 		setComparator(c);
 
-		closed = new Hashtable();
+		closed = new ClosedList();
 		open = new LinkedList();
 		
 		this.maxDepth = maxDepth;
@@ -87,14 +86,7 @@ public class HillClimbingSearchSS extends Search
 
 	public boolean needToVisit(State s)
 	{
-		Integer Shash = new Integer(s.hashCode()); // compute hash for tmstate
-		State D = (State) closed.get(Shash); // see if its on the closed list
-
-		if (closed.containsKey(Shash) && D.equals(s))
-			return false; // if it is return false
-
-		closed.put(Shash, s); // otherwise put it on
-		return true; // and return true
+		return closed.add(s); // only true if it was not already on the list
 	}
 
 	public State search()
@@ -0,0 +1,118 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.search;
+
+import javaff.JavaFF;
+import javaff.PlannerMetrics;
+import javaff.data.Action;
+import javaff.planning.State;
+
+import java.util.List;
+
+/**
+ * Greedy best-first search with deferred heuristic evaluation. Successors are queued with the heuristic
+ * value of their parent and are only evaluated when they are removed from the open list, so at most one RPG
+ * is built per expanded state rather than one per generated state. States are ordered by their integer
+ * h value, then by g and then by the order they were generated in.
+ */
+public class LazyBestFirstSearch extends Search
+{
+	protected ClosedList closed;
+	protected StateHeap open;
+	
+	/** States whose heuristic is at least this large are dead-ends and are not expanded. */
+	protected int deadEndValue;
+
+	public LazyBestFirstSearch(State s)
+	{
+		super(s);
+
+		closed = new ClosedList();
+		open = new StateHeap();
+		deadEndValue = JavaFF.MAX_DURATION.intValue();
+	}
+
+	/**
+	 * Generates the successors of the specified state and adds them to the open list with the state's
+	 * heuristic value. The successors themselves are not evaluated.
+	 */
+	public void updateOpen(State S, int h)
+	{
+		PlannerMetrics metrics = this.context.getMetrics();
+		int g = (int) S.getGValueLong() + 1;
+		long start = System.nanoTime();
+		List<Action> actions = filter.getActions(S);
+		metrics.getFilterTime().stop(start);
+		for (Action a : actions)
+		{
+			start = System.nanoTime();
+			State succ = S.getNextState(a);
+			metrics.getApplyTime().stop(start);
+			if (closed.contains(succ) == false)
+				open.add(succ, h, g);
+			else
+				metrics.getDuplicatesPruned().increment();
+		}
+		
+		metrics.getStatesExpanded().increment();
+		metrics.getStatesGenerated().add(actions.size());
+		metrics.getOpenPeak().update(open.size());
+		metrics.getClosedPeak().update(closed.size());
+	}
+
+	public boolean needToVisit(State s)
+	{
+		return closed.add(s); // only true if it was not already on the list
+	}
+
+	public State search()
+	{
+		open.add(start, 0, 0);
+
+		while (!open.isEmpty())
+		{
+			State s = open.poll();
+			if (needToVisit(s))
+			{
+				++nodeCount;
+				if (s.goalReached())
+					return s;
+				
+				int h = (int) s.getHValueLong();
+				if (h < deadEndValue)
+					updateOpen(s, h);
+			}
+			else
+			{
+				this.context.getMetrics().getDuplicatesPruned().increment();
+			}
+		}
+		return null;
+	}
+}
@@ -15,14 +15,13 @@ import java.util.LinkedList;
 import java.util.Comparator;
 import java.math.BigDecimal;
 
-import java.util.Hashtable;
 import java.util.Iterator;
 
 public class LocalSearch extends Search
 {
 	protected BigDecimal bestHValue;
 
-	protected Hashtable closed;
+	protected ClosedList closed;
 	protected LinkedList open;
 	protected SuccessorSelector selector = null;
 
@@ -39,7 +38,7 @@ public class LocalSearch extends Search
 		super(s);
 		setComparator(c);
 
-		closed = new Hashtable();
+		closed = new ClosedList();
 		open = new LinkedList();
 	}
 
@@ -71,14 +70,7 @@ public class LocalSearch extends Search
 
 	public boolean needToVisit(State s)
 	{
-		Integer Shash = new Integer(s.hashCode());
-		State D = (State) closed.get(Shash);
-
-		if (closed.containsKey(Shash) && D.equals(s))
-			return false;
-
-		closed.put(Shash, s);
-		return true;
+		return closed.add(s); // only true if it was not already on the list
 	}
 
 	public State search()
@@ -98,8 +90,8 @@ public class LocalSearch extends Search
 		int currentRestarts = 0;
 
 		State bestState = start;
-		BigDecimal bestHValue = start.getHValue();
-		Hashtable bestClosed = (Hashtable) closed.clone();
+		long bestHValue = start.getHValueLong();
+		ClosedList bestClosed = (ClosedList) closed.clone();
 
 		while (!open.isEmpty()) // whilst still states to consider
 		{
@@ -136,13 +128,13 @@ public class LocalSearch extends Search
 				State chosenSuccessor = selector.choose(toChooseFrom); // choose
 																		// one
 
-				if (chosenSuccessor.getHValue().compareTo(bestHValue) < 0)
+				if (chosenSuccessor.getHValueLong() < bestHValue)
 				{ // if this is a new 'best tmstate'
 					currentDepth = 0; // reset the depth bound
 					open.add(chosenSuccessor); // add this to the open list
 					bestState = chosenSuccessor; // and note it's the best
-					bestHValue = chosenSuccessor.getHValue();
-					bestClosed = (Hashtable) closed.clone();
+					bestHValue = chosenSuccessor.getHValueLong();
+					bestClosed = (ClosedList) closed.clone();
 				}
 				else
 				{
@@ -159,7 +151,7 @@ public class LocalSearch extends Search
 							return null;
 						}
 						currentDepth = 0;
-						closed = (Hashtable) bestClosed.clone();
+						closed = (ClosedList) bestClosed.clone();
 						open.add(bestState);
 					}
 				}
@@ -7,15 +7,35 @@
 
 package javaff.search;
 
-import javaff.JavaFF;
+import javaff.PlannerContext;
 import javaff.planning.State;
 import java.util.Iterator;
+import java.util.Random;
 import java.util.Set;
 import java.math.BigDecimal;
 
 public class RouletteSelector implements SuccessorSelector
 {
 	private static RouletteSelector rs = null;
+	
+	protected Random random;
+
+	/**
+	 * Create a selector which uses the random number generator of the default {@link PlannerContext}.
+	 */
+	public RouletteSelector()
+	{
+		this(PlannerContext.getDefault().getRandom());
+	}
+
+	/**
+	 * Create a selector which uses the specified random number generator. 
+	 * @param random
+	 */
+	public RouletteSelector(Random random)
+	{
+		this.random = random;
+	}
 
 	public static RouletteSelector getInstance()
 	{
@@ -58,7 +78,7 @@ public class RouletteSelector implements SuccessorSelector
 //		System.out.println();
 		
 		int selection = 0;
-		double r = JavaFF.generator.nextDouble() * total;//.doubleValue();
+		double r = random.nextDouble() * total;//.doubleValue();
 		for (int i = 0; i < toChooseFrom.size() - 1; i++)
 		{
 			//System.out.println("r is "+r+", checking between "+runningTotal[i]+" and "+runningTotal[i+1]);
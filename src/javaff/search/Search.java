@@ -28,6 +28,7 @@
 
 package javaff.search;
 
+import javaff.PlannerContext;
 import javaff.planning.Filter;
 import javaff.planning.State;
 
@@ -39,10 +40,12 @@ public abstract class Search
 	protected int nodeCount = 0;
 	protected Comparator comp;
 	protected Filter filter = null;
+	protected PlannerContext context;
 
 	public Search(State s)
 	{
 		start = s;
+		context = PlannerContext.getDefault();
 	}
 
 	public Comparator getComparator()
@@ -57,6 +60,14 @@ public abstract class Search
 
 	public abstract State search();
 
+	/**
+	 * Returns the number of states which this search has visited so far.
+	 */
+	public int getNodeCount()
+	{
+		return nodeCount;
+	}
+
 	public Filter getFilter()
 	{
 		return filter;
@@ -66,6 +77,20 @@ public abstract class Search
 	{
 		this.filter = filter;
 	}
+
+	/**
+	 * Returns the context which this search writes output to and draws random numbers from.
+	 * @return
+	 */
+	public PlannerContext getContext()
+	{
+		return context;
+	}
+
+	public void setContext(PlannerContext context)
+	{
+		this.context = context;
+	}
 	
 	
 
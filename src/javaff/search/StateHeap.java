@@ -0,0 +1,186 @@
+/************************************************************************
+ * Strathclyde Planning Group,
+ * Department of Computer and Information Sciences,
+ * University of Strathclyde, Glasgow, UK
+ * http://planning.cis.strath.ac.uk/
+ * 
+ * Copyright 2007, Keith Halsey
+ * Copyright 2008, Andrew Coles and Amanda Smith
+ * Copyright 2015, David Pattison
+ *
+ * This file is part of JavaFF.
+ * 
+ * JavaFF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * JavaFF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with JavaFF.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ ************************************************************************/
+
+
+package javaff.search;
+
+import javaff.planning.State;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of states keyed on integer h and g values. States with the lowest h are removed first, 
+ * ties are broken on the lowest g and then on insertion order, so the ordering is deterministic and never
+ * requires a state's heuristic to be computed. The keys are held in primitive arrays which are parallel to 
+ * the array of states.
+ */
+public class StateHeap
+{
+	private static final int DefaultCapacity = 256;
+	
+	private int[] hValues;
+	private int[] gValues;
+	private long[] order;
+	private State[] states;
+	private int size;
+	private long counter;
+	
+	public StateHeap()
+	{
+		this(DefaultCapacity);
+	}
+	
+	public StateHeap(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		this.hValues = new int[capacity];
+		this.gValues = new int[capacity];
+		this.order = new long[capacity];
+		this.states = new State[capacity];
+		this.size = 0;
+		this.counter = 0;
+	}
+	
+	/**
+	 * Add a state to the heap with the specified keys.
+	 * @param s
+	 * @param h The heuristic value to order the state by. This need not be the state's own heuristic value.
+	 * @param g The cost of reaching the state, used to break ties on h.
+	 */
+	public void add(State s, int h, int g)
+	{
+		if (size == states.length)
+			grow();
+		
+		int i = size++;
+		long o = counter++;
+		while (i > 0)
+		{
+			int parent = (i - 1) >>> 1;
+			if (compare(h, g, o, parent) >= 0)
+				break;
+			
+			move(parent, i);
+			i = parent;
+		}
+		set(i, s, h, g, o);
+	}
+	
+	/**
+	 * Returns the h key of the state which will be removed next. The heap must not be empty.
+	 */
+	public int peekHValue()
+	{
+		return hValues[0];
+	}
+
+	/**
+	 * Removes and returns the state with the lowest keys, or null if the heap is empty.
+	 */
+	public State poll()
+	{
+		if (size == 0)
+			return null;
+		
+		State top = states[0];
+		--size;
+		int h = hValues[size], g = gValues[size];
+		long o = order[size];
+		State last = states[size];
+		states[size] = null;
+		
+		if (size > 0)
+		{
+			int i = 0;
+			int half = size >>> 1;
+			while (i < half)
+			{
+				int child = 2 * i + 1;
+				int right = child + 1;
+				if (right < size && compare(hValues[right], gValues[right], order[right], child) < 0)
+					child = right;
+				if (compare(h, g, o, child) <= 0)
+					break;
+				
+				move(child, i);
+				i = child;
+			}
+			set(i, last, h, g, o);
+		}
+		
+		return top;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+	
+	public void clear()
+	{
+		Arrays.fill(states, 0, size, null);
+		size = 0;
+	}
+	
+	private int compare(int h, int g, long o, int index)
+	{
+		if (h != hValues[index])
+			return h < hValues[index] ? -1 : 1;
+		if (g != gValues[index])
+			return g < gValues[index] ? -1 : 1;
+		if (o != order[index])
+			return o < order[index] ? -1 : 1;
+		return 0;
+	}
+	
+	private void move(int from, int to)
+	{
+		set(to, states[from], hValues[from], gValues[from], order[from]);
+	}
+	
+	private void set(int i, State s, int h, int g, long o)
+	{
+		states[i] = s;
+		hValues[i] = h;
+		gValues[i] = g;
+		order[i] = o;
+	}
+	
+	private void grow()
+	{
+		int capacity = states.length * 2;
+		hValues = Arrays.copyOf(hValues, capacity);
+		gValues = Arrays.copyOf(gValues, capacity);
+		order = Arrays.copyOf(order, capacity);
+		states = Arrays.copyOf(states, capacity);
+	}
+}